@@ -0,0 +1,159 @@
+package fciencias.edatos.practica06.bench;
+
+import fciencias.edatos.practica06.TDABinarySearchTree;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+* Benchmarks de JMH para las operaciones de TDABinarySearchTree.
+* Compara AVLTree contra java.util.TreeMap con claves en orden secuencial,
+* aleatorio y de Zipf para varios tamaños. Se corre con «ant bench», que
+* activa el profiler de GC para reportar la tasa de asignación.
+* @author Pintor Muñoz Pedro Joshue.
+* @since Estructuras de Datos 2022-1.
+*/
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = {"-Xmx4g"})
+public class ArbolBenchmark{
+
+	/** Largo de la secuencia de consultas, se recorre de forma cíclica. */
+	private static final int CONSULTAS = 1 << 16;
+
+	@Param({"AVL", "INT_AVL", "TREEMAP"})
+	public Estructura estructura;
+
+	@Param({"SECUENCIAL", "ALEATORIO", "ZIPF"})
+	public OrdenClaves orden;
+
+	@Param({"1000", "100000", "1000000"})
+	public int tamanio;
+
+	/** El árbol con las claves pares 0, 2, ..., 2n-2. */
+	private TDABinarySearchTree<Integer, String> arbol;
+
+	/** Claves en el orden de inserción. */
+	private int[] inserciones;
+
+	/** Índices de consulta entre 0 y n-1. */
+	private int[] consultas;
+
+	/** Posición actual en consultas. */
+	private int siguiente;
+
+	/** Salida original, se restaura al terminar. */
+	private PrintStream salida;
+
+	@Setup(Level.Trial)
+	public void prepara(){
+		inserciones = orden.inserciones(tamanio, 17);
+		consultas = orden.consultas(tamanio, CONSULTAS, 23);
+		arbol = llena();
+
+		// Los recorridos imprimen cada elemento, lo mandamos a un flujo nulo
+		salida = System.out;
+		System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+	}
+
+	@TearDown(Level.Trial)
+	public void termina(){
+		System.setOut(salida);
+	}
+
+	/**
+	 * Crea una estructura nueva con todas las claves de inserciones.
+	 * @return la estructura llena.
+	 */
+	private TDABinarySearchTree<Integer, String> llena(){
+		TDABinarySearchTree<Integer, String> nuevo = estructura.crea();
+		for(int clave : inserciones)
+			nuevo.insert("v" + clave, clave);
+		return nuevo;
+	}
+
+	/**
+	 * Regresa el siguiente índice de consulta.
+	 * @return un índice entre 0 y n-1.
+	 */
+	private int siguienteIndice(){
+		int indice = consultas[siguiente];
+		siguiente = (siguiente + 1) & (CONSULTAS - 1);
+		return indice;
+	}
+
+	/**
+	 * Construcción completa con n inserciones, el costo por insert es el
+	 * tiempo reportado entre el tamaño.
+	 */
+	@Benchmark
+	@BenchmarkMode(Mode.AverageTime)
+	@OutputTimeUnit(TimeUnit.MILLISECONDS)
+	public TDABinarySearchTree<Integer, String> insert(){
+		return llena();
+	}
+
+	/**
+	 * Inserta una clave ausente y la vuelve a eliminar, el tamaño no cambia.
+	 */
+	@Benchmark
+	public String insertDelete(){
+		int clave = 2 * siguienteIndice() + 1;
+		arbol.insert("x", clave);
+		return arbol.delete(clave);
+	}
+
+	/**
+	 * Elimina una clave presente y la vuelve a insertar, el tamaño no cambia.
+	 */
+	@Benchmark
+	public String deleteInsert(){
+		int clave = 2 * siguienteIndice();
+		String eliminado = arbol.delete(clave);
+		arbol.insert(eliminado, clave);
+		return eliminado;
+	}
+
+	/** Búsqueda de una clave presente. */
+	@Benchmark
+	public String retrieve(){
+		return arbol.retrieve(2 * siguienteIndice());
+	}
+
+	/** Búsqueda de una clave ausente. */
+	@Benchmark
+	public String retrieveFallido(){
+		return arbol.retrieve(2 * siguienteIndice() + 1);
+	}
+
+	@Benchmark
+	public void findMinMax(Blackhole bh){
+		bh.consume(arbol.findMin());
+		bh.consume(arbol.findMax());
+	}
+
+	/** Recorrido completo, el costo por nodo es el tiempo reportado entre el tamaño. */
+	@Benchmark
+	@BenchmarkMode(Mode.AverageTime)
+	@OutputTimeUnit(TimeUnit.MILLISECONDS)
+	public void inorden(){
+		arbol.inorden();
+	}
+}
@@ -0,0 +1,71 @@
+package fciencias.edatos.practica06.bench;
+
+import fciencias.edatos.practica06.TDABinarySearchTree;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+* Adaptador de java.util.TreeMap a la interfaz TDABinarySearchTree.
+* Sirve como línea base en los benchmarks.
+* @author Pintor Muñoz Pedro Joshue.
+* @since Estructuras de Datos 2022-1.
+*/
+public class ArbolTreeMap<K extends Comparable, T> implements TDABinarySearchTree<K, T>{
+
+	/** Mapa ordenado al que se delegan las operaciones. */
+	private final TreeMap<K, T> mapa = new TreeMap<>();
+
+	@Override
+	public T retrieve(K k){
+		return mapa.get(k);
+	}
+
+	@Override
+	public void insert(T e, K k){
+		mapa.put(k, e);
+	}
+
+	@Override
+	public T delete(K k){
+		return mapa.remove(k);
+	}
+
+	@Override
+	public T findMin(){
+		Map.Entry<K, T> minimo = mapa.firstEntry();
+		return minimo == null ? null : minimo.getValue();
+	}
+
+	@Override
+	public T findMax(){
+		Map.Entry<K, T> maximo = mapa.lastEntry();
+		return maximo == null ? null : maximo.getValue();
+	}
+
+	/**
+	 * TreeMap no expone su forma, así que se recorre en inorden.
+	 */
+	@Override
+	public void preorden(){
+		inorden();
+	}
+
+	@Override
+	public void inorden(){
+		for(T elemento : mapa.values())
+			System.out.println(elemento);
+	}
+
+	/**
+	 * TreeMap no expone su forma, así que se recorre en inorden.
+	 */
+	@Override
+	public void postorden(){
+		inorden();
+	}
+
+	@Override
+	public boolean isEmpty(){
+		return mapa.isEmpty();
+	}
+}
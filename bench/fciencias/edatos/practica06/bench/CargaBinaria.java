@@ -0,0 +1,64 @@
+package fciencias.edatos.practica06.bench;
+
+import fciencias.edatos.practica06.AVLTree;
+import fciencias.edatos.practica06.CodecFijo;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+* Mide cuánto tarda guardar un árbol con save y volver a cargarlo con load,
+* contra reconstruirlo insertando clave por clave como se hace al arrancar
+* sin archivo. Usa claves y elementos long.
+* Uso: CargaBinaria [n] [archivo]
+* @author Pintor Muñoz Pedro Joshue.
+* @since Estructuras de Datos 2022-1.
+*/
+public class CargaBinaria{
+
+	public static void main(String[] args) throws IOException{
+		int n = args.length > 0 ? Integer.parseInt(args[0]) : 10_000_000;
+		Path archivo = args.length > 1 ? Path.of(args[1]) : Files.createTempFile("avl", ".bin");
+
+		Long[] claves = new Long[n];
+		for(int i = 0; i < n; i++)
+			claves[i] = 2L * i;
+
+		long inicio = System.nanoTime();
+		AVLTree<Long, Long> arbol = new AVLTree<>();
+		for(int i = 0; i < n; i++)
+			arbol.insert(claves[i], claves[i]);
+		double insertaMs = (System.nanoTime() - inicio) / 1e6;
+
+		inicio = System.nanoTime();
+		arbol.save(archivo, CodecFijo.LONG, CodecFijo.LONG);
+		double guardaMs = (System.nanoTime() - inicio) / 1e6;
+		long bytes = Files.size(archivo);
+
+		// Soltamos el árbol original para que la carga no compita por memoria
+		arbol = null;
+		System.gc();
+
+		// La segunda carga ya encuentra el archivo en el caché de páginas, como al reiniciar el proceso
+		AVLTree<Long, Long> cargado = null;
+		double cargaMs = Double.MAX_VALUE;
+		for(int r = 0; r < 3; r++){
+			cargado = null;
+			System.gc();
+			inicio = System.nanoTime();
+			cargado = AVLTree.load(archivo, CodecFijo.LONG, CodecFijo.LONG);
+			cargaMs = Math.min(cargaMs, (System.nanoTime() - inicio) / 1e6);
+		}
+
+		if(cargado.size() != n || !Long.valueOf(2L * (n - 1)).equals(cargado.findMax()))
+			throw new IllegalStateException("El árbol cargado no coincide con el guardado");
+
+		System.out.printf("%d entradas, archivo de %.1f MB%n", n, bytes / 1e6);
+		System.out.printf("insert uno por uno: %10.1f ms%n", insertaMs);
+		System.out.printf("save:               %10.1f ms%n", guardaMs);
+		System.out.printf("load:               %10.1f ms%n", cargaMs);
+
+		if(args.length < 2)
+			Files.delete(archivo);
+	}
+}
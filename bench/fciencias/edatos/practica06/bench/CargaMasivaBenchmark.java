@@ -0,0 +1,61 @@
+package fciencias.edatos.practica06.bench;
+
+import fciencias.edatos.practica06.AVLTree;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+* Compara la carga masiva AVLTree.fromSorted contra n llamadas a insert
+* con las mismas claves ordenadas.
+* @author Pintor Muñoz Pedro Joshue.
+* @since Estructuras de Datos 2022-1.
+*/
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = {"-Xmx4g"})
+public class CargaMasivaBenchmark{
+
+	@Param({"10000", "1000000"})
+	public int tamanio;
+
+	private Integer[] claves;
+
+	private String[] elementos;
+
+	@Setup(Level.Trial)
+	public void prepara(){
+		claves = new Integer[tamanio];
+		elementos = new String[tamanio];
+		for(int i = 0; i < tamanio; i++){
+			claves[i] = 2 * i;
+			elementos[i] = "v" + i;
+		}
+	}
+
+	@Benchmark
+	public AVLTree<Integer, String> insertRepetido(){
+		AVLTree<Integer, String> arbol = new AVLTree<>();
+		for(int i = 0; i < tamanio; i++)
+			arbol.insert(elementos[i], claves[i]);
+		return arbol;
+	}
+
+	@Benchmark
+	public AVLTree<Integer, String> fromSorted(){
+		return AVLTree.fromSorted(claves, elementos);
+	}
+}
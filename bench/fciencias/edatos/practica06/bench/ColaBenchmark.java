@@ -0,0 +1,102 @@
+package fciencias.edatos.practica06.bench;
+
+import fciencias.edatos.practica06.AVLTree;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.SplittableRandom;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+* El árbol como cola de prioridad de un planificador: cada operación saca el
+* evento más próximo y agenda uno nuevo más adelante. Compara findMin más
+* delete (dos bajadas) contra pollFirst, contra la vista NavigableMap y
+* contra TreeMap. Las claves son los tiempos y los elementos las mismas
+* claves, para que findMin sirva para saber qué borrar.
+* @author Pintor Muñoz Pedro Joshue.
+* @since Estructuras de Datos 2022-1.
+*/
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = {"-Xmx4g"})
+public class ColaBenchmark{
+
+	@Param({"1000", "100000"})
+	public int tamanio;
+
+	private AVLTree<Long, Long> arbol;
+
+	private NavigableMap<Long, Long> vista;
+
+	private TreeMap<Long, Long> mapa;
+
+	private SplittableRandom azar;
+
+	@Setup(Level.Iteration)
+	public void prepara(){
+		azar = new SplittableRandom(17);
+		arbol = new AVLTree<>();
+		AVLTree<Long, Long> otro = new AVLTree<>();
+		vista = otro.asNavigableMap();
+		mapa = new TreeMap<>();
+		for(int i = 0; i < tamanio; i++){
+			long tiempo = azar.nextLong(1L << 40);
+			arbol.insert(tiempo, tiempo);
+			vista.put(tiempo, tiempo);
+			mapa.put(tiempo, tiempo);
+		}
+	}
+
+	/** El siguiente evento queda entre el actual y un tamaño de cola más adelante. */
+	private long siguiente(long actual){
+		return actual + 1 + azar.nextLong(1L << 20);
+	}
+
+	@Benchmark
+	public long findMinDelete(){
+		Long minimo = arbol.findMin();
+		arbol.delete(minimo);
+		long nuevo = siguiente(minimo);
+		arbol.insert(nuevo, nuevo);
+		return nuevo;
+	}
+
+	@Benchmark
+	public long pollFirst(){
+		Map.Entry<Long, Long> minimo = arbol.pollFirst();
+		long nuevo = siguiente(minimo.getKey());
+		arbol.insert(nuevo, nuevo);
+		return nuevo;
+	}
+
+	@Benchmark
+	public long navigableMap(){
+		Map.Entry<Long, Long> minimo = vista.pollFirstEntry();
+		long nuevo = siguiente(minimo.getKey());
+		vista.put(nuevo, nuevo);
+		return nuevo;
+	}
+
+	@Benchmark
+	public long treeMap(){
+		Map.Entry<Long, Long> minimo = mapa.pollFirstEntry();
+		long nuevo = siguiente(minimo.getKey());
+		mapa.put(nuevo, nuevo);
+		return nuevo;
+	}
+}
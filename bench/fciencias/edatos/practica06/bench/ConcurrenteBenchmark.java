@@ -0,0 +1,142 @@
+package fciencias.edatos.practica06.bench;
+
+import fciencias.edatos.practica06.AVLTree;
+import fciencias.edatos.practica06.ConcurrentAVLTree;
+import fciencias.edatos.practica06.ShardedAVLTree;
+import fciencias.edatos.practica06.TDABinarySearchTree;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+* Escalamiento con hilos de ConcurrentAVLTree y ShardedAVLTree contra un
+* AVLTree protegido por un solo candado, con una mezcla de lecturas y
+* escrituras sobre un árbol compartido. El número de hilos se elige con la
+* opción -t de JMH, por ejemplo
+* ant bench -Dbench.args="ConcurrenteBenchmark -t 4".
+* Los resultados están en ops/us sumando todos los hilos, así que un árbol
+* que escala debe subir con -t mientras haya núcleos libres.
+* @author Pintor Muñoz Pedro Joshue.
+* @since Estructuras de Datos 2022-1.
+*/
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = {"-Xmx4g"})
+public class ConcurrenteBenchmark{
+
+	/** Implementación medida. */
+	public enum Tipo{
+		CONCURRENTE, FRAGMENTADO, CANDADO_GLOBAL
+	}
+
+	@Param({"CONCURRENTE", "FRAGMENTADO", "CANDADO_GLOBAL"})
+	public Tipo tipo;
+
+	@Param({"100000"})
+	public int tamanio;
+
+	/** Porcentaje de operaciones que son lecturas. */
+	@Param({"90", "50"})
+	public int lecturas;
+
+	private TDABinarySearchTree<Integer, Integer> arbol;
+
+	@Setup(Level.Trial)
+	public void prepara(){
+		switch(tipo){
+			case CONCURRENTE:
+				arbol = new ConcurrentAVLTree<>();
+				break;
+			case FRAGMENTADO:
+				arbol = new ShardedAVLTree<>();
+				break;
+			default:
+				arbol = new ArbolSincronizado();
+		}
+		// Llenamos la mitad de las claves para que insert y delete tengan efecto
+		for(int clave : OrdenClaves.ALEATORIO.inserciones(tamanio, 31))
+			if((clave & 2) == 0)
+				arbol.insert(clave, clave);
+	}
+
+	@Benchmark
+	public Integer mezcla(){
+		ThreadLocalRandom azar = ThreadLocalRandom.current();
+		int clave = azar.nextInt(2 * tamanio);
+		int operacion = azar.nextInt(100);
+		if(operacion < lecturas)
+			return arbol.retrieve(clave);
+		if((operacion & 1) == 0){
+			arbol.insert(clave, clave);
+			return clave;
+		}
+		return arbol.delete(clave);
+	}
+
+	/**
+	 * AVLTree con todas sus operaciones bajo el candado del objeto.
+	 */
+	private static class ArbolSincronizado implements TDABinarySearchTree<Integer, Integer>{
+
+		private final AVLTree<Integer, Integer> arbol = new AVLTree<>();
+
+		@Override
+		public synchronized Integer retrieve(Integer k){
+			return arbol.retrieve(k);
+		}
+
+		@Override
+		public synchronized void insert(Integer e, Integer k){
+			arbol.insert(e, k);
+		}
+
+		@Override
+		public synchronized Integer delete(Integer k){
+			return arbol.delete(k);
+		}
+
+		@Override
+		public synchronized Integer findMin(){
+			return arbol.findMin();
+		}
+
+		@Override
+		public synchronized Integer findMax(){
+			return arbol.findMax();
+		}
+
+		@Override
+		public synchronized void preorden(){
+			arbol.preorden();
+		}
+
+		@Override
+		public synchronized void inorden(){
+			arbol.inorden();
+		}
+
+		@Override
+		public synchronized void postorden(){
+			arbol.postorden();
+		}
+
+		@Override
+		public synchronized boolean isEmpty(){
+			return arbol.isEmpty();
+		}
+	}
+}
@@ -0,0 +1,253 @@
+package fciencias.edatos.practica06.bench;
+
+import fciencias.edatos.practica06.AVLTree;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.Locale;
+import java.util.NavigableMap;
+import java.util.Random;
+
+/**
+* Corre operaciones sobre un AVLTree sin menú ni pausas y reporta, por tipo
+* de operación, cuántas hubo, su throughput y los percentiles 50, 99 y 99.9
+* de su latencia. Cada operación se mide por separado con System.nanoTime,
+* que agrega unas decenas de nanosegundos a cada muestra.
+*
+* Con un guion lee una operación por línea de un archivo, o de la entrada
+* estándar si el archivo es «-», y la ejecuta en cuanto la lee:
+* insert k [elemento], retrieve k, delete k, min, max y range lo hi (recorre
+* las entradas con claves entre lo y hi). Las claves son enteros, las líneas
+* vacías y las que empiezan con # se ignoran.
+*
+* Sin guion genera la carga: llena el árbol con n claves pares y luego hace
+* las operaciones pedidas con claves entre 0 y 2n-1 en el orden de
+* OrdenClaves, eligiendo cada operación al azar según la mezcla (pesos
+* relativos). Antes de medir corre una décima parte de las operaciones para
+* que el JIT compile.
+* Uso: ConductorLote guion archivo|-
+*      ConductorLote [claves] [operaciones] [mezcla] [orden] [semilla]
+* con mezcla como insert=20,retrieve=60,delete=10,min=3,max=3,range=4.
+* @author Pintor Muñoz Pedro Joshue.
+* @since Estructuras de Datos 2022-1.
+*/
+public class ConductorLote{
+
+	/** Operaciones que entiende el conductor. */
+	enum Operacion{ INSERT, RETRIEVE, DELETE, MIN, MAX, RANGE }
+
+	/** Mezcla por omisión de la carga generada. */
+	private static final String MEZCLA = "insert=20,retrieve=60,delete=10,min=3,max=3,range=4";
+
+	/** En la carga generada, cuántas claves abarca un range. */
+	private static final int ANCHO_RANGO = 64;
+
+	/** Largo de la secuencia de claves generada, se recorre de forma cíclica. */
+	private static final int CONSULTAS = 1 << 20;
+
+	private final AVLTree<Integer, String> arbol = new AVLTree<>();
+
+	private final NavigableMap<Integer, String> vista = arbol.asNavigableMap();
+
+	private final Histograma[] latencias = new Histograma[Operacion.values().length];
+
+	/** Resultado acumulado de las operaciones, para que el JIT no las quite. */
+	private long sumidero;
+
+	ConductorLote(){
+		reinicia();
+	}
+
+	public static void main(String[] args) throws IOException{
+		ConductorLote conductor = new ConductorLote();
+		long inicio;
+		if(args.length > 0 && args[0].equals("guion")){
+			String archivo = args.length > 1 ? args[1] : "-";
+			inicio = System.nanoTime();
+			conductor.guion(archivo);
+		} else {
+			int claves = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+			int operaciones = args.length > 1 ? Integer.parseInt(args[1]) : 10_000_000;
+			double[] pesos = mezcla(args.length > 2 ? args[2] : MEZCLA);
+			OrdenClaves orden = args.length > 3 ? OrdenClaves.valueOf(args[3].toUpperCase(Locale.ROOT)) : OrdenClaves.ALEATORIO;
+			long semilla = args.length > 4 ? Long.parseLong(args[4]) : 42;
+
+			System.out.printf("%d claves, %d operaciones, %s, orden %s%n", claves, operaciones, args.length > 2 ? args[2] : MEZCLA, orden);
+			conductor.llena(orden, claves, semilla);
+			Random azar = new Random(semilla);
+			int[] secuencia = orden.consultas(2 * claves, CONSULTAS, semilla + 1);
+			conductor.generado(operaciones / 10, pesos, secuencia, azar);
+			conductor.reinicia();
+			inicio = System.nanoTime();
+			conductor.generado(operaciones, pesos, secuencia, azar);
+		}
+		conductor.reporta(System.nanoTime() - inicio);
+	}
+
+	/**
+	 * Lee el guion línea por línea y ejecuta cada operación.
+	 * @param archivo la ruta del guion, «-» para la entrada estándar.
+	 * @throws IOException si falla la lectura.
+	 */
+	void guion(String archivo) throws IOException{
+		BufferedReader lector = archivo.equals("-")
+			? new BufferedReader(new InputStreamReader(System.in, StandardCharsets.UTF_8))
+			: Files.newBufferedReader(Paths.get(archivo), StandardCharsets.UTF_8);
+		try(lector){
+			String linea;
+			int numero = 0;
+			while((linea = lector.readLine()) != null){
+				numero++;
+				linea = linea.trim();
+				if(linea.isEmpty() || linea.startsWith("#"))
+					continue;
+				String[] partes = linea.split("\\s+");
+				try{
+					Operacion operacion = Operacion.valueOf(partes[0].toUpperCase(Locale.ROOT));
+					int minimo = operacion == Operacion.MIN || operacion == Operacion.MAX ? 1 : operacion == Operacion.RANGE ? 3 : 2;
+					if(partes.length < minimo)
+						throw new IllegalArgumentException("Faltan argumentos");
+					int a = minimo > 1 ? Integer.parseInt(partes[1]) : 0;
+					int b = operacion == Operacion.RANGE ? Integer.parseInt(partes[2]) : a;
+					String elemento = operacion == Operacion.INSERT && partes.length > 2 ? partes[2] : "";
+					mide(operacion, a, b, elemento);
+				}catch(IllegalArgumentException iae){
+					throw new IllegalArgumentException("Línea " + numero + " no válida: " + linea, iae);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Llena el árbol con las claves pares 0, 2, ..., 2n-2.
+	 * @param orden el orden de inserción.
+	 * @param n el número de claves.
+	 * @param semilla la semilla del orden.
+	 */
+	void llena(OrdenClaves orden, int n, long semilla){
+		for(int clave : orden.inserciones(n, semilla))
+			arbol.insert("", clave);
+	}
+
+	/**
+	 * Corre operaciones generadas.
+	 * @param operaciones cuántas.
+	 * @param pesos la mezcla acumulada, ver mezcla.
+	 * @param secuencia las claves a usar, de forma cíclica.
+	 * @param azar el generador que elige las operaciones.
+	 */
+	void generado(int operaciones, double[] pesos, int[] secuencia, Random azar){
+		Operacion[] tipos = Operacion.values();
+		for(int i = 0; i < operaciones; i++){
+			double u = azar.nextDouble();
+			int tipo = 0;
+			while(tipo < tipos.length - 1 && u >= pesos[tipo])
+				tipo++;
+			int clave = secuencia[i & (CONSULTAS - 1)];
+			mide(tipos[tipo], clave, clave + ANCHO_RANGO - 1, "");
+		}
+	}
+
+	/**
+	 * Ejecuta una operación y registra su latencia.
+	 * @param operacion la operación.
+	 * @param a la clave, o el inicio del rango.
+	 * @param b el fin del rango, incluido.
+	 * @param elemento el elemento de insert.
+	 */
+	private void mide(Operacion operacion, int a, int b, String elemento){
+		long inicio = System.nanoTime();
+		long resultado;
+		switch(operacion){
+			case INSERT:
+				arbol.insert(elemento, a);
+				resultado = 1;
+				break;
+			case RETRIEVE:
+				resultado = arbol.retrieve(a) == null ? 0 : 1;
+				break;
+			case DELETE:
+				resultado = arbol.delete(a) == null ? 0 : 1;
+				break;
+			case MIN:
+				resultado = arbol.findMin() == null ? 0 : 1;
+				break;
+			case MAX:
+				resultado = arbol.findMax() == null ? 0 : 1;
+				break;
+			default:
+				resultado = 0;
+				if(a <= b)
+					for(String valor : vista.subMap(a, true, b, true).values())
+						resultado++;
+		}
+		latencias[operacion.ordinal()].registra(System.nanoTime() - inicio);
+		sumidero += resultado;
+	}
+
+	private void reinicia(){
+		for(int i = 0; i < latencias.length; i++)
+			latencias[i] = new Histograma();
+	}
+
+	/**
+	 * Imprime la tabla de latencias y el throughput.
+	 * @param nanos el tiempo total de la corrida.
+	 */
+	private void reporta(long nanos){
+		System.out.printf("%-9s %11s %12s %9s %9s %9s %10s%n", "operacion", "cuenta", "ops/s", "p50 ns", "p99 ns", "p999 ns", "max ns");
+		Histograma todas = new Histograma();
+		for(Operacion operacion : Operacion.values()){
+			Histograma h = latencias[operacion.ordinal()];
+			if(h.total() > 0)
+				fila(operacion.name().toLowerCase(Locale.ROOT), h);
+			todas.agrega(h);
+		}
+		fila("todas", todas);
+		System.out.printf("%d operaciones en %.2f s: %.0f ops/s de principio a fin, %d claves al final (%d)%n",
+			todas.total(), nanos / 1e9, todas.total() * 1e9 / nanos, arbol.size(), sumidero);
+	}
+
+	/**
+	 * Imprime una fila de la tabla. El throughput de cada tipo es su cuenta
+	 * entre el tiempo que pasó dentro de sus operaciones.
+	 */
+	private static void fila(String nombre, Histograma h){
+		System.out.printf("%-9s %11d %12.0f %9d %9d %9d %10d%n", nombre, h.total(), h.total() * 1e9 / Math.max(1, h.suma()),
+			h.percentil(0.5), h.percentil(0.99), h.percentil(0.999), h.maximo());
+	}
+
+	/**
+	 * Convierte una mezcla como insert=20,retrieve=60 a probabilidades
+	 * acumuladas en el orden de Operacion.
+	 * @param texto la mezcla, los pesos son relativos.
+	 * @return las probabilidades acumuladas.
+	 */
+	static double[] mezcla(String texto){
+		Operacion[] tipos = Operacion.values();
+		double[] pesos = new double[tipos.length];
+		double suma = 0;
+		for(String parte : texto.split(",")){
+			String[] par = parte.trim().split("=");
+			if(par.length != 2)
+				throw new IllegalArgumentException("Mezcla no válida: " + texto);
+			double peso = Double.parseDouble(par[1]);
+			if(peso < 0)
+				throw new IllegalArgumentException("Peso negativo en la mezcla: " + parte);
+			pesos[Operacion.valueOf(par[0].trim().toUpperCase(Locale.ROOT)).ordinal()] = peso;
+			suma += peso;
+		}
+		if(suma <= 0)
+			throw new IllegalArgumentException("La mezcla no tiene operaciones: " + texto);
+		// Acumulamos los pesos crudos para que el último llegue a 1 exacto
+		double acumulado = 0;
+		for(int i = 0; i < pesos.length; i++){
+			acumulado += pesos[i];
+			pesos[i] = acumulado / suma;
+		}
+		return pesos;
+	}
+}
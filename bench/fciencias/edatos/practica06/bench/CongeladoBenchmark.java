@@ -0,0 +1,108 @@
+package fciencias.edatos.practica06.bench;
+
+import fciencias.edatos.practica06.AVLTree;
+import fciencias.edatos.practica06.FrozenIndex;
+import fciencias.edatos.practica06.FrozenIntIndex;
+import fciencias.edatos.practica06.IntAVLTree;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+* Compara las búsquedas en los árboles enlazados contra sus índices
+* congelados con freeze(), con claves genéricas y con claves int, y mide
+* cuánto cuesta congelar.
+* @author Pintor Muñoz Pedro Joshue.
+* @since Estructuras de Datos 2022-1.
+*/
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = {"-Xmx4g"})
+public class CongeladoBenchmark{
+
+	/** Largo de la secuencia de consultas, se recorre de forma cíclica. */
+	private static final int CONSULTAS = 1 << 16;
+
+	@Param({"ALEATORIO", "ZIPF"})
+	public OrdenClaves orden;
+
+	@Param({"1000", "100000", "1000000"})
+	public int tamanio;
+
+	private AVLTree<Integer, String> arbol;
+
+	private FrozenIndex<Integer, String> congelado;
+
+	private IntAVLTree<String> intArbol;
+
+	private FrozenIntIndex<String> intCongelado;
+
+	private int[] consultas;
+
+	private int siguiente;
+
+	@Setup(Level.Trial)
+	public void prepara(){
+		consultas = orden.consultas(tamanio, CONSULTAS, 23);
+		arbol = new AVLTree<>();
+		intArbol = new IntAVLTree<>();
+		for(int clave : orden.inserciones(tamanio, 17)){
+			arbol.insert("v", clave);
+			intArbol.insertInt("v", clave);
+		}
+		congelado = arbol.freeze();
+		intCongelado = intArbol.freeze();
+	}
+
+	private int siguienteIndice(){
+		int indice = consultas[siguiente];
+		siguiente = (siguiente + 1) & (CONSULTAS - 1);
+		return indice;
+	}
+
+	@Benchmark
+	public String retrieveArbol(){
+		return arbol.retrieve(2 * siguienteIndice());
+	}
+
+	@Benchmark
+	public String retrieveCongelado(){
+		return congelado.retrieve(2 * siguienteIndice());
+	}
+
+	@Benchmark
+	public String retrieveIntArbol(){
+		return intArbol.retrieveInt(2 * siguienteIndice());
+	}
+
+	@Benchmark
+	public String retrieveIntCongelado(){
+		return intCongelado.retrieve(2 * siguienteIndice());
+	}
+
+	@Benchmark
+	public String floorIntCongelado(){
+		// Las claves impares no están, floor regresa la anterior
+		return intCongelado.floor(2 * siguienteIndice() + 1);
+	}
+
+	@Benchmark
+	@BenchmarkMode(Mode.AverageTime)
+	@OutputTimeUnit(TimeUnit.MILLISECONDS)
+	public FrozenIndex<Integer, String> freeze(){
+		return arbol.freeze();
+	}
+}
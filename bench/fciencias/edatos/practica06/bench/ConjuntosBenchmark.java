@@ -0,0 +1,92 @@
+package fciencias.edatos.practica06.bench;
+
+import fciencias.edatos.practica06.AVLTree;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+* Unión de dos árboles con union (basada en une y parte, en paralelo)
+* contra recorrer el menor e insertar cada clave que falte en el mayor.
+* También mide intersection y difference. Los árboles se reconstruyen antes
+* de cada invocación porque las operaciones consumen al segundo árbol.
+* @author Pintor Muñoz Pedro Joshue.
+* @since Estructuras de Datos 2022-1.
+*/
+@State(Scope.Thread)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(value = 1, jvmArgsAppend = {"-Xmx4g"})
+public class ConjuntosBenchmark{
+
+	@Param({"1000000"})
+	public int tamanio;
+
+	/** Tamaño del segundo árbol. */
+	@Param({"1000", "100000", "1000000"})
+	public int otro;
+
+	private Integer[] clavesA;
+
+	private Integer[] clavesB;
+
+	private AVLTree<Integer, Integer> a;
+
+	private AVLTree<Integer, Integer> b;
+
+	@Setup(Level.Trial)
+	public void claves(){
+		// a tiene los pares, b claves repartidas en el mismo rango, la mitad pares
+		clavesA = new Integer[tamanio];
+		for(int i = 0; i < tamanio; i++)
+			clavesA[i] = 2 * i;
+		clavesB = new Integer[otro];
+		long paso = 2L * tamanio / otro;
+		for(int j = 0; j < otro; j++)
+			clavesB[j] = (int) (j * paso) + (j & 1);
+	}
+
+	@Setup(Level.Invocation)
+	public void arboles(){
+		a = AVLTree.fromSorted(clavesA, clavesA);
+		b = AVLTree.fromSorted(clavesB, clavesB);
+	}
+
+	@Benchmark
+	public AVLTree<Integer, Integer> union(){
+		a.union(b);
+		return a;
+	}
+
+	@Benchmark
+	public AVLTree<Integer, Integer> unionInsertando(){
+		for(Integer clave : b)
+			if(a.retrieve(clave) == null)
+				a.insert(clave, clave);
+		return a;
+	}
+
+	@Benchmark
+	public AVLTree<Integer, Integer> intersection(){
+		a.intersection(b);
+		return a;
+	}
+
+	@Benchmark
+	public AVLTree<Integer, Integer> difference(){
+		a.difference(b);
+		return a;
+	}
+}
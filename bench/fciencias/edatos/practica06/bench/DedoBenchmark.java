@@ -0,0 +1,74 @@
+package fciencias.edatos.practica06.bench;
+
+import fciencias.edatos.practica06.AVLTree;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+* Compara retrieve bajando desde la raiz contra la búsqueda con dedo y el
+* caché frontal, con consultas en orden, agrupadas, uniformes y de Zipf.
+* @author Pintor Muñoz Pedro Joshue.
+* @since Estructuras de Datos 2022-1.
+*/
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = {"-Xmx4g"})
+public class DedoBenchmark{
+
+	/** Cómo busca el árbol. */
+	public enum Busqueda{ RAIZ, DEDO, CACHE, AMBOS }
+
+	/** Largo de la secuencia de consultas, se recorre de forma cíclica. */
+	private static final int CONSULTAS = 1 << 16;
+
+	/** Casillas del caché frontal. */
+	private static final int CASILLAS = 1024;
+
+	@Param({"SECUENCIAL", "AGRUPADO", "ALEATORIO", "ZIPF"})
+	public OrdenClaves orden;
+
+	@Param({"RAIZ", "DEDO", "CACHE", "AMBOS"})
+	public Busqueda busqueda;
+
+	@Param({"1000000"})
+	public int tamanio;
+
+	private AVLTree<Integer, String> arbol;
+
+	private int[] consultas;
+
+	private int siguiente;
+
+	@Setup(Level.Trial)
+	public void prepara(){
+		consultas = orden.consultas(tamanio, CONSULTAS, 23);
+		arbol = new AVLTree<>();
+		for(int clave : OrdenClaves.ALEATORIO.inserciones(tamanio, 17))
+			arbol.insert("v", clave);
+		if(busqueda == Busqueda.DEDO || busqueda == Busqueda.AMBOS)
+			arbol.enableFingerSearch();
+		if(busqueda == Busqueda.CACHE || busqueda == Busqueda.AMBOS)
+			arbol.enableFrontCache(CASILLAS);
+	}
+
+	@Benchmark
+	public String retrieve(){
+		int indice = consultas[siguiente];
+		siguiente = (siguiente + 1) & (CONSULTAS - 1);
+		return arbol.retrieve(2 * indice);
+	}
+}
@@ -0,0 +1,93 @@
+package fciencias.edatos.practica06.bench;
+
+import fciencias.edatos.practica06.AVLTree;
+import java.util.Random;
+
+/**
+* Benchmark de regresión para el costo por operación del árbol AVL.
+* Mide insert, retrieve y delete para tamaños de 10^3 a 10^7 claves y
+* reporta el costo por operación dividido entre log2(n), junto con cuánto
+* creció el costo de insert respecto a la década anterior. Con alturas en O(1)
+* por nodo ese crecimiento se queda muy por debajo de 10x por década (solo sube
+* por efectos de caché al pasar de L1/L2 a memoria principal); un costo lineal
+* por operación lo lleva a 10x o más y se reporta como regresión.
+* Uso: EscalaAltura [exponenteMaximo]
+* @author Pintor Muñoz Pedro Joshue.
+* @since Estructuras de Datos 2022-1.
+*/
+public class EscalaAltura{
+
+	/** Número de operaciones medidas para retrieve y delete. */
+	private static final int MUESTRA = 100_000;
+
+	/** Crecimiento del costo de insert por década a partir del cual se reporta regresión. */
+	private static final double CRECIMIENTO_MAXIMO = 8.0;
+
+	public static void main(String[] args){
+		int exponenteMaximo = args.length > 0 ? Integer.parseInt(args[0]) : 7;
+		Random azar = new Random(42);
+		double insertAnterior = -1;
+		boolean regresion = false;
+
+		// Calentamiento para que el JIT compile las rutas de inserción y búsqueda
+		for(int r = 0; r < 5; r++){
+			AVLTree<Integer, String> calentamiento = new AVLTree<>();
+			for(int i = 0; i < 200_000; i++)
+				calentamiento.insert("", azar.nextInt());
+			for(int i = 0; i < 200_000; i++)
+				calentamiento.retrieve(azar.nextInt());
+		}
+
+		System.out.printf("%10s %14s %14s %14s %16s %10s%n", "n", "insert ns/op", "retrieve ns/op", "delete ns/op", "insert/log2(n)", "vs n/10");
+
+		for(int e = 3; e <= exponenteMaximo; e++){
+			int n = (int) Math.pow(10, e);
+			int[] claves = new int[n];
+			for(int i = 0; i < n; i++)
+				claves[i] = azar.nextInt();
+
+			// Para tamaños pequeños repetimos la construcción y nos quedamos con la mejor
+			int repeticiones = Math.max(1, 1_000_000 / n);
+			AVLTree<Integer, String> tree = null;
+			double insertNs = Double.MAX_VALUE;
+			long inicio;
+			for(int r = 0; r < repeticiones; r++){
+				tree = new AVLTree<>();
+				inicio = System.nanoTime();
+				for(int i = 0; i < n; i++)
+					tree.insert("", claves[i]);
+				insertNs = Math.min(insertNs, (System.nanoTime() - inicio) / (double) n);
+			}
+
+			int muestra = Math.min(MUESTRA, n);
+			long basura = 0;
+			inicio = System.nanoTime();
+			for(int i = 0; i < muestra; i++)
+				if(tree.retrieve(claves[azar.nextInt(n)]) != null)
+					basura++;
+			double retrieveNs = (System.nanoTime() - inicio) / (double) muestra;
+
+			// Eliminamos la mitad de la muestra para no vaciar el árbol
+			int eliminaciones = muestra / 2;
+			inicio = System.nanoTime();
+			for(int i = 0; i < eliminaciones; i++)
+				tree.delete(claves[i]);
+			double deleteNs = (System.nanoTime() - inicio) / (double) eliminaciones;
+
+			double log = Math.log(n) / Math.log(2);
+			double crecimiento = insertAnterior < 0 ? 1.0 : insertNs / insertAnterior;
+			insertAnterior = insertNs;
+			if(crecimiento > CRECIMIENTO_MAXIMO)
+				regresion = true;
+
+			System.out.printf("%10d %14.1f %14.1f %14.1f %16.2f %9.2fx%n", n, insertNs, retrieveNs, deleteNs, insertNs / log, crecimiento);
+			if(basura < 0)
+				System.out.println(basura);
+		}
+
+		if(regresion){
+			System.out.println("REGRESION: el costo por operación ya no es logarítmico.");
+			System.exit(1);
+		}
+	}
+}
@@ -0,0 +1,136 @@
+package fciencias.edatos.practica06.bench;
+
+import fciencias.edatos.practica06.ConcurrentAVLTree;
+import java.util.Arrays;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+* Prueba de estrés de ConcurrentAVLTree. Cada escritor es dueño de las claves
+* congruentes con su número módulo el número de escritores, las inserta y
+* elimina al azar y lleva su propio modelo. Al mismo tiempo los lectores
+* buscan cualquier clave y comprueban que el elemento encontrado corresponde a
+* esa clave. Al final se compara el árbol contra los modelos y se revisa que
+* la altura siga siendo logarítmica.
+* Uso: EstresConcurrente [escritores] [lectores] [operaciones por escritor] [claves]
+* @author Pintor Muñoz Pedro Joshue.
+* @since Estructuras de Datos 2022-1.
+*/
+public class EstresConcurrente{
+
+	public static void main(String[] args) throws InterruptedException{
+		int escritores = args.length > 0 ? Integer.parseInt(args[0]) : 4;
+		int lectores = args.length > 1 ? Integer.parseInt(args[1]) : 4;
+		int operaciones = args.length > 2 ? Integer.parseInt(args[2]) : 1_000_000;
+		int claves = args.length > 3 ? Integer.parseInt(args[3]) : 10_000;
+
+		ConcurrentAVLTree<Integer, Long> arbol = new ConcurrentAVLTree<>();
+		// modelo[k] es el último elemento escrito en k, -1 si no está
+		long[] modelo = new long[claves];
+		Arrays.fill(modelo, -1);
+
+		AtomicBoolean corriendo = new AtomicBoolean(true);
+		AtomicLong errores = new AtomicLong();
+		AtomicLong lecturas = new AtomicLong();
+		CountDownLatch salida = new CountDownLatch(1);
+		Thread[] hilos = new Thread[escritores + lectores];
+
+		for(int h = 0; h < escritores; h++){
+			final int id = h;
+			hilos[h] = new Thread(() -> {
+				ThreadLocalRandom azar = ThreadLocalRandom.current();
+				esperar(salida);
+				for(int i = 0; i < operaciones; i++){
+					int k = azar.nextInt(claves / escritores) * escritores + id;
+					if(k >= claves)
+						continue;
+					if(azar.nextBoolean()){
+						// El elemento codifica la clave para que los lectores lo validen
+						long elemento = ((long) i << 32) | k;
+						arbol.insert(elemento, k);
+						modelo[k] = elemento;
+					} else {
+						Long anterior = arbol.delete(k);
+						long esperado = modelo[k];
+						if(anterior == null ? esperado != -1 : anterior != esperado)
+							errores.incrementAndGet();
+						modelo[k] = -1;
+					}
+				}
+			});
+		}
+
+		for(int h = escritores; h < hilos.length; h++){
+			hilos[h] = new Thread(() -> {
+				ThreadLocalRandom azar = ThreadLocalRandom.current();
+				esperar(salida);
+				long cuenta = 0;
+				while(corriendo.get()){
+					int k = azar.nextInt(claves);
+					Long elemento = arbol.retrieve(k);
+					if(elemento != null && (int) (long) elemento != k)
+						errores.incrementAndGet();
+					Long minimo = arbol.findMin();
+					if(minimo != null && (int) (long) minimo < 0)
+						errores.incrementAndGet();
+					cuenta++;
+				}
+				lecturas.addAndGet(cuenta);
+			});
+		}
+
+		for(Thread hilo : hilos)
+			hilo.start();
+		long inicio = System.nanoTime();
+		salida.countDown();
+		for(int h = 0; h < escritores; h++)
+			hilos[h].join();
+		corriendo.set(false);
+		for(int h = escritores; h < hilos.length; h++)
+			hilos[h].join();
+		double segundos = (System.nanoTime() - inicio) / 1e9;
+
+		// El árbol quieto debe coincidir con los modelos
+		int presentes = 0;
+		int minimo = -1, maximo = -1;
+		for(int k = 0; k < claves; k++){
+			Long elemento = arbol.retrieve(k);
+			long esperado = modelo[k];
+			if(elemento == null ? esperado != -1 : elemento != esperado)
+				errores.incrementAndGet();
+			if(esperado != -1){
+				presentes++;
+				if(minimo < 0)
+					minimo = k;
+				maximo = k;
+			}
+		}
+		if(arbol.size() != presentes)
+			errores.incrementAndGet();
+		if(presentes > 0 && ((int) (long) arbol.findMin() != minimo || (int) (long) arbol.findMax() != maximo))
+			errores.incrementAndGet();
+
+		// Los nodos de enrutamiento cuentan en la altura, por eso la cota usa todas las claves
+		double cota = 1.45 * Math.log(claves + 2) / Math.log(2);
+		int altura = arbol.altura();
+
+		System.out.printf("%d escritores, %d lectores: %.0f escrituras/s, %.0f lecturas/s%n",
+			escritores, lectores, escritores * (double) operaciones / segundos, lecturas.get() / segundos);
+		System.out.printf("%d elementos, altura %d (cota %.1f), %d errores%n", presentes, altura, cota, errores.get());
+
+		if(errores.get() != 0 || altura > cota){
+			System.out.println("FALLA: el árbol concurrente no es consistente.");
+			System.exit(1);
+		}
+	}
+
+	private static void esperar(CountDownLatch salida){
+		try{
+			salida.await();
+		}catch(InterruptedException e){
+			Thread.currentThread().interrupt();
+		}
+	}
+}
@@ -0,0 +1,62 @@
+package fciencias.edatos.practica06.bench;
+
+import fciencias.edatos.practica06.AVLTree;
+import fciencias.edatos.practica06.CompactAVLTree;
+import fciencias.edatos.practica06.IntAVLTree;
+import fciencias.edatos.practica06.TDABinarySearchTree;
+
+/**
+* Implementaciones de TDABinarySearchTree que comparan los benchmarks.
+* @author Pintor Muñoz Pedro Joshue.
+* @since Estructuras de Datos 2022-1.
+*/
+public enum Estructura{
+
+	/** El árbol AVL de la práctica. */
+	AVL{
+		@Override
+		public TDABinarySearchTree<Integer, String> crea(){
+			return new AVLTree<>();
+		}
+	},
+
+	/** El árbol AVL de la práctica reciclando los nodos que quita. */
+	RECICLADO{
+		@Override
+		public TDABinarySearchTree<Integer, String> crea(){
+			AVLTree<Integer, String> arbol = new AVLTree<>();
+			arbol.enableNodeRecycling();
+			return arbol;
+		}
+	},
+
+	/** El árbol AVL con claves int en arreglos paralelos. */
+	INT_AVL{
+		@Override
+		public TDABinarySearchTree<Integer, String> crea(){
+			return new IntAVLTree<>();
+		}
+	},
+
+	/** El árbol AVL con nodos sin padre ni tamaño. */
+	COMPACTO{
+		@Override
+		public TDABinarySearchTree<Integer, String> crea(){
+			return new CompactAVLTree<>();
+		}
+	},
+
+	/** java.util.TreeMap como línea base. */
+	TREEMAP{
+		@Override
+		public TDABinarySearchTree<Integer, String> crea(){
+			return new ArbolTreeMap<>();
+		}
+	};
+
+	/**
+	 * Crea una estructura vacía.
+	 * @return la estructura nueva.
+	 */
+	public abstract TDABinarySearchTree<Integer, String> crea();
+}
@@ -0,0 +1,102 @@
+package fciencias.edatos.practica06.bench;
+
+import fciencias.edatos.practica06.AVLTree;
+import java.io.BufferedOutputStream;
+import java.io.BufferedWriter;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+* Vaciado completo del árbol a un archivo: un println por nodo a un
+* PrintStream como System.out (búfer de 128 bytes y flush por línea), contra
+* inorden() que ahora imprime por lotes, y contra export a un Writer y a un
+* FileChannel.
+* @author Pintor Muñoz Pedro Joshue.
+* @since Estructuras de Datos 2022-1.
+*/
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = {"-Xmx4g"})
+public class ExportaBenchmark{
+
+	@Param({"1000000"})
+	public int tamanio;
+
+	private AVLTree<Integer, Integer> arbol;
+
+	private Path archivo;
+
+	@Setup(Level.Trial)
+	public void prepara() throws IOException{
+		arbol = new AVLTree<>();
+		for(int clave : OrdenClaves.ALEATORIO.inserciones(tamanio, 17))
+			arbol.insert(clave, clave);
+		archivo = Files.createTempFile("exporta", ".tsv");
+	}
+
+	@TearDown(Level.Trial)
+	public void termina() throws IOException{
+		Files.deleteIfExists(archivo);
+	}
+
+	/** Un PrintStream armado como System.out. */
+	private PrintStream comoSalidaEstandar() throws IOException{
+		return new PrintStream(new BufferedOutputStream(new FileOutputStream(archivo.toFile()), 128), true);
+	}
+
+	@Benchmark
+	public void printlnPorNodo() throws IOException{
+		try(PrintStream salida = comoSalidaEstandar()){
+			for(Integer elemento : arbol)
+				salida.println(elemento);
+		}
+	}
+
+	@Benchmark
+	public void inorden() throws IOException{
+		PrintStream original = System.out;
+		try(PrintStream salida = comoSalidaEstandar()){
+			System.setOut(salida);
+			arbol.inorden();
+		}finally{
+			System.setOut(original);
+		}
+	}
+
+	@Benchmark
+	public long exportWriter() throws IOException{
+		try(BufferedWriter salida = Files.newBufferedWriter(archivo, StandardCharsets.UTF_8)){
+			return arbol.export(salida);
+		}
+	}
+
+	@Benchmark
+	public long exportCanal() throws IOException{
+		try(FileChannel canal = FileChannel.open(archivo, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)){
+			return arbol.export(canal);
+		}
+	}
+}
@@ -0,0 +1,102 @@
+package fciencias.edatos.practica06.bench;
+
+/**
+* Histograma de latencias en nanosegundos con cubetas log-lineales: cada
+* potencia de 2 se parte en 32 cubetas iguales, así un percentil se reporta
+* con un error relativo menor a 1/32 y el histograma ocupa lo mismo sin
+* importar cuántas muestras tenga. Los valores menores a 64 son exactos.
+* @author Pintor Muñoz Pedro Joshue.
+* @since Estructuras de Datos 2022-1.
+*/
+public final class Histograma{
+
+	/** Bits de cubetas por potencia de 2. */
+	private static final int BITS = 5;
+
+	private static final int SUBCUBETAS = 1 << BITS;
+
+	private final long[] cuentas = new long[(64 - BITS) * SUBCUBETAS];
+
+	private long total;
+
+	private long suma;
+
+	private long maximo;
+
+	/**
+	 * Registra una muestra.
+	 * @param nanos la latencia, los valores negativos cuentan como 0.
+	 */
+	public void registra(long nanos){
+		if(nanos < 0)
+			nanos = 0;
+		cuentas[cubeta(nanos)]++;
+		total++;
+		suma += nanos;
+		if(nanos > maximo)
+			maximo = nanos;
+	}
+
+	/**
+	 * Suma las muestras de otro histograma a este.
+	 * @param otro el otro histograma.
+	 */
+	public void agrega(Histograma otro){
+		for(int i = 0; i < cuentas.length; i++)
+			cuentas[i] += otro.cuentas[i];
+		total += otro.total;
+		suma += otro.suma;
+		maximo = Math.max(maximo, otro.maximo);
+	}
+
+	/** Regresa el número de muestras. */
+	public long total(){
+		return total;
+	}
+
+	/** Regresa la suma de todas las muestras en nanosegundos. */
+	public long suma(){
+		return suma;
+	}
+
+	/** Regresa la muestra más grande, 0 si no hay. */
+	public long maximo(){
+		return maximo;
+	}
+
+	/**
+	 * Regresa el percentil p: el menor valor tal que una fracción p de las
+	 * muestras es menor o igual. Es el límite superior de la cubeta, sin
+	 * pasarse del máximo.
+	 * @param p la fracción, entre 0 y 1.
+	 * @return el percentil en nanosegundos, 0 si no hay muestras.
+	 */
+	public long percentil(double p){
+		if(total == 0)
+			return 0;
+		long objetivo = Math.max(1, (long) Math.ceil(p * total));
+		long acumulado = 0;
+		for(int i = 0; i < cuentas.length; i++){
+			acumulado += cuentas[i];
+			if(acumulado >= objetivo)
+				return Math.min(limiteSuperior(i), maximo);
+		}
+		return maximo;
+	}
+
+	private static int cubeta(long valor){
+		if(valor < SUBCUBETAS)
+			return (int) valor;
+		int exponente = 63 - Long.numberOfLeadingZeros(valor);
+		return (exponente - BITS + 1) * SUBCUBETAS + (int) ((valor >>> (exponente - BITS)) & (SUBCUBETAS - 1));
+	}
+
+	private static long limiteSuperior(int cubeta){
+		int fila = cubeta / SUBCUBETAS;
+		if(fila == 0)
+			return cubeta;
+		int exponente = fila + BITS - 1;
+		long ancho = 1L << (exponente - BITS);
+		return (1L << exponente) + (cubeta % SUBCUBETAS + 1) * ancho - 1;
+	}
+}
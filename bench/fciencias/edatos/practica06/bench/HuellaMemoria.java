@@ -0,0 +1,93 @@
+package fciencias.edatos.practica06.bench;
+
+import fciencias.edatos.practica06.CodecFijo;
+import fciencias.edatos.practica06.OffHeapAVLTree;
+import java.util.Random;
+import java.util.function.IntFunction;
+
+/**
+* Reporta los bytes de heap por entrada de cada estructura.
+* Construye la estructura con n claves aleatorias y un mismo elemento
+* compartido, y mide el heap ocupado antes y después con GC forzado.
+* Uso: HuellaMemoria [n ...]
+* @author Pintor Muñoz Pedro Joshue.
+* @since Estructuras de Datos 2022-1.
+*/
+public class HuellaMemoria{
+
+	/** Referencia para que el árbol medido no se recolecte antes de medir. */
+	private static Object retenido;
+
+	public static void main(String[] args){
+		int[] tamanios = {100_000, 1_000_000, 5_000_000};
+		if(args.length > 0){
+			tamanios = new int[args.length];
+			for(int i = 0; i < args.length; i++)
+				tamanios[i] = Integer.parseInt(args[i]);
+		}
+
+		System.out.printf("%-10s %10s %14s%n", "estructura", "n", "bytes/entrada");
+		for(int n : tamanios){
+			for(Estructura estructura : Estructura.values()){
+				double bytes = mide(n, estructura);
+				System.out.printf("%-10s %10d %14.1f%n", estructura, n, bytes);
+			}
+
+			// Los nodos fuera del heap no cuentan, se reportan aparte
+			OffHeapAVLTree<String> fuera = new OffHeapAVLTree<>(CodecFijo.cadena(15));
+			double bytes = mide(n, i -> {
+				Random azar = new Random(n);
+				for(int j = 0; j < i; j++)
+					fuera.insertLong("", azar.nextInt());
+				return fuera;
+			});
+			System.out.printf("%-10s %10d %14.1f   (%.1f bytes/entrada fuera del heap)%n", "OFF_HEAP", n, bytes, fuera.bytesReservados() / (double) n);
+			fuera.close();
+		}
+	}
+
+	/**
+	 * Mide los bytes por entrada de una estructura con n claves.
+	 * @param n el número de claves.
+	 * @param estructura la estructura a medir.
+	 * @return los bytes de heap por entrada.
+	 */
+	public static double mide(int n, Estructura estructura){
+		return mide(n, i -> {
+			var arbol = estructura.crea();
+			Random azar = new Random(n);
+			for(int j = 0; j < i; j++)
+				arbol.insert("", azar.nextInt());
+			return arbol;
+		});
+	}
+
+	/**
+	 * Mide los bytes por entrada de lo que construya el constructor dado.
+	 * @param n el número de entradas.
+	 * @param constructor construye la estructura con n entradas.
+	 * @return los bytes de heap por entrada.
+	 */
+	public static double mide(int n, IntFunction<Object> constructor){
+		long antes = ocupado();
+		retenido = constructor.apply(n);
+		long despues = ocupado();
+		retenido = null;
+		return (despues - antes) / (double) n;
+	}
+
+	/**
+	 * Regresa los bytes de heap ocupados después de forzar el GC.
+	 * @return los bytes ocupados.
+	 */
+	private static long ocupado(){
+		Runtime rt = Runtime.getRuntime();
+		for(int i = 0; i < 4; i++){
+			System.gc();
+			try{
+				Thread.sleep(50);
+			}catch(InterruptedException ie){}
+		}
+		return rt.totalMemory() - rt.freeMemory();
+	}
+}
@@ -0,0 +1,59 @@
+package fciencias.edatos.practica06.bench;
+
+import fciencias.edatos.practica06.TDABinarySearchTree;
+import org.openjdk.jol.info.ClassLayout;
+import org.openjdk.jol.info.GraphLayout;
+
+/**
+* Reporta con JOL el acomodo en memoria de los nodos y los bytes por entrada
+* de cada estructura. A diferencia de HuellaMemoria no depende del GC: JOL
+* recorre el grafo de objetos alcanzable desde el árbol y suma el tamaño de
+* cada objeto. Las claves son Integer distintos y el elemento es una misma
+* cadena compartida, así que las claves cuestan lo mismo en todas.
+* Uso: HuellaNodos [n ...]
+* @author Pintor Muñoz Pedro Joshue.
+* @since Estructuras de Datos 2022-1.
+*/
+public class HuellaNodos{
+
+	/** Clases de nodo que se describen campo por campo. */
+	private static final String[] NODOS = {
+		"fciencias.edatos.practica06.AVLTree$AVLNode",
+		"fciencias.edatos.practica06.CompactAVLTree$Nodo",
+		"java.util.TreeMap$Entry"
+	};
+
+	public static void main(String[] args) throws ClassNotFoundException{
+		int[] tamanios = {10_000, 100_000, 1_000_000};
+		if(args.length > 0){
+			tamanios = new int[args.length];
+			for(int i = 0; i < args.length; i++)
+				tamanios[i] = Integer.parseInt(args[i]);
+		}
+
+		for(String nodo : NODOS)
+			System.out.println(ClassLayout.parseClass(Class.forName(nodo)).toPrintable());
+
+		System.out.printf("%-10s %10s %14s %14s%n", "estructura", "n", "bytes/entrada", "sin claves");
+		for(int n : tamanios){
+			for(Estructura estructura : Estructura.values()){
+				TDABinarySearchTree<Integer, String> arbol = estructura.crea();
+				// Claves distintas y revueltas, multiplicar por un impar es una biyección
+				for(int i = 0; i < n; i++)
+					arbol.insert("", i * 0x9E3779B1);
+				GraphLayout grafo = GraphLayout.parseInstance(arbol);
+				double total = grafo.totalSize() / (double) n;
+				System.out.printf("%-10s %10d %14.1f %14.1f%n", estructura, n, total, total - bytesClaves(grafo) / (double) n);
+			}
+		}
+	}
+
+	/**
+	 * Regresa los bytes que ocupan las claves Integer en el grafo.
+	 * @param grafo el grafo del árbol.
+	 * @return los bytes de todos los Integer.
+	 */
+	private static long bytesClaves(GraphLayout grafo){
+		return grafo.getClassSizes().count(Integer.class);
+	}
+}
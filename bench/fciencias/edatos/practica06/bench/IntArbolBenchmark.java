@@ -0,0 +1,113 @@
+package fciencias.edatos.practica06.bench;
+
+import fciencias.edatos.practica06.AVLTree;
+import fciencias.edatos.practica06.IntAVLTree;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+* Compara AVLTree&lt;Integer, String&gt; contra IntAVLTree&lt;String&gt; usando
+* la interfaz primitiva de este último, sin boxing de claves.
+* @author Pintor Muñoz Pedro Joshue.
+* @since Estructuras de Datos 2022-1.
+*/
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = {"-Xmx4g"})
+public class IntArbolBenchmark{
+
+	/** Largo de la secuencia de consultas, se recorre de forma cíclica. */
+	private static final int CONSULTAS = 1 << 16;
+
+	@Param({"ALEATORIO", "ZIPF"})
+	public OrdenClaves orden;
+
+	@Param({"1000", "100000", "1000000"})
+	public int tamanio;
+
+	private AVLTree<Integer, String> generico;
+
+	private IntAVLTree<String> primitivo;
+
+	private int[] inserciones;
+
+	private int[] consultas;
+
+	private int siguiente;
+
+	@Setup(Level.Trial)
+	public void prepara(){
+		inserciones = orden.inserciones(tamanio, 17);
+		consultas = orden.consultas(tamanio, CONSULTAS, 23);
+		generico = new AVLTree<>();
+		primitivo = new IntAVLTree<>();
+		for(int clave : inserciones){
+			generico.insert("v", clave);
+			primitivo.insertInt("v", clave);
+		}
+	}
+
+	private int siguienteIndice(){
+		int indice = consultas[siguiente];
+		siguiente = (siguiente + 1) & (CONSULTAS - 1);
+		return indice;
+	}
+
+	@Benchmark
+	public String retrieveGenerico(){
+		return generico.retrieve(2 * siguienteIndice());
+	}
+
+	@Benchmark
+	public String retrievePrimitivo(){
+		return primitivo.retrieveInt(2 * siguienteIndice());
+	}
+
+	@Benchmark
+	public String insertDeleteGenerico(){
+		int clave = 2 * siguienteIndice() + 1;
+		generico.insert("x", clave);
+		return generico.delete(clave);
+	}
+
+	@Benchmark
+	public String insertDeletePrimitivo(){
+		int clave = 2 * siguienteIndice() + 1;
+		primitivo.insertInt("x", clave);
+		return primitivo.deleteInt(clave);
+	}
+
+	@Benchmark
+	@BenchmarkMode(Mode.AverageTime)
+	@OutputTimeUnit(TimeUnit.MILLISECONDS)
+	public AVLTree<Integer, String> insertGenerico(){
+		AVLTree<Integer, String> nuevo = new AVLTree<>();
+		for(int clave : inserciones)
+			nuevo.insert("v", clave);
+		return nuevo;
+	}
+
+	@Benchmark
+	@BenchmarkMode(Mode.AverageTime)
+	@OutputTimeUnit(TimeUnit.MILLISECONDS)
+	public IntAVLTree<String> insertPrimitivo(){
+		IntAVLTree<String> nuevo = new IntAVLTree<>(inserciones.length);
+		for(int clave : inserciones)
+			nuevo.insertInt("v", clave);
+		return nuevo;
+	}
+}
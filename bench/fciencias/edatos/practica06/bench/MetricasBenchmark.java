@@ -0,0 +1,76 @@
+package fciencias.edatos.practica06.bench;
+
+import fciencias.edatos.practica06.AVLTree;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+* Costo de las métricas de AVLTree: las mismas operaciones con las métricas
+* desactivadas y activadas. Cada valor del parámetro corre en su propio
+* fork, así que con las métricas desactivadas el comparador que se ve es
+* solo el del orden natural.
+* @author Pintor Muñoz Pedro Joshue.
+* @since Estructuras de Datos 2022-1.
+*/
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = {"-Xmx4g"})
+public class MetricasBenchmark{
+
+	/** Largo de la secuencia de consultas, se recorre de forma cíclica. */
+	private static final int CONSULTAS = 1 << 16;
+
+	@Param({"false", "true"})
+	public boolean metricas;
+
+	@Param({"100000"})
+	public int tamanio;
+
+	private AVLTree<Integer, String> arbol;
+
+	private int[] consultas;
+
+	private int siguiente;
+
+	@Setup(Level.Trial)
+	public void prepara(){
+		consultas = OrdenClaves.ALEATORIO.consultas(tamanio, CONSULTAS, 23);
+		arbol = new AVLTree<>();
+		if(metricas)
+			arbol.enableMetrics();
+		for(int clave : OrdenClaves.ALEATORIO.inserciones(tamanio, 17))
+			arbol.insert("v", clave);
+	}
+
+	private int siguienteIndice(){
+		int indice = consultas[siguiente];
+		siguiente = (siguiente + 1) & (CONSULTAS - 1);
+		return indice;
+	}
+
+	@Benchmark
+	public String retrieve(){
+		return arbol.retrieve(2 * siguienteIndice());
+	}
+
+	@Benchmark
+	public String insertDelete(){
+		int clave = 2 * siguienteIndice() + 1;
+		arbol.insert("x", clave);
+		return arbol.delete(clave);
+	}
+}
@@ -0,0 +1,96 @@
+package fciencias.edatos.practica06.bench;
+
+import fciencias.edatos.practica06.AVLTree;
+import fciencias.edatos.practica06.CodecFijo;
+import fciencias.edatos.practica06.OffHeapAVLTree;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+* Compara AVLTree&lt;Long, Long&gt; contra OffHeapAVLTree&lt;Long&gt;.
+* Con el profiler de GC de «ant bench» se ve que el árbol fuera del heap no
+* genera trabajo para el recolector aunque tenga decenas de millones de nodos.
+* @author Pintor Muñoz Pedro Joshue.
+* @since Estructuras de Datos 2022-1.
+*/
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = {"-Xmx8g"})
+public class OffHeapBenchmark{
+
+	/** Largo de la secuencia de consultas, se recorre de forma cíclica. */
+	private static final int CONSULTAS = 1 << 16;
+
+	@Param({"100000", "10000000"})
+	public int tamanio;
+
+	private AVLTree<Long, Long> enHeap;
+
+	private OffHeapAVLTree<Long> fueraDelHeap;
+
+	private int[] consultas;
+
+	private int siguiente;
+
+	@Setup(Level.Trial)
+	public void prepara(){
+		int[] inserciones = OrdenClaves.ALEATORIO.inserciones(tamanio, 17);
+		consultas = OrdenClaves.ALEATORIO.consultas(tamanio, CONSULTAS, 23);
+		enHeap = new AVLTree<>();
+		fueraDelHeap = new OffHeapAVLTree<>(CodecFijo.LONG);
+		for(int clave : inserciones){
+			enHeap.insert((long) clave, (long) clave);
+			fueraDelHeap.insertLong((long) clave, clave);
+		}
+	}
+
+	@TearDown(Level.Trial)
+	public void termina(){
+		fueraDelHeap.close();
+	}
+
+	private long siguienteClave(){
+		long clave = 2L * consultas[siguiente];
+		siguiente = (siguiente + 1) & (CONSULTAS - 1);
+		return clave;
+	}
+
+	@Benchmark
+	public Long retrieveEnHeap(){
+		return enHeap.retrieve(siguienteClave());
+	}
+
+	@Benchmark
+	public boolean containsFueraDelHeap(){
+		return fueraDelHeap.contains(siguienteClave());
+	}
+
+	@Benchmark
+	public Long insertDeleteEnHeap(){
+		long clave = siguienteClave() + 1;
+		enHeap.insert(clave, clave);
+		return enHeap.delete(clave);
+	}
+
+	@Benchmark
+	public Long insertDeleteFueraDelHeap(){
+		long clave = siguienteClave() + 1;
+		fueraDelHeap.insertLong(clave, clave);
+		return fueraDelHeap.deleteLong(clave);
+	}
+}
@@ -0,0 +1,120 @@
+package fciencias.edatos.practica06.bench;
+
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+* Orden en el que se generan las claves de inserción y de consulta.
+* Las claves de un árbol de tamaño n son los pares 0, 2, ..., 2n-2, así
+* los impares sirven para insertar claves nuevas o para búsquedas fallidas.
+* @author Pintor Muñoz Pedro Joshue.
+* @since Estructuras de Datos 2022-1.
+*/
+public enum OrdenClaves{
+
+	/** Claves en orden ascendente. */
+	SECUENCIAL,
+
+	/** Claves en orden uniformemente aleatorio. */
+	ALEATORIO,
+
+	/** Consultas concentradas en pocas claves según una distribución de Zipf. */
+	ZIPF,
+
+	/** Cada consulta cerca de la anterior, con saltos al azar de vez en cuando. */
+	AGRUPADO;
+
+	/** Exponente de la distribución de Zipf. */
+	private static final double EXPONENTE_ZIPF = 0.99;
+
+	/** En AGRUPADO, qué tanto se aleja una consulta de la anterior. */
+	private static final int PASO_AGRUPADO = 16;
+
+	/** En AGRUPADO, una de cada tantas consultas salta a cualquier clave. */
+	private static final int SALTO_AGRUPADO = 64;
+
+	/**
+	 * Genera el orden de inserción de las n claves del árbol.
+	 * En ZIPF y AGRUPADO las claves se insertan en orden aleatorio, lo que
+	 * cambia es el orden de las consultas.
+	 * @param n el número de claves.
+	 * @param semilla la semilla del generador.
+	 * @return las claves 0, 2, ..., 2n-2 en el orden correspondiente.
+	 */
+	public int[] inserciones(int n, long semilla){
+		int[] claves = new int[n];
+		for(int i = 0; i < n; i++)
+			claves[i] = 2 * i;
+		if(this != SECUENCIAL)
+			revuelve(claves, new Random(semilla));
+		return claves;
+	}
+
+	/**
+	 * Genera una secuencia de m índices entre 0 y n-1 con este orden.
+	 * Quien los use decide si los traduce a claves pares (presentes) o
+	 * impares (ausentes).
+	 * @param n el número de claves distintas.
+	 * @param m el largo de la secuencia.
+	 * @param semilla la semilla del generador.
+	 * @return la secuencia de índices.
+	 */
+	public int[] consultas(int n, int m, long semilla){
+		Random azar = new Random(semilla);
+		int[] indices = new int[m];
+		switch(this){
+			case SECUENCIAL:
+				for(int i = 0; i < m; i++)
+					indices[i] = i % n;
+				break;
+			case ALEATORIO:
+				for(int i = 0; i < m; i++)
+					indices[i] = azar.nextInt(n);
+				break;
+			case AGRUPADO:
+				int actual = azar.nextInt(n);
+				for(int i = 0; i < m; i++){
+					if(azar.nextInt(SALTO_AGRUPADO) == 0)
+						actual = azar.nextInt(n);
+					else
+						actual = Math.floorMod(actual + azar.nextInt(2 * PASO_AGRUPADO + 1) - PASO_AGRUPADO, n);
+					indices[i] = actual;
+				}
+				break;
+			default:
+				// Los rangos de Zipf se reparten al azar entre las claves
+				int[] permutacion = new int[n];
+				for(int i = 0; i < n; i++)
+					permutacion[i] = i;
+				revuelve(permutacion, azar);
+				double[] acumulada = new double[n];
+				double suma = 0;
+				for(int i = 0; i < n; i++){
+					suma += 1.0 / Math.pow(i + 1, EXPONENTE_ZIPF);
+					acumulada[i] = suma;
+				}
+				for(int i = 0; i < m; i++){
+					double u = azar.nextDouble() * suma;
+					int rango = Arrays.binarySearch(acumulada, u);
+					if(rango < 0)
+						rango = -rango - 1;
+					indices[i] = permutacion[Math.min(rango, n - 1)];
+				}
+		}
+		return indices;
+	}
+
+	/**
+	 * Revuelve un arreglo con Fisher-Yates.
+	 * @param arreglo el arreglo a revolver.
+	 * @param azar el generador a usar.
+	 */
+	private static void revuelve(int[] arreglo, Random azar){
+		for(int i = arreglo.length - 1; i > 0; i--){
+			int j = azar.nextInt(i + 1);
+			int aux = arreglo[i];
+			arreglo[i] = arreglo[j];
+			arreglo[j] = aux;
+		}
+	}
+}
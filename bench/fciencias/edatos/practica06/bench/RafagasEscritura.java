@@ -0,0 +1,101 @@
+package fciencias.edatos.practica06.bench;
+
+import fciencias.edatos.practica06.AVLTree;
+import java.util.Locale;
+import java.util.SplittableRandom;
+
+/**
+* Latencia de las escrituras de AVLTree durante ráfagas, con rebalanceo
+* inmediato contra rebalanceo relajado. El árbol es una ventana de n claves:
+* cada ráfaga inserta claves nuevas y borra las más viejas, una y una, sin
+* pausas; entre ráfagas el modo relajado llama a drainRebalance, que se mide
+* aparte porque no cae en ninguna escritura. Las claves nuevas son
+* crecientes (SECUENCIAL, como una ingesta con marcas de tiempo) o al azar
+* (ALEATORIO). Antes de medir cada modo corre unas ráfagas para que el JIT
+* compile.
+* Uso: RafagasEscritura [claves] [rafagas] [escrituras por rafaga] [orden] [holgura]
+* @author Pintor Muñoz Pedro Joshue.
+* @since Estructuras de Datos 2022-1.
+*/
+public class RafagasEscritura{
+
+	/** Ráfagas de calentamiento de cada modo. */
+	private static final int CALENTAMIENTO = 20;
+
+	/** Resultado acumulado de las operaciones, para que el JIT no las quite. */
+	private static long sumidero;
+
+	public static void main(String[] args){
+		int claves = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+		int rafagas = args.length > 1 ? Integer.parseInt(args[1]) : 200;
+		int escrituras = args.length > 2 ? Integer.parseInt(args[2]) : 10_000;
+		OrdenClaves orden = args.length > 3 ? OrdenClaves.valueOf(args[3].toUpperCase(Locale.ROOT)) : OrdenClaves.ALEATORIO;
+		int holgura = args.length > 4 ? Integer.parseInt(args[4]) : 8;
+		if(orden != OrdenClaves.SECUENCIAL && orden != OrdenClaves.ALEATORIO)
+			throw new IllegalArgumentException("El orden debe ser SECUENCIAL o ALEATORIO: " + orden);
+
+		System.out.printf("%d claves, %d ráfagas de %d inserciones y %d eliminaciones, orden %s, holgura %d%n",
+			claves, rafagas, escrituras, escrituras, orden, holgura);
+		System.out.printf("%-9s %-9s %11s %9s %9s %9s %10s %7s%n", "modo", "operacion", "cuenta", "p50 ns", "p99 ns", "p999 ns", "max ns", "altura");
+		corre("inmediato", 0, claves, rafagas, escrituras, orden);
+		corre("relajado", holgura, claves, rafagas, escrituras, orden);
+		System.out.println("(" + sumidero + ")");
+	}
+
+	/**
+	 * Llena un árbol, corre las ráfagas y reporta un modo.
+	 * @param modo el nombre del modo.
+	 * @param holgura la holgura del rebalanceo relajado, 0 para el inmediato.
+	 */
+	private static void corre(String modo, int holgura, int claves, int rafagas, int escrituras, OrdenClaves orden){
+		AVLTree<Integer, String> arbol = new AVLTree<>();
+		SplittableRandom azar = new SplittableRandom(17);
+		boolean secuencial = orden == OrdenClaves.SECUENCIAL;
+		// ventana guarda las claves en orden de llegada, viejo es la más vieja
+		int[] ventana = new int[claves];
+		for(int i = 0; i < claves; i++){
+			ventana[i] = secuencial ? i : azar.nextInt();
+			arbol.insert("v", ventana[i]);
+		}
+		if(holgura > 0)
+			arbol.enableRelaxedBalance(holgura);
+
+		Histograma inserciones = new Histograma(), eliminaciones = new Histograma(), drenados = new Histograma();
+		int viejo = 0, siguiente = claves, alturaMaxima = 0;
+		for(int r = -CALENTAMIENTO; r < rafagas; r++){
+			if(r == 0){
+				inserciones = new Histograma();
+				eliminaciones = new Histograma();
+				drenados = new Histograma();
+			}
+			for(int i = 0; i < escrituras; i++){
+				int nueva = secuencial ? siguiente++ : azar.nextInt();
+				long inicio = System.nanoTime();
+				arbol.insert("v", nueva);
+				long medio = System.nanoTime();
+				String eliminado = arbol.delete(ventana[viejo]);
+				long fin = System.nanoTime();
+				inserciones.registra(medio - inicio);
+				eliminaciones.registra(fin - medio);
+				sumidero += eliminado == null ? 0 : 1;
+				ventana[viejo] = nueva;
+				viejo = viejo + 1 == claves ? 0 : viejo + 1;
+			}
+			alturaMaxima = Math.max(alturaMaxima, arbol.altura());
+			if(holgura > 0){
+				long inicio = System.nanoTime();
+				sumidero += arbol.drainRebalance();
+				drenados.registra(System.nanoTime() - inicio);
+			}
+		}
+		fila(modo, "insert", inserciones, alturaMaxima);
+		fila(modo, "delete", eliminaciones, alturaMaxima);
+		if(holgura > 0)
+			fila(modo, "drenado", drenados, arbol.altura());
+	}
+
+	private static void fila(String modo, String operacion, Histograma h, int altura){
+		System.out.printf("%-9s %-9s %11d %9d %9d %9d %10d %7d%n", modo, operacion, h.total(),
+			h.percentil(0.5), h.percentil(0.99), h.percentil(0.999), h.maximo(), altura);
+	}
+}
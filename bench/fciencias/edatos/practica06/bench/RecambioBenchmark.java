@@ -0,0 +1,93 @@
+package fciencias.edatos.practica06.bench;
+
+import fciencias.edatos.practica06.TDABinarySearchTree;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+* Recambio continuo: el árbol es una ventana de las últimas n claves al azar
+* que llegaron, y cada operación inserta una clave nueva y borra la más
+* vieja. A diferencia de insertDelete de ArbolBenchmark, la clave borrada
+* casi nunca es una hoja recién puesta sino un nodo cualquiera, muchas
+* veces con dos hijos. Las claves nuevas salen de una secuencia de Integer
+* creada al preparar, así que el profiler de GC solo cuenta lo que crea la
+* estructura; con RECICLADO cada nodo quitado es el que usa la siguiente
+* inserción y debe reportar casi cero bytes por operación.
+* @author Pintor Muñoz Pedro Joshue.
+* @since Estructuras de Datos 2022-1.
+*/
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = {"-Xmx4g"})
+public class RecambioBenchmark{
+
+	/** Largo de la secuencia de claves nuevas, se recorre de forma cíclica. */
+	private static final int CLAVES = 1 << 20;
+
+	@Param({"AVL", "RECICLADO", "INT_AVL", "COMPACTO", "TREEMAP"})
+	public Estructura estructura;
+
+	@Param({"1000", "100000"})
+	public int tamanio;
+
+	private TDABinarySearchTree<Integer, String> arbol;
+
+	/** Claves de la ventana en orden de llegada, de forma cíclica. */
+	private Integer[] ventana;
+
+	/** Posición de la clave más vieja en ventana. */
+	private int viejo;
+
+	/** Claves nuevas al azar, ya como Integer. */
+	private Integer[] nuevas;
+
+	/** Posición de la siguiente clave nueva. */
+	private int siguiente;
+
+	/**
+	 * Prepara una sola vez: la ventana sigue deslizándose entre iteraciones,
+	 * así que después del calentamiento se mide el estado estable y nada de
+	 * lo que crea la preparación cae en las iteraciones.
+	 */
+	@Setup(Level.Trial)
+	public void prepara(){
+		SplittableRandom azar = new SplittableRandom(17);
+		arbol = estructura.crea();
+		ventana = new Integer[tamanio];
+		for(int i = 0; i < tamanio; i++){
+			ventana[i] = azar.nextInt();
+			arbol.insert("v", ventana[i]);
+		}
+		viejo = 0;
+		nuevas = new Integer[CLAVES];
+		for(int i = 0; i < CLAVES; i++)
+			nuevas[i] = azar.nextInt();
+		siguiente = 0;
+	}
+
+	@Benchmark
+	public String insertaYBorra(){
+		Integer nueva = nuevas[siguiente];
+		siguiente = (siguiente + 1) & (CLAVES - 1);
+		arbol.insert("v", nueva);
+		String eliminado = arbol.delete(ventana[viejo]);
+		ventana[viejo] = nueva;
+		viejo = viejo + 1 == tamanio ? 0 : viejo + 1;
+		return eliminado;
+	}
+}
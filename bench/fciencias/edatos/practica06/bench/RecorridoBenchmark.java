@@ -0,0 +1,63 @@
+package fciencias.edatos.practica06.bench;
+
+import fciencias.edatos.practica06.AVLTree;
+import java.util.Iterator;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+* Recorridos completos del árbol con el iterador, con un Stream secuencial
+* y con un Stream paralelo dividido por subárboles.
+* @author Pintor Muñoz Pedro Joshue.
+* @since Estructuras de Datos 2022-1.
+*/
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = {"-Xmx4g"})
+public class RecorridoBenchmark{
+
+	@Param({"100000", "1000000"})
+	public int tamanio;
+
+	private AVLTree<Integer, Integer> arbol;
+
+	@Setup(Level.Trial)
+	public void prepara(){
+		arbol = new AVLTree<>();
+		for(int clave : OrdenClaves.ALEATORIO.inserciones(tamanio, 17))
+			arbol.insert(clave, clave);
+	}
+
+	@Benchmark
+	public long iteradorInorden(){
+		long suma = 0;
+		Iterator<Integer> it = arbol.iteradorInorden();
+		while(it.hasNext())
+			suma += it.next();
+		return suma;
+	}
+
+	@Benchmark
+	public long stream(){
+		return arbol.stream().mapToLong(Integer::longValue).sum();
+	}
+
+	@Benchmark
+	public long streamParalelo(){
+		return arbol.stream().parallel().mapToLong(Integer::longValue).sum();
+	}
+}
@@ -0,0 +1,214 @@
+package fciencias.edatos.practica06.bench;
+
+import fciencias.edatos.practica06.CodecFijo;
+import fciencias.edatos.practica06.WALTree;
+import java.io.BufferedReader;
+import java.io.InputStreamReader;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.stream.Stream;
+
+/**
+* Prueba de matar y recuperar WALTree. El proceso principal lanza otro
+* proceso que escribe desde varios hilos y anuncia por su salida estándar
+* cada insert y delete antes de intentarlo y después de que regresó.
+* Después de un tiempo lo mata con SIGKILL, reabre el árbol en el mismo
+* directorio y revisa que todo lo confirmado esté: ninguna clave insertada
+* falta salvo que se estuviera eliminando, y ninguna clave eliminada regresa.
+* Una de cada ocho claves se inserta con elemento null; como retrieve no
+* distingue esas claves de las ausentes, se revisan con size. Las claves que
+* se estaban insertando o, con elemento null, eliminando al matar al hijo
+* pueden estar o no, así que las elimina el proceso principal antes de la
+* siguiente ronda.
+* Se repite varias veces sobre el mismo directorio, con checkpoints de por
+* medio.
+* Un SIGKILL no tira el caché de páginas del sistema operativo, así que esto
+* prueba la recuperación y el orden de escritura, no la durabilidad ante un
+* corte de luz.
+* Uso: RecuperaWAL [rondas] [milisegundos por ronda]
+* @author Pintor Muñoz Pedro Joshue.
+* @since Estructuras de Datos 2022-1.
+*/
+public class RecuperaWAL{
+
+	/** Hilos escritores del proceso hijo. */
+	private static final int HILOS = 4;
+
+	public static void main(String[] args) throws Exception{
+		if(args.length > 0 && args[0].equals("hijo")){
+			hijo(Path.of(args[1]), Long.parseLong(args[2]));
+			return;
+		}
+
+		int rondas = args.length > 0 ? Integer.parseInt(args[0]) : 5;
+		long milisegundos = args.length > 1 ? Long.parseLong(args[1]) : 2000;
+		Path directorio = Files.createTempDirectory("wal");
+		Set<Long> presentes = new HashSet<>();
+		Set<Long> eliminadas = new HashSet<>();
+		boolean falla = false;
+
+		for(int ronda = 0; ronda < rondas && !falla; ronda++){
+			Process hijo = new ProcessBuilder(Path.of(System.getProperty("java.home"), "bin", "java").toString(),
+					"-cp", System.getProperty("java.class.path"), RecuperaWAL.class.getName(), "hijo", directorio.toString(), Long.toString(ronda))
+				.redirectError(ProcessBuilder.Redirect.INHERIT).start();
+
+			// Claves que se estaban insertando o eliminando al matar al hijo
+			Set<Long> enCurso = new HashSet<>();
+			int operaciones = 0, checkpoints = 0;
+			long limite = System.currentTimeMillis() + milisegundos;
+			try(BufferedReader salida = new BufferedReader(new InputStreamReader(hijo.getInputStream()))){
+				String linea;
+				while(System.currentTimeMillis() < limite && (linea = salida.readLine()) != null){
+					char tipo = lee(linea, presentes, eliminadas, enCurso);
+					if(tipo == 'c')
+						checkpoints++;
+					else if(tipo == 'i' || tipo == 'd')
+						operaciones++;
+				}
+				// Por el handle, para que no se cierre la salida que falta leer
+				hijo.toHandle().destroyForcibly();
+				hijo.waitFor();
+				// Lo que el hijo alcanzó a imprimir antes de morir también cuenta
+				while((linea = salida.readLine()) != null)
+					lee(linea, presentes, eliminadas, enCurso);
+			}
+
+			int perdidas = 0, revividas = 0, sobrantes;
+			try(WALTree<Long, Long> arbol = new WALTree<>(directorio, CodecFijo.LONG, CodecFijo.LONG)){
+				// Claves que no se sabe si siguen: inserciones sin confirmar y
+				// eliminaciones sin confirmar de claves con elemento null
+				ArrayList<Long> dudosas = new ArrayList<>();
+				for(long clave : enCurso)
+					if(!presentes.contains(clave))
+						dudosas.add(clave);
+				int sinConfirmar = dudosas.size();
+				for(long clave : presentes){
+					Long valor = arbol.retrieve(clave);
+					if(nulo(clave)){
+						if(valor != null)
+							perdidas++;
+						else if(enCurso.contains(clave))
+							dudosas.add(clave);
+					} else if(valor == null && enCurso.contains(clave)){
+						// El delete llegó al disco aunque no alcanzó a confirmarse
+						eliminadas.add(clave);
+					} else if(valor == null || valor != clave){
+						perdidas++;
+					}
+				}
+				presentes.removeAll(eliminadas);
+				for(long clave : eliminadas)
+					if(arbol.retrieve(clave) != null)
+						revividas++;
+				// Las claves con elemento null solo se pueden contar
+				int recuperadas = arbol.size();
+				int minimo = presentes.size() - (dudosas.size() - sinConfirmar), maximo = presentes.size() + sinConfirmar;
+				sobrantes = recuperadas > maximo ? recuperadas - maximo : Math.max(0, minimo - recuperadas);
+				// Se eliminan aquí para que la siguiente ronda sepa qué esperar
+				for(long clave : dudosas){
+					arbol.delete(clave);
+					presentes.remove(clave);
+					eliminadas.add(clave);
+				}
+				System.out.printf("ronda %d: %d operaciones y %d checkpoints confirmados, %d claves recuperadas, %d perdidas, %d revividas, %d de más o de menos%n",
+					ronda, operaciones, checkpoints, recuperadas, perdidas, revividas, sobrantes);
+			}
+			falla = perdidas > 0 || revividas > 0 || sobrantes > 0;
+		}
+
+		try(Stream<Path> archivos = Files.walk(directorio)){
+			for(Path archivo : (Iterable<Path>) archivos.sorted(Comparator.reverseOrder())::iterator)
+				Files.delete(archivo);
+		}
+		if(falla){
+			System.out.println("FALLA: la recuperación no coincide con lo confirmado.");
+			System.exit(1);
+		}
+	}
+
+	/**
+	 * Registra una línea del hijo en los conjuntos.
+	 * @return el tipo de la línea: 'p', 'i', 'q', 'd' o 'c'.
+	 */
+	private static char lee(String linea, Set<Long> presentes, Set<Long> eliminadas, Set<Long> enCurso){
+		char tipo = linea.charAt(0);
+		if(tipo == 'c')
+			return tipo;
+		long clave = Long.parseLong(linea.substring(2));
+		switch(tipo){
+			case 'i':
+				enCurso.remove(clave);
+				presentes.add(clave);
+				break;
+			case 'p':
+			case 'q':
+				enCurso.add(clave);
+				break;
+			default:
+				enCurso.remove(clave);
+				presentes.remove(clave);
+				eliminadas.add(clave);
+		}
+		return tipo;
+	}
+
+	/**
+	 * Indica si una clave se inserta con elemento null.
+	 * @param clave la clave generada por el hijo.
+	 * @return true para una de cada ocho claves de cada hilo.
+	 */
+	private static boolean nulo(long clave){
+		return ((clave & (1L << 40) - 1) / HILOS) % 8 == 0;
+	}
+
+	/**
+	 * Proceso hijo: inserta claves nuevas y elimina algunas de las suyas
+	 * hasta que lo maten. Cada clave se inserta una sola vez en toda la
+	 * prueba y su elemento es la misma clave, o null si nulo(clave).
+	 */
+	private static void hijo(Path directorio, long ronda) throws Exception{
+		PrintStream salida = new PrintStream(System.out, false);
+		WALTree<Long, Long> arbol = new WALTree<>(directorio, CodecFijo.LONG, CodecFijo.LONG, 100);
+		for(int h = 0; h < HILOS; h++){
+			final int id = h;
+			Thread hilo = new Thread(() -> {
+				ThreadLocalRandom azar = ThreadLocalRandom.current();
+				ArrayList<Long> propias = new ArrayList<>();
+				for(long i = 0; ; i++){
+					if(!propias.isEmpty() && azar.nextInt(4) == 0){
+						long clave = propias.remove(azar.nextInt(propias.size()));
+						imprime(salida, "q " + clave);
+						arbol.delete(clave);
+						imprime(salida, "d " + clave);
+					} else {
+						long clave = ronda << 40 | i * HILOS + id;
+						imprime(salida, "p " + clave);
+						arbol.insert(nulo(clave) ? null : clave, clave);
+						propias.add(clave);
+						imprime(salida, "i " + clave);
+					}
+				}
+			});
+			hilo.setDaemon(true);
+			hilo.start();
+		}
+		while(true){
+			Thread.sleep(300);
+			arbol.checkpoint();
+			imprime(salida, "c");
+		}
+	}
+
+	private static void imprime(PrintStream salida, String linea){
+		synchronized(salida){
+			salida.println(linea);
+			salida.flush();
+		}
+	}
+}
@@ -0,0 +1,79 @@
+package fciencias.edatos.practica06.bench;
+
+import fciencias.edatos.practica06.AVLTree;
+import fciencias.edatos.practica06.PersistentAVLTree;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+* Costo de obtener una vista consistente del árbol: snapshot() de
+* PersistentAVLTree contra copiar completo un AVLTree bajo un candado. También
+* mide cuánto cuesta la copia de camino en una actualización.
+* @author Pintor Muñoz Pedro Joshue.
+* @since Estructuras de Datos 2022-1.
+*/
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = {"-Xmx4g"})
+public class SnapshotBenchmark{
+
+	@Param({"1000", "100000", "1000000"})
+	public int tamanio;
+
+	private AVLTree<Integer, Integer> mutable;
+
+	private PersistentAVLTree<Integer, Integer> persistente;
+
+	private int[] claves;
+
+	private int siguiente;
+
+	@Setup(Level.Trial)
+	public void prepara(){
+		claves = OrdenClaves.ALEATORIO.inserciones(tamanio, 23);
+		mutable = new AVLTree<>();
+		persistente = new PersistentAVLTree<>();
+		for(int clave : claves){
+			mutable.insert(clave, clave);
+			persistente.insert(clave, clave);
+		}
+	}
+
+	@Benchmark
+	public PersistentAVLTree<Integer, Integer> snapshot(){
+		return persistente.snapshot();
+	}
+
+	@Benchmark
+	public AVLTree<Integer, Integer> copiaCompleta(){
+		synchronized(mutable){
+			Integer[] copia = new Integer[mutable.size()];
+			int i = 0;
+			for(Integer elemento : mutable)
+				copia[i++] = elemento;
+			// Las claves son iguales a los elementos
+			return AVLTree.fromSorted(copia, copia);
+		}
+	}
+
+	@Benchmark
+	public PersistentAVLTree<Integer, Integer> actualizaPersistente(){
+		int clave = claves[siguiente++ % claves.length];
+		persistente.insert(clave, clave);
+		return persistente;
+	}
+}
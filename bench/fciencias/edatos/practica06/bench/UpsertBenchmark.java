@@ -0,0 +1,93 @@
+package fciencias.edatos.practica06.bench;
+
+import fciencias.edatos.practica06.AVLTree;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+* Actualizaciones de claves que casi siempre ya están: un contador por clave
+* que se incrementa. Compara hacerlo como antes (retrieve, delete e insert,
+* tres bajadas y dos rebalanceos) contra put y merge, que bajan una vez y no
+* rebalancean si la clave ya estaba, y contra TreeMap.merge.
+* @author Pintor Muñoz Pedro Joshue.
+* @since Estructuras de Datos 2022-1.
+*/
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = {"-Xmx4g"})
+public class UpsertBenchmark{
+
+	/** Largo de la secuencia de consultas, se recorre de forma cíclica. */
+	private static final int CONSULTAS = 1 << 16;
+
+	@Param({"100000"})
+	public int tamanio;
+
+	private AVLTree<Integer, Integer> arbol;
+
+	private TreeMap<Integer, Integer> mapa;
+
+	private int[] consultas;
+
+	private int siguiente;
+
+	@Setup(Level.Trial)
+	public void prepara(){
+		consultas = OrdenClaves.ALEATORIO.consultas(tamanio, CONSULTAS, 23);
+		arbol = new AVLTree<>();
+		mapa = new TreeMap<>();
+		for(int clave : OrdenClaves.ALEATORIO.inserciones(tamanio, 17)){
+			arbol.insert(0, clave);
+			mapa.put(clave, 0);
+		}
+	}
+
+	private int siguienteClave(){
+		int indice = consultas[siguiente];
+		siguiente = (siguiente + 1) & (CONSULTAS - 1);
+		return 2 * indice;
+	}
+
+	@Benchmark
+	public Integer retrieveDeleteInsert(){
+		int clave = siguienteClave();
+		Integer actual = arbol.retrieve(clave);
+		int nuevo = actual == null ? 1 : actual + 1;
+		if(actual != null)
+			arbol.delete(clave);
+		arbol.insert(nuevo, clave);
+		return nuevo;
+	}
+
+	@Benchmark
+	public Integer put(){
+		int clave = siguienteClave();
+		Integer actual = arbol.retrieve(clave);
+		return arbol.put(clave, actual == null ? 1 : actual + 1);
+	}
+
+	@Benchmark
+	public Integer merge(){
+		return arbol.merge(siguienteClave(), 1, Integer::sum);
+	}
+
+	@Benchmark
+	public Integer treeMap(){
+		return mapa.merge(siguienteClave(), 1, Integer::sum);
+	}
+}
@@ -0,0 +1,74 @@
+package fciencias.edatos.practica06.bench;
+
+import fciencias.edatos.practica06.CodecFijo;
+import fciencias.edatos.practica06.WALTree;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+* Inserciones durables por segundo de WALTree con distintas ventanas de
+* group commit. Con varios hilos el líder sincroniza de una vez los registros
+* de todos los que esperan; la ventana le da tiempo de juntar más a costa de
+* latencia. El directorio se crea en java.io.tmpdir, que debe estar en el
+* disco que se quiere medir.
+* @author Pintor Muñoz Pedro Joshue.
+* @since Estructuras de Datos 2022-1.
+*/
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xmx4g"})
+@Threads(8)
+public class WALBenchmark{
+
+	/** Microsegundos que el líder espera antes de sincronizar. */
+	@Param({"0", "100", "1000"})
+	public long ventana;
+
+	private Path directorio;
+
+	private WALTree<Long, Long> arbol;
+
+	@Setup(Level.Trial)
+	public void abre() throws IOException{
+		directorio = Files.createTempDirectory("wal");
+		arbol = new WALTree<>(directorio, CodecFijo.LONG, CodecFijo.LONG, ventana);
+	}
+
+	@TearDown(Level.Trial)
+	public void cierra() throws IOException{
+		arbol.close();
+		try(Stream<Path> archivos = Files.walk(directorio)){
+			for(Path archivo : (Iterable<Path>) archivos.sorted(Comparator.reverseOrder())::iterator)
+				Files.delete(archivo);
+		}
+	}
+
+	@Benchmark
+	public long insert(){
+		long clave = ThreadLocalRandom.current().nextLong();
+		arbol.insert(clave, clave);
+		return clave;
+	}
+}
@@ -0,0 +1,663 @@
+package fciencias.edatos.practica06;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.NavigableSet;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.SortedSet;
+import java.util.function.BiFunction;
+
+/**
+* Vista de un AVLTree como NavigableMap, creada con AVLTree.asNavigableMap().
+* Las búsquedas bajan una sola vez por el árbol. headMap, tailMap, subMap y
+* descendingMap regresan vistas del mismo árbol con otros límites o al
+* revés, sin copiar nada; su size() cuesta O(log n) porque se calcula con
+* los tamaños de los subárboles.
+* Los iteradores no detectan cambios hechos al árbol por fuera de ellos.
+* @author Pintor Muñoz Pedro Joshue.
+* @since Estructuras de Datos 2022-1.
+*/
+public class AVLNavigableMap<K extends Comparable, V> extends AbstractMap<K, V> implements NavigableMap<K, V>{
+
+	/** El árbol de la vista. */
+	private final AVLTree<K, V> arbol;
+
+	/** Límite inferior en el orden del árbol, si lo hay. */
+	private final K lo;
+
+	private final boolean sinLo, loIncluido;
+
+	/** Límite superior en el orden del árbol, si lo hay. */
+	private final K hi;
+
+	private final boolean sinHi, hiIncluido;
+
+	/** Si la vista recorre el árbol de mayor a menor. */
+	private final boolean descendente;
+
+	/**
+	 * Crea la vista de todo el árbol.
+	 * @param arbol el árbol.
+	 */
+	public AVLNavigableMap(AVLTree<K, V> arbol){
+		this(arbol, true, null, false, true, null, false, false);
+	}
+
+	private AVLNavigableMap(AVLTree<K, V> arbol, boolean sinLo, K lo, boolean loIncluido, boolean sinHi, K hi, boolean hiIncluido, boolean descendente){
+		this.arbol = arbol;
+		this.sinLo = sinLo;
+		this.lo = lo;
+		this.loIncluido = loIncluido;
+		this.sinHi = sinHi;
+		this.hi = hi;
+		this.hiIncluido = hiIncluido;
+		this.descendente = descendente;
+	}
+
+	/* Límites, siempre en el orden del árbol */
+
+	private int compara(K a, K b){
+		return arbol.comparador().compare(a, b);
+	}
+
+	private boolean muyBajo(K k){
+		if(sinLo)
+			return false;
+		int c = compara(k, lo);
+		return c < 0 || (c == 0 && !loIncluido);
+	}
+
+	private boolean muyAlto(K k){
+		if(sinHi)
+			return false;
+		int c = compara(k, hi);
+		return c > 0 || (c == 0 && !hiIncluido);
+	}
+
+	private boolean enRango(K k){
+		return !muyBajo(k) && !muyAlto(k);
+	}
+
+	/** Si k cabe en el intervalo cerrado de los límites. */
+	private boolean enRangoCerrado(K k){
+		return (sinLo || compara(k, lo) >= 0) && (sinHi || compara(k, hi) <= 0);
+	}
+
+	/** Si k sirve como límite de una subvista. */
+	private boolean limiteValido(K k, boolean incluido){
+		return incluido ? enRango(k) : enRangoCerrado(k);
+	}
+
+	/* Búsquedas en el orden del árbol que respetan los límites */
+
+	private AVLTree.AVLNode<K, V> menor(){
+		AVLTree.AVLNode<K, V> nodo = sinLo ? arbol.primero() : arbol.vecino(lo, true, loIncluido);
+		return nodo == null || muyAlto(nodo.clave) ? null : nodo;
+	}
+
+	private AVLTree.AVLNode<K, V> mayor(){
+		AVLTree.AVLNode<K, V> nodo = sinHi ? arbol.ultimo() : arbol.vecino(hi, false, hiIncluido);
+		return nodo == null || muyBajo(nodo.clave) ? null : nodo;
+	}
+
+	/**
+	 * El vecino de k hacia las claves mayores o menores, dentro de los límites.
+	 * @param k la clave de referencia.
+	 * @param haciaMayores si se buscan claves mayores.
+	 * @param inclusivo si una clave igual a k cuenta.
+	 * @return el nodo o null.
+	 */
+	private AVLTree.AVLNode<K, V> vecino(K k, boolean haciaMayores, boolean inclusivo){
+		if(haciaMayores){
+			if(muyBajo(k))
+				return menor();
+			AVLTree.AVLNode<K, V> nodo = arbol.vecino(k, true, inclusivo);
+			return nodo == null || muyAlto(nodo.clave) ? null : nodo;
+		}
+		if(muyAlto(k))
+			return mayor();
+		AVLTree.AVLNode<K, V> nodo = arbol.vecino(k, false, inclusivo);
+		return nodo == null || muyBajo(nodo.clave) ? null : nodo;
+	}
+
+	/* Las mismas búsquedas en el orden de la vista */
+
+	private AVLTree.AVLNode<K, V> primero(){
+		return descendente ? mayor() : menor();
+	}
+
+	private AVLTree.AVLNode<K, V> ultimo(){
+		return descendente ? menor() : mayor();
+	}
+
+	/**
+	 * El vecino de k en el orden de la vista.
+	 * @param k la clave de referencia.
+	 * @param despues si se busca después de k (higher, ceiling) o antes.
+	 * @param inclusivo si una clave igual a k cuenta.
+	 * @return el nodo o null.
+	 */
+	private AVLTree.AVLNode<K, V> cercano(K k, boolean despues, boolean inclusivo){
+		Objects.requireNonNull(k);
+		return vecino(k, despues != descendente, inclusivo);
+	}
+
+	/** El siguiente nodo en el orden de la vista, null al salir de los límites. */
+	private AVLTree.AVLNode<K, V> siguiente(AVLTree.AVLNode<K, V> nodo){
+		if(descendente){
+			nodo = arbol.predecesor(nodo);
+			return nodo == null || muyBajo(nodo.clave) ? null : nodo;
+		}
+		nodo = arbol.sucesor(nodo);
+		return nodo == null || muyAlto(nodo.clave) ? null : nodo;
+	}
+
+	private static <K extends Comparable, V> Map.Entry<K, V> entrada(AVLTree.AVLNode<K, V> nodo){
+		return nodo == null ? null : new AbstractMap.SimpleImmutableEntry<>(nodo.clave, nodo.elemento);
+	}
+
+	private static <K extends Comparable> K clave(AVLTree.AVLNode<K, ?> nodo){
+		return nodo == null ? null : nodo.clave;
+	}
+
+	private static <K extends Comparable> K claveExistente(AVLTree.AVLNode<K, ?> nodo){
+		if(nodo == null)
+			throw new NoSuchElementException();
+		return nodo.clave;
+	}
+
+	private Map.Entry<K, V> quita(AVLTree.AVLNode<K, V> nodo){
+		if(nodo == null)
+			return null;
+		Map.Entry<K, V> entrada = entrada(nodo);
+		arbol.eliminaNodo(nodo);
+		return entrada;
+	}
+
+	@SuppressWarnings("unchecked")
+	private AVLTree.AVLNode<K, V> busca(Object clave){
+		K k = (K) Objects.requireNonNull(clave);
+		return enRango(k) ? arbol.buscaNodo(k) : null;
+	}
+
+	/* Map */
+
+	@Override
+	public int size(){
+		if(sinLo && sinHi)
+			return arbol.size();
+		int hasta = sinHi ? arbol.size() : arbol.cuentaMenores(hi, hiIncluido);
+		int antes = sinLo ? 0 : arbol.cuentaMenores(lo, !loIncluido);
+		return Math.max(hasta - antes, 0);
+	}
+
+	@Override
+	public boolean isEmpty(){
+		return menor() == null;
+	}
+
+	@Override
+	public boolean containsKey(Object clave){
+		return busca(clave) != null;
+	}
+
+	@Override
+	public V get(Object clave){
+		AVLTree.AVLNode<K, V> nodo = busca(clave);
+		return nodo == null ? null : nodo.elemento;
+	}
+
+	@Override
+	public V put(K clave, V valor){
+		return arbol.put(dentro(clave), valor);
+	}
+
+	/**
+	 * Revisa que una clave que se va a escribir esté dentro de la vista.
+	 * @param clave la clave.
+	 * @return la misma clave.
+	 * @throws IllegalArgumentException si está fuera de los límites.
+	 */
+	private K dentro(K clave){
+		Objects.requireNonNull(clave);
+		if(!enRango(clave))
+			throw new IllegalArgumentException("Clave fuera de los límites de la vista");
+		return clave;
+	}
+
+	@Override
+	public V remove(Object clave){
+		AVLTree.AVLNode<K, V> nodo = busca(clave);
+		if(nodo == null)
+			return null;
+		V anterior = nodo.elemento;
+		arbol.eliminaNodo(nodo);
+		return anterior;
+	}
+
+	@Override
+	public boolean remove(Object clave, Object valor){
+		AVLTree.AVLNode<K, V> nodo = busca(clave);
+		if(nodo == null || !Objects.equals(nodo.elemento, valor))
+			return false;
+		arbol.eliminaNodo(nodo);
+		return true;
+	}
+
+	@Override
+	public V putIfAbsent(K clave, V valor){
+		return arbol.putIfAbsent(dentro(clave), valor);
+	}
+
+	@Override
+	public V compute(K clave, BiFunction<? super K, ? super V, ? extends V> funcion){
+		return arbol.compute(dentro(clave), funcion);
+	}
+
+	@Override
+	public V merge(K clave, V valor, BiFunction<? super V, ? super V, ? extends V> funcion){
+		return arbol.merge(dentro(clave), valor, funcion);
+	}
+
+	@Override
+	public Set<Map.Entry<K, V>> entrySet(){
+		return new Entradas();
+	}
+
+	@Override
+	public Set<K> keySet(){
+		return navigableKeySet();
+	}
+
+	/* SortedMap y NavigableMap */
+
+	@Override
+	public Comparator<? super K> comparator(){
+		Comparator<? super K> base = arbol.ordenNatural() ? null : arbol.comparador();
+		if(!descendente)
+			return base;
+		return base == null ? (Comparator<? super K>) Collections.reverseOrder() : Collections.reverseOrder(base);
+	}
+
+	@Override
+	public K firstKey(){
+		return claveExistente(primero());
+	}
+
+	@Override
+	public K lastKey(){
+		return claveExistente(ultimo());
+	}
+
+	@Override
+	public Map.Entry<K, V> firstEntry(){
+		return entrada(primero());
+	}
+
+	@Override
+	public Map.Entry<K, V> lastEntry(){
+		return entrada(ultimo());
+	}
+
+	@Override
+	public Map.Entry<K, V> pollFirstEntry(){
+		return quita(primero());
+	}
+
+	@Override
+	public Map.Entry<K, V> pollLastEntry(){
+		return quita(ultimo());
+	}
+
+	@Override
+	public Map.Entry<K, V> lowerEntry(K clave){
+		return entrada(cercano(clave, false, false));
+	}
+
+	@Override
+	public K lowerKey(K clave){
+		return clave(cercano(clave, false, false));
+	}
+
+	@Override
+	public Map.Entry<K, V> floorEntry(K clave){
+		return entrada(cercano(clave, false, true));
+	}
+
+	@Override
+	public K floorKey(K clave){
+		return clave(cercano(clave, false, true));
+	}
+
+	@Override
+	public Map.Entry<K, V> ceilingEntry(K clave){
+		return entrada(cercano(clave, true, true));
+	}
+
+	@Override
+	public K ceilingKey(K clave){
+		return clave(cercano(clave, true, true));
+	}
+
+	@Override
+	public Map.Entry<K, V> higherEntry(K clave){
+		return entrada(cercano(clave, true, false));
+	}
+
+	@Override
+	public K higherKey(K clave){
+		return clave(cercano(clave, true, false));
+	}
+
+	@Override
+	public NavigableMap<K, V> descendingMap(){
+		return new AVLNavigableMap<>(arbol, sinLo, lo, loIncluido, sinHi, hi, hiIncluido, !descendente);
+	}
+
+	@Override
+	public NavigableSet<K> navigableKeySet(){
+		return new Claves<>(this);
+	}
+
+	@Override
+	public NavigableSet<K> descendingKeySet(){
+		return descendingMap().navigableKeySet();
+	}
+
+	@Override
+	public NavigableMap<K, V> subMap(K desde, boolean desdeIncluido, K hasta, boolean hastaIncluido){
+		Objects.requireNonNull(desde);
+		Objects.requireNonNull(hasta);
+		if(compara(desde, hasta) * (descendente ? -1 : 1) > 0)
+			throw new IllegalArgumentException("desde es posterior a hasta");
+		if(descendente)
+			return vista(false, hasta, hastaIncluido, false, desde, desdeIncluido);
+		return vista(false, desde, desdeIncluido, false, hasta, hastaIncluido);
+	}
+
+	@Override
+	public NavigableMap<K, V> headMap(K hasta, boolean incluido){
+		Objects.requireNonNull(hasta);
+		if(descendente)
+			return vista(false, hasta, incluido, true, null, false);
+		return vista(true, null, false, false, hasta, incluido);
+	}
+
+	@Override
+	public NavigableMap<K, V> tailMap(K desde, boolean incluido){
+		Objects.requireNonNull(desde);
+		if(descendente)
+			return vista(true, null, false, false, desde, incluido);
+		return vista(false, desde, incluido, true, null, false);
+	}
+
+	@Override
+	public SortedMap<K, V> subMap(K desde, K hasta){
+		return subMap(desde, true, hasta, false);
+	}
+
+	@Override
+	public SortedMap<K, V> headMap(K hasta){
+		return headMap(hasta, false);
+	}
+
+	@Override
+	public SortedMap<K, V> tailMap(K desde){
+		return tailMap(desde, true);
+	}
+
+	/**
+	 * Crea una subvista con límites nuevos en el orden del árbol; el lado que
+	 * no se da conserva el límite de esta vista.
+	 */
+	private NavigableMap<K, V> vista(boolean sinNuevoLo, K nuevoLo, boolean nuevoLoIncluido, boolean sinNuevoHi, K nuevoHi, boolean nuevoHiIncluido){
+		if(!sinNuevoLo && !limiteValido(nuevoLo, nuevoLoIncluido))
+			throw new IllegalArgumentException("Límite fuera de la vista");
+		if(!sinNuevoHi && !limiteValido(nuevoHi, nuevoHiIncluido))
+			throw new IllegalArgumentException("Límite fuera de la vista");
+		return new AVLNavigableMap<>(arbol,
+			sinNuevoLo && sinLo, sinNuevoLo ? lo : nuevoLo, sinNuevoLo ? loIncluido : nuevoLoIncluido,
+			sinNuevoHi && sinHi, sinNuevoHi ? hi : nuevoHi, sinNuevoHi ? hiIncluido : nuevoHiIncluido,
+			descendente);
+	}
+
+	/**
+	 * Iterador en el orden de la vista. Quitar un nodo no cambia de clave a
+	 * los demás, así que el próximo nodo sigue siendo válido después de
+	 * remove. Con reciclaje de nodos un nodo quitado por fuera puede volver
+	 * al árbol con otra clave, por eso remove revisa también la clave.
+	 */
+	private abstract class Iterador<E> implements Iterator<E>{
+
+		private AVLTree.AVLNode<K, V> proximo = primero();
+
+		/** Nodo de la última entrada regresada, null si no se puede quitar. */
+		private AVLTree.AVLNode<K, V> ultimo;
+
+		/** Clave que tenía ultimo cuando se regresó. */
+		private K claveUltimo;
+
+		@Override
+		public boolean hasNext(){
+			return proximo != null;
+		}
+
+		AVLTree.AVLNode<K, V> siguienteNodo(){
+			if(proximo == null)
+				throw new NoSuchElementException();
+			ultimo = proximo;
+			claveUltimo = ultimo.clave;
+			proximo = siguiente(ultimo);
+			return ultimo;
+		}
+
+		@Override
+		public void remove(){
+			if(ultimo == null)
+				throw new IllegalStateException();
+			if(!arbol.contiene(ultimo) || ultimo.clave != claveUltimo)
+				throw new ConcurrentModificationException();
+			arbol.eliminaNodo(ultimo);
+			ultimo = null;
+		}
+	}
+
+	/** Entradas de la vista; setValue escribe en el árbol. */
+	private class Entradas extends AbstractSet<Map.Entry<K, V>>{
+
+		@Override
+		public Iterator<Map.Entry<K, V>> iterator(){
+			return new Iterador<Map.Entry<K, V>>(){
+				@Override
+				public Map.Entry<K, V> next(){
+					AVLTree.AVLNode<K, V> nodo = siguienteNodo();
+					return new AbstractMap.SimpleEntry<K, V>(nodo.clave, nodo.elemento){
+						@Override
+						public V setValue(V valor){
+							super.setValue(valor);
+							return put(getKey(), valor);
+						}
+					};
+				}
+			};
+		}
+
+		@Override
+		public int size(){
+			return AVLNavigableMap.this.size();
+		}
+
+		@Override
+		public boolean isEmpty(){
+			return AVLNavigableMap.this.isEmpty();
+		}
+
+		@Override
+		public boolean contains(Object o){
+			if(!(o instanceof Map.Entry))
+				return false;
+			Map.Entry<?, ?> e = (Map.Entry<?, ?>) o;
+			AVLTree.AVLNode<K, V> nodo = busca(e.getKey());
+			return nodo != null && Objects.equals(nodo.elemento, e.getValue());
+		}
+
+		@Override
+		public boolean remove(Object o){
+			if(!contains(o))
+				return false;
+			AVLNavigableMap.this.remove(((Map.Entry<?, ?>) o).getKey());
+			return true;
+		}
+	}
+
+	/** Iterador de claves para la vista de claves. */
+	Iterator<K> iteradorClaves(){
+		return new Iterador<K>(){
+			@Override
+			public K next(){
+				return siguienteNodo().clave;
+			}
+		};
+	}
+
+	/**
+	 * Conjunto navegable de las claves de una vista.
+	 */
+	private static final class Claves<K extends Comparable> extends AbstractSet<K> implements NavigableSet<K>{
+
+		private final AVLNavigableMap<K, ?> mapa;
+
+		Claves(AVLNavigableMap<K, ?> mapa){
+			this.mapa = mapa;
+		}
+
+		@Override
+		public Iterator<K> iterator(){
+			return mapa.iteradorClaves();
+		}
+
+		@Override
+		public Iterator<K> descendingIterator(){
+			return descendingSet().iterator();
+		}
+
+		@Override
+		public int size(){
+			return mapa.size();
+		}
+
+		@Override
+		public boolean isEmpty(){
+			return mapa.isEmpty();
+		}
+
+		@Override
+		public boolean contains(Object o){
+			return mapa.containsKey(o);
+		}
+
+		@Override
+		public boolean remove(Object o){
+			if(!mapa.containsKey(o))
+				return false;
+			mapa.remove(o);
+			return true;
+		}
+
+		@Override
+		public void clear(){
+			mapa.clear();
+		}
+
+		@Override
+		public Comparator<? super K> comparator(){
+			return mapa.comparator();
+		}
+
+		@Override
+		public K first(){
+			return mapa.firstKey();
+		}
+
+		@Override
+		public K last(){
+			return mapa.lastKey();
+		}
+
+		@Override
+		public K lower(K k){
+			return mapa.lowerKey(k);
+		}
+
+		@Override
+		public K floor(K k){
+			return mapa.floorKey(k);
+		}
+
+		@Override
+		public K ceiling(K k){
+			return mapa.ceilingKey(k);
+		}
+
+		@Override
+		public K higher(K k){
+			return mapa.higherKey(k);
+		}
+
+		@Override
+		public K pollFirst(){
+			Map.Entry<K, ?> e = mapa.pollFirstEntry();
+			return e == null ? null : e.getKey();
+		}
+
+		@Override
+		public K pollLast(){
+			Map.Entry<K, ?> e = mapa.pollLastEntry();
+			return e == null ? null : e.getKey();
+		}
+
+		@Override
+		public NavigableSet<K> descendingSet(){
+			return mapa.descendingMap().navigableKeySet();
+		}
+
+		@Override
+		public NavigableSet<K> subSet(K desde, boolean desdeIncluido, K hasta, boolean hastaIncluido){
+			return mapa.subMap(desde, desdeIncluido, hasta, hastaIncluido).navigableKeySet();
+		}
+
+		@Override
+		public NavigableSet<K> headSet(K hasta, boolean incluido){
+			return mapa.headMap(hasta, incluido).navigableKeySet();
+		}
+
+		@Override
+		public NavigableSet<K> tailSet(K desde, boolean incluido){
+			return mapa.tailMap(desde, incluido).navigableKeySet();
+		}
+
+		@Override
+		public SortedSet<K> subSet(K desde, K hasta){
+			return subSet(desde, true, hasta, false);
+		}
+
+		@Override
+		public SortedSet<K> headSet(K hasta){
+			return headSet(hasta, false);
+		}
+
+		@Override
+		public SortedSet<K> tailSet(K desde){
+			return tailSet(desde, true);
+		}
+	}
+}
@@ -1,8 +1,38 @@
 package fciencias.edatos.practica06;
 
-import java.lang.Math;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.NoSuchElementException;
+import java.util.Objects;
 import java.util.Scanner;
+import java.util.Spliterator;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.function.BiFunction;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 import java.util.InputMismatchException;
+import javax.management.JMException;
 
 /**
 * Implementación de árbol AVL
@@ -10,24 +40,29 @@ import java.util.InputMismatchException;
 * @version 3.0 Noviembre 2021 (Anterior 2.0 Julio 2021).
 * @since Estructuras de Datos 2022-1.
 */
-public class AVLTree<K extends Comparable, T> implements TDABinarySearchTree<K, T>{
+public class AVLTree<K extends Comparable, T> implements TDABinarySearchTree<K, T>, Iterable<T>{
 
 	/**
-	 * Nodo de un arbol AVL.
+	 * Nodo de un arbol AVL. Es estático para no cargar una referencia al
+	 * árbol en cada nodo, y la altura cabe en un byte porque un AVL de 2^31
+	 * nodos mide menos de 46.
 	 */
-	public class AVLNode{
+	public static class AVLNode<K, T>{
 
 		/** Altura del nodo. */
-		public int altura;
+		public byte altura;
+
+		/** Número de nodos del subárbol con raiz en este nodo. */
+		public int tamanio;
 
 		/** Hijo izquierdo. */
-		public AVLNode izquierdo;
+		public AVLNode<K, T> izquierdo;
 
 		/** Hijo derecho. */
-		public AVLNode derecho;
+		public AVLNode<K, T> derecho;
 
 		/** Padre del nodo. */
-		public AVLNode padre;
+		public AVLNode<K, T> padre;
 
 		/** Elemento almacenado en el nodo. */
 		public T elemento;
@@ -35,118 +70,761 @@ public class AVLTree<K extends Comparable, T> implements TDABinarySearchTree<K,
 		/** Clave del nodo. */
 		public K clave;
 
+		/**
+		 * Con rebalanceo relajado, si este nodo o alguno de sus descendientes
+		 * puede estar desbalanceado. Cabe en el relleno del nodo.
+		 */
+		public boolean pendiente;
+
 		/**
 		 * Crea un nuevo nodo AVL
 		 * @param element el elemento a almacenar.
 		 * @param key la clave del nodo.
 		 * @param padre el padre del nodo
 		 */
-		public AVLNode(T element, K key, AVLNode padre){
+		public AVLNode(T element, K key, AVLNode<K, T> padre){
 			elemento = element;
 			clave = key;
 			this.padre = padre;
-			altura = this.getAltura();
+			altura = 0;	// Todo nodo nuevo es hoja
+			tamanio = 1;
 		}
 
 		/**
-		 * Calcula la altura del nodo.
+		 * Regresa la altura del nodo.
+		 * La altura se mantiene al día en cada inserción, eliminación y rotación,
+		 * por lo que basta con consultar el atributo.
 		 */
 		public int getAltura(){
-			// Si este nodo es hoja
-			if(izquierdo == null && derecho==null){
-				return 0;
-			} else if(izquierdo != null && derecho != null){ // Dos hijos
-				int max = izquierdo.getAltura() > derecho.getAltura() ? izquierdo.getAltura() : derecho.getAltura();
-				return 1 + max;
-			} else{ // Tiene solo un hijo
-				boolean tieneIzquierdo = izquierdo!=null;
-				return 1 + (tieneIzquierdo ? izquierdo.getAltura() : derecho.getAltura());
-			}
+			return altura;
 		}
 
 		/**
-		 * Actualiza la altura del nodo.
+		 * Actualiza la altura y el tamaño del nodo a partir de los de sus hijos.
 		 */
 		public void actualizaAltura(){
-			this.altura = this.getAltura();
+			int alturaIzq = izquierdo == null ? -1 : izquierdo.altura;
+			int alturaDer = derecho == null ? -1 : derecho.altura;
+			this.altura = (byte) (1 + (alturaIzq > alturaDer ? alturaIzq : alturaDer));
+			actualizaTamanio();
+		}
+
+		/**
+		 * Actualiza el tamaño del nodo a partir del de sus hijos.
+		 */
+		public void actualizaTamanio(){
+			this.tamanio = 1 + (izquierdo == null ? 0 : izquierdo.tamanio) + (derecho == null ? 0 : derecho.tamanio);
+		}
+	}
+
+	/**
+	 * Comparador por omisión, usa el orden natural de las claves.
+	 * Es una sola instancia para que el sitio de llamada sea monomórfico.
+	 */
+	@SuppressWarnings("unchecked")
+	private static final Comparator<Comparable> ORDEN_NATURAL = (a, b) -> a.compareTo(b);
+
+	/** Caracteres del búfer de los recorridos que imprimen y de export. */
+	private static final int TAMANIO_BUFER = 1 << 16;
+
+	/**
+	 * Máximo de niveles que el rebalanceo relajado deja pasar sobre la altura
+	 * de un AVL. Con la altura en un byte, los 43 niveles que mide a lo más
+	 * un AVL de 2^31 nodos más 64 caben todavía.
+	 */
+	private static final int MAXIMO_HOLGURA = 64;
+
+	/**
+	 * MINIMOS[h] es el menor número de nodos de un AVL de altura h, así que
+	 * un AVL de n nodos mide a lo más el último h con MINIMOS[h] &lt;= n.
+	 */
+	private static final int[] MINIMOS = new int[44];
+
+	/** Máximo de nodos en la reserva de reciclaje de cada hilo. */
+	private static final int MAXIMO_RESERVA = 1024;
+
+	/**
+	 * Nodos quitados listos para reusarse, una reserva por hilo para no
+	 * sincronizar. Todos los árboles con reciclaje activado toman y dejan
+	 * nodos en la reserva del hilo que los modifica.
+	 */
+	private static final ThreadLocal<Reserva> RESERVA = ThreadLocal.withInitial(Reserva::new);
+
+	/** Pila acotada de nodos libres. */
+	private static final class Reserva{
+
+		final AVLNode<?, ?>[] nodos = new AVLNode<?, ?>[MAXIMO_RESERVA];
+
+		int cuantos;
+	}
+
+	static{
+		MINIMOS[0] = 1;
+		MINIMOS[1] = 2;
+		for(int h = 2; h < MINIMOS.length; h++)
+			MINIMOS[h] = MINIMOS[h - 1] + MINIMOS[h - 2] + 1;
+	}
+
+	private AVLNode<K, T> raiz;
+
+	/** Comparador con el que se ordenan las claves. */
+	private final Comparator<? super K> orden;
+
+	/**
+	 * Comparador que usan las operaciones: orden, o con las métricas
+	 * activadas uno que además las cuenta.
+	 */
+	private Comparator<? super K> comparador;
+
+	/** Métricas del árbol, null si están desactivadas. */
+	private AVLTreeMetrics metricas;
+
+	/** Si retrieve empieza a buscar desde el último nodo visitado. */
+	private boolean usaDedo;
+
+	/** Último nodo visitado por retrieve, null si hay que empezar en la raiz. */
+	private AVLNode<K, T> dedo;
+
+	/** Caché de claves recientes de retrieve, null si está desactivado. */
+	private CacheFrontal cache;
+
+	/**
+	 * Con rebalanceo relajado, cuántos niveles puede pasar la altura de la
+	 * máxima de un AVL; 0 si el rebalanceo es inmediato.
+	 */
+	private int holgura;
+
+	/** Escrituras hechas desde que el árbol dejó de estar balanceado. */
+	private int pendientes;
+
+	/** Si los nodos quitados se reciclan, ver enableNodeRecycling. */
+	private boolean recicla;
+
+	/**
+	 * Crea un árbol AVL vacío ordenado por el orden natural de las claves.
+	 */
+	public AVLTree(){
+		this(null);
+	}
+
+	/**
+	 * Crea un árbol AVL vacío ordenado con un comparador.
+	 * @param comparador el comparador de claves, null para usar el orden natural.
+	 */
+	@SuppressWarnings("unchecked")
+	public AVLTree(Comparator<? super K> comparador){
+		this.orden = comparador != null ? comparador : (Comparator<? super K>) ORDEN_NATURAL;
+		this.comparador = orden;
+	}
+
+	/**
+	 * Regresa el comparador con el que se ordenan las claves.
+	 * @return el comparador del árbol.
+	 */
+	public Comparator<? super K> comparador(){
+		return orden;
+	}
+
+	/**
+	 * Activa las métricas del árbol, o regresa las que ya estaban activas.
+	 * Con las métricas activadas cada comparación, rotación y rebalanceo se
+	 * cuenta; desactivadas, las operaciones solo revisan que sean null.
+	 * @return las métricas del árbol.
+	 */
+	public AVLTreeMetrics enableMetrics(){
+		if(metricas == null){
+			AVLTreeMetrics nuevas = new AVLTreeMetrics(this);
+			Comparator<? super K> base = orden;
+			comparador = (a, b) -> {
+				nuevas.comparaciones.increment();
+				return base.compare(a, b);
+			};
+			metricas = nuevas;
 		}
+		return metricas;
+	}
+
+	/**
+	 * Desactiva las métricas del árbol y las quita de JMX si estaban
+	 * registradas. Los contadores dejan de cambiar.
+	 */
+	public void disableMetrics(){
+		if(metricas == null)
+			return;
+		try{
+			metricas.unregister();
+		}catch(JMException e){
+			// Ya no está en el servidor, no hay nada más que quitar
+		}
+		comparador = orden;
+		metricas = null;
+	}
+
+	/**
+	 * Regresa las métricas activas del árbol.
+	 * @return las métricas, o null si están desactivadas.
+	 */
+	public AVLTreeMetrics metrics(){
+		return metricas;
 	}
 
-	private AVLNode raiz;
+	/**
+	 * Regresa la altura del árbol.
+	 * @return la altura, -1 si el árbol es vacío.
+	 */
+	public int altura(){
+		return altura(raiz);
+	}
 
 	@Override
 	public T retrieve(K k){
-		AVLNode node = retrieve(k,raiz);
+		AVLNode<K, T> node = cache == null && !usaDedo ? retrieve(k,raiz) : retrieveCercano(k);
 		if(node == null)
 			return null;
 		return node.elemento;
 	}
 
 	/**
-	 * Obtenia el nodo con una clave específica.
-	 * @param k la clave a buscar
-	 * @param actual el nodo actual
+	 * Activa la búsqueda con dedo: retrieve empieza desde el último nodo que
+	 * visitó y sube por los padres solo lo necesario para que la clave quede
+	 * dentro del subárbol, en vez de bajar siempre desde la raiz. Buscar una
+	 * clave a d posiciones de la anterior cuesta O(log d), lo que conviene
+	 * cuando las consultas van en orden o cerca unas de otras; con consultas
+	 * al azar sube casi hasta la raiz y cuesta un poco más que sin dedo.
+	 */
+	public void enableFingerSearch(){
+		usaDedo = true;
+	}
+
+	/**
+	 * Desactiva la búsqueda con dedo.
+	 */
+	public void disableFingerSearch(){
+		usaDedo = false;
+		dedo = null;
+	}
+
+	/**
+	 * Activa un caché de mapeo directo delante de retrieve: cada clave
+	 * encontrada se guarda en la casilla que le toca según su hashCode, y
+	 * una consulta que la encuentra ahí no baja por el árbol. Sirve cuando
+	 * pocas claves concentran las consultas. delete solo quita la casilla
+	 * del nodo que sale, porque ningún nodo cambia de clave; split, join y
+	 * las operaciones de conjuntos lo invalidan completo.
+	 * @param casillas el número de casillas, se redondea a una potencia de 2.
+	 * @throws IllegalArgumentException si casillas no es positivo.
+	 */
+	public void enableFrontCache(int casillas){
+		if(casillas <= 0)
+			throw new IllegalArgumentException("El caché necesita al menos una casilla");
+		cache = new CacheFrontal(Integer.highestOneBit(Math.min(casillas, 1 << 30) * 2 - 1));
+	}
+
+	/**
+	 * Desactiva el caché de retrieve.
+	 */
+	public void disableFrontCache(){
+		cache = null;
+	}
+
+	/**
+	 * Activa el rebalanceo relajado para ráfagas de escrituras: insert y
+	 * delete siguen actualizando alturas y tamaños hasta la raiz pero no
+	 * rotan; marcan el primer nodo desbalanceado de su camino y a sus
+	 * ancestros, y las rotaciones se hacen juntas en drainRebalance. Las
+	 * búsquedas, rank, select y los recorridos siguen siendo correctos porque
+	 * el orden de las claves no cambia, solo puede costar más bajar. Si una
+	 * escritura deja al árbol más alto que el AVL más alto con los mismos
+	 * nodos más holgura, rebalancea ella misma; así, después de cada
+	 * escritura la altura está acotada por 1.44 log2(n + 2) + holgura. Con
+	 * claves al azar la altura casi no crece y las ráfagas rara vez llegan a
+	 * la cota; con claves crecientes cada escritura puede sumar un nivel.
+	 * split, join, las operaciones de conjuntos y save rebalancean antes de
+	 * empezar.
+	 * @param holgura cuántos niveles de más se permiten, entre 1 y 64.
+	 * @throws IllegalArgumentException si holgura está fuera de rango.
+	 */
+	public void enableRelaxedBalance(int holgura){
+		if(holgura < 1 || holgura > MAXIMO_HOLGURA)
+			throw new IllegalArgumentException("La holgura debe estar entre 1 y " + MAXIMO_HOLGURA + ": " + holgura);
+		this.holgura = holgura;
+	}
+
+	/**
+	 * Hace las rotaciones pendientes y vuelve al rebalanceo inmediato.
+	 */
+	public void disableRelaxedBalance(){
+		drainRebalance();
+		holgura = 0;
+	}
+
+	/**
+	 * Hace las rotaciones pendientes del rebalanceo relajado. Baja solo por
+	 * los nodos marcados y rearma cada uno uniendo sus dos subárboles, ya
+	 * balanceados, con une; un subárbol sin marca ya es AVL. Al terminar el
+	 * árbol vuelve a ser AVL. Los nodos no cambian de clave, así que el dedo
+	 * y el caché siguen sirviendo.
+	 * @return cuántas escrituras estaban pendientes.
+	 */
+	public int drainRebalance(){
+		int drenadas = pendientes;
+		if(raiz != null && raiz.pendiente)
+			raiz = sinPadre(repara(raiz));
+		pendientes = 0;
+		return drenadas;
+	}
+
+	/**
+	 * Regresa cuántas escrituras esperan a drainRebalance.
+	 * @return las escrituras pendientes, 0 con rebalanceo inmediato.
+	 */
+	public int pendingRebalance(){
+		return pendientes;
+	}
+
+	/**
+	 * Activa el reciclaje de nodos: delete deja el nodo quitado, limpio de
+	 * clave y elemento para no retenerlos, en una reserva acotada del hilo, e
+	 * insert lo reusa en vez de crear uno nuevo. Con ventanas deslizantes,
+	 * donde cada inserción viene con una eliminación, el árbol deja de crear
+	 * basura. Una referencia a un nodo quitado deja de servir porque el nodo
+	 * puede volver al árbol con otra clave.
+	 */
+	public void enableNodeRecycling(){
+		recicla = true;
+	}
+
+	/**
+	 * Desactiva el reciclaje de nodos. Los que ya están en la reserva se
+	 * quedan ahí para otros árboles del mismo hilo.
+	 */
+	public void disableNodeRecycling(){
+		recicla = false;
+	}
+
+	/**
+	 * Crea un nodo hoja, o lo toma de la reserva si hay reciclaje.
+	 * @param e el elemento.
+	 * @param k la clave.
+	 * @param padre el padre del nodo.
+	 * @return el nodo.
+	 */
+	@SuppressWarnings("unchecked")
+	private AVLNode<K, T> nuevoNodo(T e, K k, AVLNode<K, T> padre){
+		if(recicla){
+			Reserva reserva = RESERVA.get();
+			if(reserva.cuantos > 0){
+				AVLNode<K, T> nodo = (AVLNode<K, T>) reserva.nodos[--reserva.cuantos];
+				reserva.nodos[reserva.cuantos] = null;
+				// desengancha ya dejó en null los apuntadores y la marca
+				nodo.elemento = e;
+				nodo.clave = k;
+				nodo.padre = padre;
+				nodo.altura = 0;
+				nodo.tamanio = 1;
+				return nodo;
+			}
+		}
+		return new AVLNode<>(e, k, padre);
+	}
+
+	/**
+	 * Limpia un nodo quitado y lo deja en la reserva si cabe.
+	 * @param nodo el nodo, ya fuera del árbol.
+	 */
+	private void guarda(AVLNode<K, T> nodo){
+		nodo.elemento = null;
+		nodo.clave = null;
+		Reserva reserva = RESERVA.get();
+		if(reserva.cuantos < MAXIMO_RESERVA)
+			reserva.nodos[reserva.cuantos++] = nodo;
+	}
+
+	/**
+	 * Rebalancea un subárbol marcado de abajo hacia arriba.
+	 * @param nodo la raiz del subárbol.
+	 * @return la nueva raiz, sin padre si cambió.
+	 */
+	private AVLNode<K, T> repara(AVLNode<K, T> nodo){
+		if(nodo == null || !nodo.pendiente)
+			return nodo;
+		nodo.pendiente = false;
+		AVLNode<K, T> izq = repara(nodo.izquierdo);
+		AVLNode<K, T> der = repara(nodo.derecho);
+		return une(izq, nodo, der);
+	}
+
+	/**
+	 * Busca con el caché y el dedo que estén activos.
+	 * @param k la clave a buscar.
 	 * @return el nodo con clave k o null si no existe.
 	 */
-	private AVLNode retrieve(K k, AVLNode actual){
-		// Verificamos que actual es null
+	private AVLNode<K, T> retrieveCercano(K k){
+		CacheFrontal c = cache;
+		int casilla = 0;
+		if(c != null){
+			casilla = c.casilla(k);
+			AVLNode<K, T> nodo = c.busca(casilla, k);
+			if(nodo != null){
+				if(usaDedo)
+					dedo = nodo;
+				return nodo;
+			}
+		}
+		AVLNode<K, T> nodo = usaDedo ? retrieveConDedo(k) : retrieve(k, raiz);
+		if(c != null && nodo != null)
+			c.guarda(casilla, nodo);
+		return nodo;
+	}
+
+	/**
+	 * Busca desde el dedo. Si la clave es mayor que la del dedo sube hasta el
+	 * primer ancestro del que se llega por la izquierda con una clave mayor;
+	 * el subárbol de ese hijo cubre de la clave del dedo a la del ancestro, así
+	 * que ahí debe estar. El caso menor es simétrico. Deja el dedo en el nodo
+	 * encontrado o en el último que visitó.
+	 * @param k la clave a buscar.
+	 * @return el nodo con clave k o null si no existe.
+	 */
+	private AVLNode<K, T> retrieveConDedo(K k){
+		Comparator<? super K> cmp = comparador;
+		AVLNode<K, T> actual = dedo != null ? dedo : raiz;
 		if(actual == null)
 			return null;
 
-		int compare = k.compareTo(actual.clave);
-
-		// Si existe el elemento
-		if(compare == 0){
+		int compare = cmp.compare(k, actual.clave);
+		if(compare == 0)
 			return actual;
+		boolean mayor = compare > 0;
+		while(actual.padre != null){
+			AVLNode<K, T> padre = actual.padre;
+			// Del lado por el que subimos solo importa si el padre acota a k
+			if((padre.izquierdo == actual) == mayor){
+				compare = cmp.compare(k, padre.clave);
+				if(compare == 0){
+					dedo = padre;
+					return padre;
+				}
+				if((compare < 0) == mayor)
+					break;
+			}
+			actual = padre;
+		}
+
+		// Bajamos desde ahí guardando el último nodo visitado
+		AVLNode<K, T> ultimo = actual;
+		while(actual != null){
+			compare = cmp.compare(k, actual.clave);
+			if(compare == 0){
+				dedo = actual;
+				return actual;
+			}
+			ultimo = actual;
+			actual = compare < 0 ? actual.izquierdo : actual.derecho;
+		}
+		dedo = ultimo;
+		return null;
+	}
+
+	/**
+	 * Olvida el dedo e invalida el caché. Se llama cuando muchos nodos pueden
+	 * salir del árbol a la vez, como en split, join y las operaciones de
+	 * conjuntos.
+	 */
+	private void olvidaAccesos(){
+		dedo = null;
+		if(cache != null)
+			cache.invalida();
+	}
+
+	/**
+	 * Olvida un nodo que salió del árbol: si era el dedo se empieza otra vez
+	 * desde la raiz, y si estaba en el caché se quita su casilla. Los demás
+	 * nodos no cambian de clave, así que el resto del caché sigue sirviendo.
+	 * @param nodo el nodo quitado.
+	 */
+	private void olvida(AVLNode<K, T> nodo){
+		if(dedo == nodo)
+			dedo = null;
+		if(cache != null)
+			cache.quita(nodo);
+	}
+
+	/**
+	 * Caché de mapeo directo de nodos por clave. Cada casilla guarda un nodo
+	 * y la generación en que se guardó; invalidar todo es solo cambiar de
+	 * generación.
+	 */
+	private class CacheFrontal{
+
+		private final Object[] nodos;
+
+		private final int[] generaciones;
+
+		private final int mascara;
+
+		/** Generación actual, las casillas de otra generación están vacías. */
+		private int generacion = 1;
+
+		CacheFrontal(int casillas){
+			nodos = new Object[casillas];
+			generaciones = new int[casillas];
+			mascara = casillas - 1;
+		}
+
+		int casilla(K k){
+			int h = k.hashCode();
+			return (h ^ (h >>> 16)) & mascara;
+		}
+
+		@SuppressWarnings("unchecked")
+		AVLNode<K, T> busca(int casilla, K k){
+			if(generaciones[casilla] != generacion)
+				return null;
+			AVLNode<K, T> nodo = (AVLNode<K, T>) nodos[casilla];
+			return comparador.compare(k, nodo.clave) == 0 ? nodo : null;
+		}
+
+		void guarda(int casilla, AVLNode<K, T> nodo){
+			nodos[casilla] = nodo;
+			generaciones[casilla] = generacion;
+		}
+
+		void quita(AVLNode<K, T> nodo){
+			int casilla = casilla(nodo.clave);
+			if(generaciones[casilla] == generacion && nodos[casilla] == nodo)
+				generaciones[casilla] = 0;
 		}
 
-		if(compare < 0){ // Caso del hijo izquiero
-			return retrieve(k, actual.izquierdo);
-		} else { // Caso del hijo derecho
-			return retrieve(k, actual.derecho);
+		void invalida(){
+			if(++generacion == 0){
+				// Dio la vuelta: limpiamos para que ninguna casilla vieja coincida
+				Arrays.fill(generaciones, 0);
+				Arrays.fill(nodos, null);
+				generacion = 1;
+			}
 		}
 	}
 
+	/**
+	 * Obtenia el nodo con una clave específica.
+	 * @param k la clave a buscar
+	 * @param actual el nodo desde donde se empieza a buscar
+	 * @return el nodo con clave k o null si no existe.
+	 */
+	private AVLNode<K, T> retrieve(K k, AVLNode<K, T> actual){
+		Comparator<? super K> cmp = comparador;
+
+		// Bajamos hasta encontrar la clave o caer en null
+		while(actual != null){
+			int compare = cmp.compare(k, actual.clave);
+
+			if(compare == 0) // Si existe el elemento
+				return actual;
+
+			actual = compare < 0 ? actual.izquierdo : actual.derecho;
+		}
+		return null;
+	}
+
+	/**
+	 * Inserta un nuevo elemento al árbol. Si la clave ya está solo se
+	 * reemplaza su elemento, así el árbol tiene a lo más un nodo por clave.
+	 * @param e el elemento a ingresar.
+	 * @param k la clave del elemento a ingresar.
+	 */
 	@Override
 	public void insert(T e, K k){
-		if(raiz == null){ // Arbol vacío
-			raiz = new AVLNode(e, k, null);
+		put(k, e);
+	}
+
+	/**
+	 * Asocia un elemento a una clave bajando una sola vez. Si la clave ya
+	 * está se reemplaza el elemento y no se toca la estructura; si no, se
+	 * cuelga un nodo nuevo y se rebalancea.
+	 * @param k la clave.
+	 * @param e el elemento.
+	 * @return el elemento que tenía la clave o null si no estaba.
+	 */
+	public T put(K k, T e){
+		Comparator<? super K> cmp = comparador;
+		AVLNode<K, T> actual = raiz;
+		int compare = 0;
+
+		while(actual != null){
+			compare = cmp.compare(k, actual.clave);
+			if(compare == 0){ // Ya está, solo cambia el elemento
+				T anterior = actual.elemento;
+				actual.elemento = e;
+				return anterior;
+			}
+			AVLNode<K, T> hijo = compare < 0 ? actual.izquierdo : actual.derecho;
+			if(hijo == null)
+				break;
+			actual = hijo;
+		}
+		cuelga(e, k, actual, compare);
+		return null;
+	}
+
+	/**
+	 * Asocia un elemento a una clave solo si la clave no está.
+	 * @param k la clave.
+	 * @param e el elemento.
+	 * @return el elemento que ya tenía la clave, o null si se insertó.
+	 */
+	public T putIfAbsent(K k, T e){
+		AVLNode<K, T> nodo = ubica(k);
+		int compare = nodo == null ? 0 : comparador.compare(k, nodo.clave);
+		if(nodo != null && compare == 0)
+			return nodo.elemento;
+		cuelga(e, k, nodo, compare);
+		return null;
+	}
+
+	/**
+	 * Calcula el nuevo elemento de una clave a partir del actual (null si no
+	 * está) bajando una sola vez. Si la función regresa null la clave se
+	 * quita; si no, se reemplaza o se inserta. La función no debe modificar
+	 * el árbol.
+	 * @param k la clave.
+	 * @param funcion recibe la clave y el elemento actual.
+	 * @return el nuevo elemento o null si la clave quedó fuera.
+	 */
+	public T compute(K k, BiFunction<? super K, ? super T, ? extends T> funcion){
+		AVLNode<K, T> nodo = ubica(k);
+		int compare = nodo == null ? 0 : comparador.compare(k, nodo.clave);
+		boolean esta = nodo != null && compare == 0;
+		T nuevo = funcion.apply(k, esta ? nodo.elemento : null);
+		return asigna(k, nuevo, nodo, compare, esta);
+	}
+
+	/**
+	 * Si la clave no está le asocia valor; si está, combina su elemento con
+	 * valor. Si la combinación regresa null la clave se quita. Baja una sola
+	 * vez y la función no debe modificar el árbol.
+	 * @param k la clave.
+	 * @param valor el elemento a insertar o combinar, no puede ser null.
+	 * @param funcion recibe el elemento actual y valor.
+	 * @return el nuevo elemento o null si la clave quedó fuera.
+	 */
+	public T merge(K k, T valor, BiFunction<? super T, ? super T, ? extends T> funcion){
+		Objects.requireNonNull(valor);
+		AVLNode<K, T> nodo = ubica(k);
+		int compare = nodo == null ? 0 : comparador.compare(k, nodo.clave);
+		boolean esta = nodo != null && compare == 0;
+		T nuevo = esta ? funcion.apply(nodo.elemento, valor) : valor;
+		return asigna(k, nuevo, nodo, compare, esta);
+	}
+
+	/**
+	 * Quita la clave solo si su elemento es igual (con equals) a valor.
+	 * @param k la clave.
+	 * @param valor el elemento esperado.
+	 * @return true si se quitó.
+	 */
+	public boolean remove(K k, T valor){
+		AVLNode<K, T> nodo = retrieve(k, raiz);
+		if(nodo == null || !Objects.equals(nodo.elemento, valor))
+			return false;
+		eliminaNodo(nodo);
+		return true;
+	}
+
+	/**
+	 * Baja hacia k y regresa el nodo con la clave, o el último nodo visitado
+	 * si no está (el que sería su padre).
+	 * @param k la clave.
+	 * @return el nodo, null solo si el árbol es vacío.
+	 */
+	private AVLNode<K, T> ubica(K k){
+		Comparator<? super K> cmp = comparador;
+		AVLNode<K, T> actual = raiz;
+		while(actual != null){
+			int compare = cmp.compare(k, actual.clave);
+			AVLNode<K, T> hijo = compare < 0 ? actual.izquierdo : compare > 0 ? actual.derecho : null;
+			if(hijo == null)
+				return actual;
+			actual = hijo;
+		}
+		return null;
+	}
+
+	/**
+	 * Aplica el resultado de compute o merge sobre lo que encontró ubica.
+	 * @param k la clave.
+	 * @param nuevo el nuevo elemento, null para quitar la clave.
+	 * @param nodo lo que regresó ubica.
+	 * @param compare la comparación de k con la clave de nodo.
+	 * @param esta si nodo tiene la clave k.
+	 * @return nuevo.
+	 */
+	private T asigna(K k, T nuevo, AVLNode<K, T> nodo, int compare, boolean esta){
+		if(nuevo == null){
+			if(esta)
+				eliminaNodo(nodo);
+		} else if(esta){
+			nodo.elemento = nuevo;
+		} else {
+			cuelga(nuevo, k, nodo, compare);
+		}
+		return nuevo;
+	}
+
+	/**
+	 * Cuelga un nodo nuevo debajo de padre y rebalancea desde él.
+	 * @param e el elemento.
+	 * @param k la clave.
+	 * @param padre el padre, null si el árbol es vacío.
+	 * @param compare la comparación de k con la clave de padre.
+	 */
+	private void cuelga(T e, K k, AVLNode<K, T> padre, int compare){
+		AVLNode<K, T> nuevo = nuevoNodo(e, k, padre);
+		if(padre == null){ // Arbol vacío
+			raiz = nuevo;
 			return;
 		}
-		AVLNode v = insert(e, k, raiz);
+		if(compare < 0)
+			padre.izquierdo = nuevo;
+		else
+			padre.derecho = nuevo;
 
-		// Rebalancear a partir de v hasta raiz
-		rebalancea(v);
+		// Rebalancear a partir del nuevo hasta raiz
+		rebalancea(nuevo);
 	}
 
 	/**
-	 * Inserta un nodo de forma recursiva.
+	 * Inserta un nodo bajando iterativamente desde actual.
+	 * Las claves iguales se van a la derecha: a diferencia de insert(e, k)
+	 * no reemplaza, y quien la llame debe rebalancear desde el nodo regresado.
 	 * @param e el elemento a insertar
 	 * @param k es la clave del nodo a insertar
-	 * @param actual el nodo actual
-	 * @return 
-	 */
-	public AVLNode insert(T e, K k, AVLNode actual){
-		if(k.compareTo(actual.clave)<0){ // Verificamos sobre el izquierdo
-			if(actual.izquierdo == null){ // Insertamos en esa posición
-				actual.izquierdo = new AVLNode(e, k, actual);
-				return actual.izquierdo;
-			} else { // Recursión sobre el izquierdo
-				return insert(e, k, actual.izquierdo);
-			}
-		} else{ // Verificamos sobre la derecha
-			if(actual.derecho == null){ // Insertamos en esa posición
-				actual.derecho = new AVLNode(e, k, actual);
-				return actual.derecho;
-			} else { // Recursión sobre el derecho
-				return insert(e, k, actual.derecho);
+	 * @param actual el nodo desde donde se empieza a bajar
+	 * @return el nodo insertado.
+	 */
+	public AVLNode<K, T> insert(T e, K k, AVLNode<K, T> actual){
+		Comparator<? super K> cmp = comparador;
+
+		while(true){
+			if(cmp.compare(k, actual.clave)<0){ // Verificamos sobre el izquierdo
+				if(actual.izquierdo == null){ // Insertamos en esa posición
+					actual.izquierdo = nuevoNodo(e, k, actual);
+					return actual.izquierdo;
+				}
+				actual = actual.izquierdo;
+			} else{ // Verificamos sobre la derecha
+				if(actual.derecho == null){ // Insertamos en esa posición
+					actual.derecho = nuevoNodo(e, k, actual);
+					return actual.derecho;
+				}
+				actual = actual.derecho;
 			}
 		}
 	}
 
 	@Override
 	public T delete(K k){
-		AVLNode v = retrieve(k, raiz);
+		AVLNode<K, T> v = retrieve(k, raiz);
 
 		// El elemento que queremos eliminar no está en el árbol
 		if(v == null){
@@ -154,599 +832,1692 @@ public class AVLTree<K extends Comparable, T> implements TDABinarySearchTree<K,
 		}
 
 		T eliminado = v.elemento;
-
-		// Eliminar con auxiliar
-		AVLNode w = delete(v);
-
-		// Rebalancear
-		rebalancea(w);
-
+		eliminaNodo(v);
 		return eliminado;
 	}
 
-	private AVLNode delete(AVLNode v){
-		if(v.izquierdo!=null && v.derecho!=null){ // Tiene dos hijos
-			AVLNode mayor = findMax(v.izquierdo);
-			swap(mayor, v);
-			return delete(mayor);
-		} else if(v.izquierdo==null && v.derecho==null){ // No tiene hijos
-			boolean esIzquierdo = v.padre.izquierdo==v;
-			if(esIzquierdo){
-				v.padre.izquierdo = null;
-			} else{
-				v.padre.derecho = null;
-			}
-			return v.padre;
-		} else{ // Sólo tiene un hijo
-			boolean hijoIzquierdo = v.izquierdo!=null;
-			if(hijoIzquierdo){
-				swap(v, v.izquierdo);
-				return delete(v.izquierdo);
-			} else{
-				swap(v, v.derecho);
-				return delete(v.derecho);
+	/**
+	 * Quita un nodo del árbol y rebalancea. El nodo conserva su clave y su
+	 * elemento pero queda sin padre ni hijos, salvo con reciclaje, que lo
+	 * limpia y lo deja en la reserva; ningún otro nodo cambia de clave, así
+	 * que las referencias a los demás nodos siguen sirviendo.
+	 * @param v el nodo a quitar.
+	 */
+	void eliminaNodo(AVLNode<K, T> v){
+		AVLNode<K, T> inicio = desengancha(v);
+		olvida(v);
+
+		// Rebalancear solo el camino que cambió
+		rebalancea(inicio);
+		if(recicla)
+			guarda(v);
+	}
+
+	/**
+	 * Saca un nodo del árbol cambiando apuntadores, sin mover claves. Con a
+	 * lo más un hijo, el hijo toma su lugar; con dos, su predecesor en
+	 * inorden sale de donde estaba y lo sustituye con su altura y tamaño.
+	 * @param v el nodo a sacar.
+	 * @return el nodo más bajo cuyo subárbol cambió, desde donde se
+	 * rebalancea, o null si v era la raiz con a lo más un hijo.
+	 */
+	private AVLNode<K, T> desengancha(AVLNode<K, T> v){
+		AVLNode<K, T> inicio;
+		if(v.izquierdo == null || v.derecho == null){ // A lo más un hijo
+			inicio = v.padre;
+			reemplaza(v, v.izquierdo != null ? v.izquierdo : v.derecho);
+		} else { // Tiene dos hijos
+			AVLNode<K, T> predecesor = findMax(v.izquierdo);
+			if(predecesor == v.izquierdo){
+				inicio = predecesor;
+			} else {
+				// El predecesor no tiene hijo derecho, su hijo izquierdo sube
+				inicio = predecesor.padre;
+				inicio.derecho = predecesor.izquierdo;
+				if(predecesor.izquierdo != null)
+					predecesor.izquierdo.padre = inicio;
+				predecesor.izquierdo = v.izquierdo;
+				v.izquierdo.padre = predecesor;
 			}
+			predecesor.derecho = v.derecho;
+			v.derecho.padre = predecesor;
+			predecesor.altura = v.altura;
+			predecesor.tamanio = v.tamanio;
+			predecesor.pendiente = v.pendiente;
+			reemplaza(v, predecesor);
 		}
+		v.padre = v.izquierdo = v.derecho = null;
+		v.pendiente = false;
+		return inicio;
+	}
+
+	/**
+	 * Pone a otro en el lugar de v bajo el padre de v, o como raiz.
+	 * @param v el nodo que sale.
+	 * @param otro el nodo que entra, puede ser null.
+	 */
+	private void reemplaza(AVLNode<K, T> v, AVLNode<K, T> otro){
+		AVLNode<K, T> padre = v.padre;
+		if(otro != null)
+			otro.padre = padre;
+		if(padre == null)
+			raiz = otro;
+		else if(padre.izquierdo == v)
+			padre.izquierdo = otro;
+		else
+			padre.derecho = otro;
+	}
+
+	/**
+	 * Indica si un nodo sigue en el árbol. Los nodos quitados se quedan sin
+	 * padre, así que basta ver que tenga padre o sea la raiz.
+	 * @param nodo el nodo.
+	 * @return true si está en el árbol.
+	 */
+	boolean contiene(AVLNode<K, T> nodo){
+		return nodo.padre != null || nodo == raiz;
 	}
 
 	@Override
 	public T findMin(){
-		return findMin(raiz).elemento;
+		AVLNode<K, T> minimo = findMin(raiz);
+		return minimo == null ? null : minimo.elemento;
 	}
 
 	/**
 	 * Método auxiliar para findMin
+	 * @param node la raiz del subarbol donde se busca.
+	 * @return el nodo con clave menor del subarbol, null si es vacío.
 	 * */
-	private AVLNode findMin(AVLNode node){
+	private AVLNode<K, T> findMin(AVLNode<K, T> node){
 		// Verificar que no sea vacío -> return null
 		if(node==null)
 			return null;
 
-		AVLNode minimo = node;
-
 		// Mientras sí tenga hijo izquierdo -> Que actual se mueva al izquierdo
-		if(node.izquierdo!=null)
-			minimo = findMin(node.izquierdo);
-		else
-			return minimo;	// Ya encontramos al nodo con clave menor
+		while(node.izquierdo!=null)
+			node = node.izquierdo;
 
-		return minimo;
+		return node;
 	}
 
 	@Override
 	public T findMax(){
-		return findMax(raiz).elemento;
+		AVLNode<K, T> maximo = findMax(raiz);
+		return maximo == null ? null : maximo.elemento;
 	}
 
 	/**
 	 * Método auxiliar para findMax.
+	 * @param node la raiz del subarbol donde se busca.
+	 * @return el nodo con clave mayor del subarbol, null si es vacío.
 	 * */
-	private AVLNode findMax(AVLNode node){
+	private AVLNode<K, T> findMax(AVLNode<K, T> node){
 		// Verificar que no sea vacío -> return null
 		if(node==null)
 			return null;
 
-		AVLNode maximo = node;
+		// Mientras sí tenga hijo derecho -> Que actual se mueva al derecho
+		while(node.derecho!=null)
+			node = node.derecho;
 
-		// Mientras sí tenga hijo derecha -> Que actual se mueva al derecho
-		if(node.derecho!=null)
-			maximo = findMax(node.derecho);
-		else
-			return maximo;	// Ya encontramos al nodo con clave mayor
+		return node;
+	}
 
-		return maximo;
+	/**
+	 * Recupera el elemento con la mayor clave menor o igual que k.
+	 * @param k la clave de referencia, no tiene que estar en el árbol.
+	 * @return el elemento o null si todas las claves son mayores que k.
+	 */
+	public T floor(K k){
+		return elemento(vecino(k, false, true));
 	}
 
 	/**
-	 * Método auxiliar para delete, hace cambio entre 2 nodos.
-	 * */
-	private void swap(AVLNode v, AVLNode w){
-		T value = v.elemento;
-		K clave = v.clave;
-		v.elemento = w.elemento;
-		v.clave = w.clave;
-		w.elemento = value;
-		w.clave = clave;
+	 * Recupera el elemento con la menor clave mayor o igual que k.
+	 * @param k la clave de referencia, no tiene que estar en el árbol.
+	 * @return el elemento o null si todas las claves son menores que k.
+	 */
+	public T ceiling(K k){
+		return elemento(vecino(k, true, true));
+	}
+
+	/**
+	 * Recupera el elemento con la menor clave estrictamente mayor que k.
+	 * @param k la clave de referencia, no tiene que estar en el árbol.
+	 * @return el elemento o null si ninguna clave es mayor que k.
+	 */
+	public T higher(K k){
+		return elemento(vecino(k, true, false));
+	}
+
+	/**
+	 * Recupera el elemento con la mayor clave estrictamente menor que k.
+	 * @param k la clave de referencia, no tiene que estar en el árbol.
+	 * @return el elemento o null si ninguna clave es menor que k.
+	 */
+	public T lower(K k){
+		return elemento(vecino(k, false, false));
+	}
+
+	/**
+	 * Regresa la entrada con la menor clave.
+	 * @return la clave y su elemento, o null si el árbol es vacío.
+	 */
+	public Map.Entry<K, T> firstEntry(){
+		return entrada(findMin(raiz));
+	}
+
+	/**
+	 * Regresa la entrada con la mayor clave.
+	 * @return la clave y su elemento, o null si el árbol es vacío.
+	 */
+	public Map.Entry<K, T> lastEntry(){
+		return entrada(findMax(raiz));
+	}
+
+	/**
+	 * Quita y regresa la entrada con la menor clave, bajando una sola vez.
+	 * Con esto el árbol sirve como cola de prioridad.
+	 * @return la clave y su elemento, o null si el árbol es vacío.
+	 */
+	public Map.Entry<K, T> pollFirst(){
+		return quita(findMin(raiz));
+	}
+
+	/**
+	 * Quita y regresa la entrada con la mayor clave, bajando una sola vez.
+	 * @return la clave y su elemento, o null si el árbol es vacío.
+	 */
+	public Map.Entry<K, T> pollLast(){
+		return quita(findMax(raiz));
+	}
+
+	/**
+	 * Busca el vecino de k en una sola bajada: el nodo con la menor clave
+	 * mayor (o la mayor clave menor) que k, incluyendo o no a k. Cada nodo
+	 * que cumple es mejor que el anterior, porque está más abajo del lado de k.
+	 * @param k la clave de referencia.
+	 * @param mayor si se busca hacia las claves mayores.
+	 * @param inclusivo si una clave igual a k cuenta.
+	 * @return el nodo vecino o null si no hay.
+	 */
+	AVLNode<K, T> vecino(K k, boolean mayor, boolean inclusivo){
+		Comparator<? super K> cmp = comparador;
+		AVLNode<K, T> actual = raiz;
+		AVLNode<K, T> mejor = null;
+		while(actual != null){
+			int compare = cmp.compare(k, actual.clave);
+			if(compare == 0 && inclusivo)
+				return actual;
+			if(mayor ? compare < 0 : compare > 0){
+				// actual cumple, buscamos uno más cercano a k
+				mejor = actual;
+				actual = mayor ? actual.izquierdo : actual.derecho;
+			} else {
+				actual = mayor ? actual.derecho : actual.izquierdo;
+			}
+		}
+		return mejor;
+	}
+
+	/**
+	 * Regresa el sucesor en inorden de un nodo subiendo por los padres si
+	 * hace falta.
+	 * @param nodo el nodo.
+	 * @return el sucesor o null si nodo es el último.
+	 */
+	AVLNode<K, T> sucesor(AVLNode<K, T> nodo){
+		if(nodo.derecho != null)
+			return findMin(nodo.derecho);
+		while(nodo.padre != null && nodo.padre.derecho == nodo)
+			nodo = nodo.padre;
+		return nodo.padre;
+	}
+
+	/**
+	 * Regresa el predecesor en inorden de un nodo.
+	 * @param nodo el nodo.
+	 * @return el predecesor o null si nodo es el primero.
+	 */
+	AVLNode<K, T> predecesor(AVLNode<K, T> nodo){
+		if(nodo.izquierdo != null)
+			return findMax(nodo.izquierdo);
+		while(nodo.padre != null && nodo.padre.izquierdo == nodo)
+			nodo = nodo.padre;
+		return nodo.padre;
+	}
+
+	/** Regresa el nodo con la menor clave o null si el árbol es vacío. */
+	AVLNode<K, T> primero(){
+		return findMin(raiz);
+	}
+
+	/** Regresa el nodo con la mayor clave o null si el árbol es vacío. */
+	AVLNode<K, T> ultimo(){
+		return findMax(raiz);
+	}
+
+	/**
+	 * Busca el nodo con una clave bajando desde la raiz.
+	 * @param k la clave a buscar.
+	 * @return el nodo o null si no existe.
+	 */
+	AVLNode<K, T> buscaNodo(K k){
+		return retrieve(k, raiz);
+	}
+
+	/**
+	 * Indica si el árbol usa el orden natural de las claves.
+	 * @return true si no se le dio comparador.
+	 */
+	boolean ordenNatural(){
+		return orden == ORDEN_NATURAL;
+	}
+
+	private T elemento(AVLNode<K, T> nodo){
+		return nodo == null ? null : nodo.elemento;
+	}
+
+	private Map.Entry<K, T> entrada(AVLNode<K, T> nodo){
+		return nodo == null ? null : new AbstractMap.SimpleImmutableEntry<>(nodo.clave, nodo.elemento);
+	}
+
+	/**
+	 * Quita un nodo y regresa su entrada.
+	 * @param nodo el nodo, puede ser null.
+	 * @return la entrada que tenía o null si nodo es null.
+	 */
+	private Map.Entry<K, T> quita(AVLNode<K, T> nodo){
+		if(nodo == null)
+			return null;
+		Map.Entry<K, T> entrada = entrada(nodo);
+		eliminaNodo(nodo);
+		return entrada;
+	}
+
+	/**
+	 * Regresa una vista del árbol como NavigableMap. Los cambios en la vista
+	 * se ven en el árbol y al revés; sus submapas también son vistas y no
+	 * copian nada.
+	 * @return la vista.
+	 */
+	public NavigableMap<K, T> asNavigableMap(){
+		return new AVLNavigableMap<>(this);
+	}
+
+	/**
+	 * Orden en el que se recorre el árbol.
+	 */
+	private enum Orden{ PREORDEN, INORDEN, POSTORDEN }
+
+	/**
+	 * Visitante de los recorridos: recibe cada clave con su elemento y
+	 * regresa false para terminar el recorrido ahí.
+	 */
+	public interface Visitante<K, T>{
+
+		/**
+		 * Visita una entrada.
+		 * @param clave la clave.
+		 * @param elemento su elemento.
+		 * @return true para seguir, false para terminar el recorrido.
+		 */
+		boolean visita(K clave, T elemento);
 	}
 
 	@Override
 	public void preorden(){
-		this.preorden(raiz);
+		imprime(Orden.PREORDEN);
+	}
+
+	@Override
+	public void inorden(){
+		imprime(Orden.INORDEN);
+	}
+
+	@Override
+	public void postorden(){
+		imprime(Orden.POSTORDEN);
 	}
 
 	/**
-	 * Método auxiliar de preorden.
-	 * */
-	private void preorden(AVLNode node){
+	 * Imprime un elemento por línea en System.out. Junta las líneas en lotes
+	 * y manda cada lote con un solo print, en vez de un println sincronizado
+	 * y con flush por cada nodo; System.out sigue codificando el texto.
+	 * @param orden el orden del recorrido.
+	 */
+	private void imprime(Orden orden){
+		PrintStream salida = System.out;
+		String salto = System.lineSeparator();
+		StringBuilder lote = new StringBuilder(TAMANIO_BUFER + 64);
+		recorre(orden, raiz, (clave, elemento) -> {
+			lote.append(elemento).append(salto);
+			if(lote.length() >= TAMANIO_BUFER){
+				salida.print(lote);
+				lote.setLength(0);
+			}
+			return true;
+		});
+		salida.print(lote);
+		salida.flush();
+	}
+
+	/**
+	 * Recorre el árbol en preorden hasta que el visitante regrese false.
+	 * @param visitante recibe cada clave con su elemento.
+	 * @return true si se recorrió todo el árbol, false si el visitante lo terminó.
+	 */
+	public boolean preorden(Visitante<? super K, ? super T> visitante){
+		return recorre(Orden.PREORDEN, raiz, visitante);
+	}
+
+	/**
+	 * Recorre el árbol en inorden hasta que el visitante regrese false.
+	 * @param visitante recibe cada clave con su elemento.
+	 * @return true si se recorrió todo el árbol, false si el visitante lo terminó.
+	 */
+	public boolean inorden(Visitante<? super K, ? super T> visitante){
+		return recorre(Orden.INORDEN, raiz, visitante);
+	}
+
+	/**
+	 * Recorre el árbol en postorden hasta que el visitante regrese false.
+	 * @param visitante recibe cada clave con su elemento.
+	 * @return true si se recorrió todo el árbol, false si el visitante lo terminó.
+	 */
+	public boolean postorden(Visitante<? super K, ? super T> visitante){
+		return recorre(Orden.POSTORDEN, raiz, visitante);
+	}
+
+	/**
+	 * Aplica la acción a cada elemento en inorden, sin crear un iterador.
+	 * @param accion la acción.
+	 */
+	@Override
+	public void forEach(Consumer<? super T> accion){
+		Objects.requireNonNull(accion);
+		recorre(Orden.INORDEN, raiz, (clave, elemento) -> {
+			accion.accept(elemento);
+			return true;
+		});
+	}
+
+	/**
+	 * Método auxiliar de los recorridos con visitante.
+	 * @param orden el orden del recorrido.
+	 * @param nodo la raiz del subárbol.
+	 * @param visitante el visitante.
+	 * @return false si el visitante terminó el recorrido.
+	 */
+	private boolean recorre(Orden orden, AVLNode<K, T> nodo, Visitante<? super K, ? super T> visitante){
 		// Primero verifica la raiz
-		if(node == null)
-			return;
+		if(nodo == null)
+			return true;
+
+		if(orden == Orden.PREORDEN && !visitante.visita(nodo.clave, nodo.elemento))
+			return false;
 
-		System.out.println(node.elemento);
+		// Recorre el izquierdo
+		if(!recorre(orden, nodo.izquierdo, visitante))
+			return false;
 
-		// Aplica preorden al izquierdo
-		preorden(node.izquierdo);
+		if(orden == Orden.INORDEN && !visitante.visita(nodo.clave, nodo.elemento))
+			return false;
+
+		// Recorre el derecho
+		if(!recorre(orden, nodo.derecho, visitante))
+			return false;
+
+		return orden != Orden.POSTORDEN || visitante.visita(nodo.clave, nodo.elemento);
+	}
+
+	/**
+	 * Escribe las entradas en inorden como texto, una por línea con la clave
+	 * y el elemento separados por un tabulador; no escapa tabuladores ni
+	 * saltos de línea dentro de ellos. Si salida no es un BufferedWriter se
+	 * le pone un búfer grande. Hace flush al terminar pero no cierra salida.
+	 * @param salida a donde se escribe.
+	 * @return el número de entradas escritas.
+	 * @throws IOException si falla la escritura.
+	 */
+	public long export(Writer salida) throws IOException{
+		Writer destino = salida instanceof BufferedWriter ? salida : new BufferedWriter(salida, TAMANIO_BUFER);
+		long escritas = 0;
+		// Con los padres el sucesor cuesta O(1) amortizado, sin pila
+		for(AVLNode<K, T> nodo = findMin(raiz); nodo != null; nodo = sucesor(nodo)){
+			destino.write(String.valueOf(nodo.clave));
+			destino.write('\t');
+			destino.write(String.valueOf(nodo.elemento));
+			destino.write('\n');
+			escritas++;
+		}
+		destino.flush();
+		return escritas;
+	}
 
-		// Aplica preorden al derecho
-		preorden(node.derecho);
+	/**
+	 * Escribe las entradas como export(Writer) en UTF-8 a un canal. El texto
+	 * se codifica por lotes a un búfer de bytes que se escribe al canal
+	 * cuando se llena. No cierra el canal.
+	 * @param canal a donde se escribe, en modo bloqueante.
+	 * @return el número de entradas escritas.
+	 * @throws IOException si falla la escritura.
+	 */
+	public long export(WritableByteChannel canal) throws IOException{
+		CharsetEncoder codificador = StandardCharsets.UTF_8.newEncoder()
+			.onMalformedInput(CodingErrorAction.REPLACE)
+			.onUnmappableCharacter(CodingErrorAction.REPLACE);
+		return export(new BufferedWriter(Channels.newWriter(canal, codificador, TAMANIO_BUFER), TAMANIO_BUFER));
 	}
 
+	/**
+	 * Regresa un iterador en inorden sobre los elementos del árbol.
+	 * @return el iterador.
+	 */
 	@Override
-	public void inorden(){
-		this.inorden(raiz);
+	public Iterator<T> iterator(){
+		return iteradorInorden();
 	}
 
 	/**
-	 * Método auxiliar de inorden.
-	 * */
-	private void inorden(AVLNode node){
-		// Primero verifica la raiz
-		if(node == null)
-			return;
-
-		// Aplica inorden al izquierdo
-		inorden(node.izquierdo);
-
-		System.out.println(node.elemento);
-
-		// Aplica inorden al derecho
-		inorden(node.derecho);
+	 * Regresa un iterador perezoso en preorden sobre los elementos del árbol.
+	 * Usa una pila explícita de O(altura) y no es recursivo. El árbol no debe
+	 * modificarse mientras se recorre.
+	 * @return el iterador.
+	 */
+	public Iterator<T> iteradorPreorden(){
+		return new Recorrido(Orden.PREORDEN, raiz);
 	}
 
-	@Override
-	public void postorden(){
-		this.postorden(raiz);
+	/**
+	 * Regresa un iterador perezoso en inorden sobre los elementos del árbol.
+	 * Usa una pila explícita de O(altura) y no es recursivo. El árbol no debe
+	 * modificarse mientras se recorre.
+	 * @return el iterador.
+	 */
+	public Iterator<T> iteradorInorden(){
+		return new Recorrido(Orden.INORDEN, raiz);
 	}
 
 	/**
-	 * Método auxiliar de postorden.
-	 * */
-	private void postorden(AVLNode node){
-		// Primero verifica la raiz
-		if(node == null)
-			return;
-
-		// Aplica postorden al izquierdo
-		postorden(node.izquierdo);
+	 * Regresa un iterador perezoso en postorden sobre los elementos del árbol.
+	 * Usa una pila explícita de O(altura) y no es recursivo. El árbol no debe
+	 * modificarse mientras se recorre.
+	 * @return el iterador.
+	 */
+	public Iterator<T> iteradorPostorden(){
+		return new Recorrido(Orden.POSTORDEN, raiz);
+	}
 
-		// Aplica postorden al derecho
-		postorden(node.derecho);
+	/**
+	 * Regresa un Stream de los elementos en inorden. Su Spliterator se divide
+	 * por subárboles, así que funciona en paralelo con parallel().
+	 * @return el Stream de elementos.
+	 */
+	public Stream<T> stream(){
+		return StreamSupport.stream(new Recorrido(Orden.INORDEN, raiz), false);
+	}
 
-		System.out.println(node.elemento);
+	/**
+	 * Regresa un Stream de los elementos en preorden, divisible por subárboles.
+	 * @return el Stream de elementos.
+	 */
+	public Stream<T> streamPreorden(){
+		return StreamSupport.stream(new Recorrido(Orden.PREORDEN, raiz), false);
 	}
 
-	@Override
-	public boolean isEmpty(){
-		return raiz == null;
+	/**
+	 * Regresa un Stream de los elementos en postorden, divisible por subárboles.
+	 * @return el Stream de elementos.
+	 */
+	public Stream<T> streamPostorden(){
+		return StreamSupport.stream(new Recorrido(Orden.POSTORDEN, raiz), false);
 	}
 
 	/**
-	 * Metodo que revalancea un arbol AVL
-	 * @param actual el nodo que a partir de el se rebalanceara el arbol.
-	 * */
-	public void rebalancea (AVLNode actual){
+	 * Recorrido perezoso del árbol que sirve como Iterator y como Spliterator.
+	 * Guarda una pila de tareas: cada tarea es un nodo que se emite o un
+	 * subárbol que falta expandir. Al expandir un subárbol se apilan sus
+	 * partes según el orden, así la pila nunca pasa de O(altura). Para
+	 * dividirse entrega la mitad de arriba de la pila, que es la que va
+	 * primero, y si solo queda un subárbol lo expande antes de partir.
+	 */
+	private class Recorrido implements Iterator<T>, Spliterator<T>{
 
-		
-		if(actual == null)
-			return;
+		/** El orden del recorrido. */
+		private final Orden orden;
 
-		if(actual == raiz)
-			return;
+		/** Nodos de las tareas, el tope es la siguiente. */
+		private Object[] nodos;
+
+		/** Si la tarea emite solo el nodo (true) o todo su subárbol (false). */
+		private boolean[] emite;
 
+		/** Número de tareas pendientes. */
+		private int tope;
 
-		AVLNode p = actual.padre;	//el padre de actual
+		/** Número de elementos restantes. */
+		private long restantes;
+
+		/**
+		 * Crea el recorrido de un subárbol.
+		 * @param orden el orden del recorrido.
+		 * @param subarbol la raiz del subárbol, puede ser null.
+		 */
+		Recorrido(Orden orden, AVLNode<K, T> subarbol){
+			this.orden = orden;
+			int capacidad = 2 * (altura(subarbol) + 2);
+			nodos = new Object[capacidad];
+			emite = new boolean[capacidad];
+			if(subarbol != null){
+				apila(subarbol, false);
+				restantes = subarbol.tamanio;
+			}
+		}
 
-		//Caso 1: Actual tiene hermano
-		if(p.izquierdo != null && p.derecho != null){
+		/**
+		 * Crea un recorrido con las tareas dadas.
+		 * @param orden el orden del recorrido.
+		 * @param nodos los nodos de las tareas.
+		 * @param emite el tipo de cada tarea.
+		 * @param tope el número de tareas.
+		 * @param restantes el número de elementos de las tareas.
+		 */
+		Recorrido(Orden orden, Object[] nodos, boolean[] emite, int tope, long restantes){
+			this.orden = orden;
+			this.nodos = nodos;
+			this.emite = emite;
+			this.tope = tope;
+			this.restantes = restantes;
+		}
 
-			AVLNode h = p.izquierdo == actual ? p.derecho : p.izquierdo; 	//el hermano de actual
+		/**
+		 * Apila una tarea, creciendo los arreglos si hace falta.
+		 * @param nodo el nodo de la tarea.
+		 * @param soloNodo si la tarea emite solo el nodo.
+		 */
+		private void apila(AVLNode<K, T> nodo, boolean soloNodo){
+			if(tope == nodos.length){
+				nodos = Arrays.copyOf(nodos, 2 * tope);
+				emite = Arrays.copyOf(emite, 2 * tope);
+			}
+			nodos[tope] = nodo;
+			emite[tope] = soloNodo;
+			tope++;
+		}
 
-			int alturaActual = actual.getAltura();
-			int alturaH = h.getAltura();
+		/**
+		 * Apila un subárbol solo si no es vacío.
+		 * @param nodo la raiz del subárbol.
+		 */
+		private void apilaSubarbol(AVLNode<K, T> nodo){
+			if(nodo != null)
+				apila(nodo, false);
+		}
 
-			int restriccion = Math.abs(alturaActual-alturaH);
+		/**
+		 * Expande la tarea del tope, que debe ser un subárbol, en sus partes.
+		 * Se apilan al revés para que la primera en salir quede arriba.
+		 */
+		@SuppressWarnings("unchecked")
+		private void expande(){
+			AVLNode<K, T> nodo = (AVLNode<K, T>) nodos[--tope];
+			nodos[tope] = null;
+			switch(orden){
+				case PREORDEN:
+					apilaSubarbol(nodo.derecho);
+					apilaSubarbol(nodo.izquierdo);
+					apila(nodo, true);
+					break;
+				case INORDEN:
+					apilaSubarbol(nodo.derecho);
+					apila(nodo, true);
+					apilaSubarbol(nodo.izquierdo);
+					break;
+				default:
+					apila(nodo, true);
+					apilaSubarbol(nodo.derecho);
+					apilaSubarbol(nodo.izquierdo);
+			}
+		}
 
-			if(restriccion>=2){  //HAY DESBALANCEO
+		@Override
+		public boolean hasNext(){
+			// Expandimos hasta que el tope sea un nodo a emitir
+			while(tope > 0 && !emite[tope - 1])
+				expande();
+			return tope > 0;
+		}
 
-				if(p.izquierdo == actual){ //Ver si actual es hijo izquierdo.
+		@Override
+		@SuppressWarnings("unchecked")
+		public T next(){
+			if(!hasNext())
+				throw new NoSuchElementException();
+			AVLNode<K, T> nodo = (AVLNode<K, T>) nodos[--tope];
+			nodos[tope] = null;
+			restantes--;
+			return nodo.elemento;
+		}
 
-					//Comparar alturas con sus hijos para ver si es desbalanceo en zigzag
-					if(actual.izquierdo != null && actual.derecho != null){ //Tiene 2 hijos
-						
-						int alturaHD = actual.derecho.getAltura();
-						if(alturaActual-1 == alturaHD){	// zigzag
+		@Override
+		public boolean tryAdvance(Consumer<? super T> accion){
+			if(!hasNext())
+				return false;
+			accion.accept(next());
+			return true;
+		}
 
-							rotarIzquierda(actual);
-							rotarDerecha(actual.padre.padre);
-							rebalancea(actual.padre);
-							return;
+		@Override
+		public void forEachRemaining(Consumer<? super T> accion){
+			while(hasNext())
+				accion.accept(next());
+		}
 
-						} else{	//linea recta
+		@Override
+		@SuppressWarnings("unchecked")
+		public Spliterator<T> trySplit(){
+			if(tope == 1 && !emite[0])
+				expande();
+			if(tope < 2)
+				return null;
+
+			// La mitad de arriba de la pila va primero, esa se entrega
+			int corte = tope / 2;
+			int n = tope - corte;
+			Object[] prefijoNodos = new Object[Math.max(n, 4)];
+			boolean[] prefijoEmite = new boolean[prefijoNodos.length];
+			long prefijo = 0;
+			for(int i = corte; i < tope; i++)
+				prefijo += emite[i] ? 1 : ((AVLNode<K, T>) nodos[i]).tamanio;
+			System.arraycopy(nodos, corte, prefijoNodos, 0, n);
+			System.arraycopy(emite, corte, prefijoEmite, 0, n);
+			Arrays.fill(nodos, corte, tope, null);
+			tope = corte;
+
+			restantes -= prefijo;
+			return new Recorrido(orden, prefijoNodos, prefijoEmite, n, prefijo);
+		}
 
-							rotarDerecha(actual.padre);
-							rebalancea(actual);
-							return;
-						}
+		@Override
+		public long estimateSize(){
+			return restantes;
+		}
 
-					} else { //Tiene 1 hijo
+		@Override
+		public int characteristics(){
+			return Spliterator.ORDERED | Spliterator.SIZED | Spliterator.SUBSIZED;
+		}
+	}
 
-						if(actual.derecho != null){		// zigzag
+	@Override
+	public boolean isEmpty(){
+		return raiz == null;
+	}
 
-							rotarIzquierda(actual);
-							rotarDerecha(actual.padre.padre);
-							rebalancea(actual.padre);
-							return;
+	/**
+	 * Regresa el número de elementos del árbol en O(1).
+	 * @return el número de elementos.
+	 */
+	public int size(){
+		return raiz == null ? 0 : raiz.tamanio;
+	}
 
-						} else {	//linea recta
+	/**
+	 * Regresa cuántas claves del árbol son menores que k, en O(log n).
+	 * @param k la clave de referencia, no tiene que estar en el árbol.
+	 * @return el número de claves menores que k.
+	 */
+	public int rank(K k){
+		return cuentaMenores(k, false);
+	}
 
-							rotarDerecha(actual.padre);
-							rebalancea(actual);
-							return;
-						}
+	/**
+	 * Regresa la clave en la posición i del árbol en inorden, en O(log n).
+	 * Por ejemplo select(0) es la mínima y select(size() * 99 / 100) es el
+	 * percentil 99.
+	 * @param i la posición, empezando en 0.
+	 * @return la clave en la posición i.
+	 * @throws IndexOutOfBoundsException si i no está entre 0 y size()-1.
+	 */
+	public K select(int i){
+		if(i < 0 || i >= size())
+			throw new IndexOutOfBoundsException("Posición " + i + " fuera del árbol de tamaño " + size());
+
+		AVLNode<K, T> actual = raiz;
+		while(true){
+			int izquierdos = actual.izquierdo == null ? 0 : actual.izquierdo.tamanio;
+			if(i < izquierdos){
+				actual = actual.izquierdo;
+			} else if(i == izquierdos){
+				return actual.clave;
+			} else {
+				i -= izquierdos + 1;
+				actual = actual.derecho;
+			}
+		}
+	}
 
-					}
+	/**
+	 * Cuenta las claves del árbol entre lo y hi, ambas incluidas, en O(log n).
+	 * @param lo el extremo inferior del rango.
+	 * @param hi el extremo superior del rango.
+	 * @return el número de claves k con lo &lt;= k &lt;= hi, 0 si lo &gt; hi.
+	 */
+	public int countRange(K lo, K hi){
+		if(comparador.compare(lo, hi) > 0)
+			return 0;
+		return cuentaMenores(hi, true) - cuentaMenores(lo, false);
+	}
 
-				} else { //Actual es hijo DERECHO.
+	/**
+	 * Cuenta las claves menores (o menores o iguales) que k bajando una sola
+	 * vez desde la raiz.
+	 * @param k la clave de referencia.
+	 * @param incluyeIguales si también se cuentan las claves iguales a k.
+	 * @return el número de claves.
+	 */
+	int cuentaMenores(K k, boolean incluyeIguales){
+		Comparator<? super K> cmp = comparador;
+		int cuenta = 0;
+		AVLNode<K, T> actual = raiz;
+		while(actual != null){
+			int compare = cmp.compare(k, actual.clave);
+			if(compare < 0 || (compare == 0 && !incluyeIguales)){
+				actual = actual.izquierdo;
+			} else {
+				// actual y todo su subárbol izquierdo cuentan
+				cuenta += 1 + (actual.izquierdo == null ? 0 : actual.izquierdo.tamanio);
+				actual = actual.derecho;
+			}
+		}
+		return cuenta;
+	}
 
-					//Comparar alturas con sus hijos para ver si es desbalanceo en zigzag
-					if(actual.izquierdo != null && actual.derecho != null){ //Tiene 2 hijos
-						
-						int alturaHI = actual.izquierdo.getAltura();
-						if(alturaActual-1 == alturaHI){ //zigzag
+	/**
+	 * Copia el árbol a un índice inmutable con el orden de Eytzinger, que
+	 * busca sin seguir referencias entre nodos. El índice no ve los cambios
+	 * posteriores del árbol; para actualizarlo se vuelve a congelar.
+	 * @return el índice con todas las entradas del árbol.
+	 */
+	@SuppressWarnings("unchecked")
+	public FrozenIndex<K, T> freeze(){
+		int n = size();
+		Object[] claves = new Object[n + 1];
+		Object[] elementos = new Object[n + 1];
+		// El inorden del árbol llena las posiciones del arreglo en su propio inorden
+		int posicion = Eytzinger.primero(n);
+		Object[] pila = new Object[altura(raiz) + 2];
+		int tope = 0;
+		AVLNode<K, T> actual = raiz;
+		while(actual != null || tope > 0){
+			while(actual != null){
+				pila[tope++] = actual;
+				actual = actual.izquierdo;
+			}
+			actual = (AVLNode<K, T>) pila[--tope];
+			claves[posicion] = actual.clave;
+			elementos[posicion] = actual.elemento;
+			posicion = Eytzinger.siguiente(posicion, n);
+			actual = actual.derecho;
+		}
+		return new FrozenIndex<>(claves, elementos, orden);
+	}
 
-							rotarDerecha(actual);
-							rotarIzquierda(actual.padre.padre);
-							rebalancea(actual.padre);
-							return;
+	/**
+	 * Construye un árbol a partir de entradas ordenadas por el orden natural
+	 * de sus claves, en tiempo lineal y sin rotaciones.
+	 * @param entradas las entradas en orden estrictamente creciente de clave.
+	 * @return el árbol con todas las entradas.
+	 * @throws IllegalArgumentException si las claves no son estrictamente crecientes.
+	 */
+	public static <K extends Comparable, T> AVLTree<K, T> fromSorted(Iterator<? extends Map.Entry<? extends K, ? extends T>> entradas){
+		return fromSorted(entradas, null);
+	}
 
-						} else{ //linea recta
+	/**
+	 * Construye un árbol a partir de entradas ordenadas con un comparador,
+	 * en tiempo lineal y sin rotaciones.
+	 * @param entradas las entradas en orden estrictamente creciente de clave.
+	 * @param comparador el comparador de claves, null para usar el orden natural.
+	 * @return el árbol con todas las entradas.
+	 * @throws IllegalArgumentException si las claves no son estrictamente crecientes.
+	 */
+	@SuppressWarnings("unchecked")
+	public static <K extends Comparable, T> AVLTree<K, T> fromSorted(Iterator<? extends Map.Entry<? extends K, ? extends T>> entradas, Comparator<? super K> comparador){
+		ArrayList<K> claves = new ArrayList<>();
+		ArrayList<T> elementos = new ArrayList<>();
+		while(entradas.hasNext()){
+			Map.Entry<? extends K, ? extends T> entrada = entradas.next();
+			claves.add(entrada.getKey());
+			elementos.add(entrada.getValue());
+		}
+		return fromSorted((K[]) claves.toArray(new Comparable[0]), (T[]) elementos.toArray(), comparador);
+	}
 
-							rotarIzquierda(actual.padre);
-							rebalancea(actual);
-							return;
-						}
+	/**
+	 * Construye un árbol a partir de arreglos paralelos de claves ordenadas
+	 * por su orden natural y elementos, en tiempo lineal y sin rotaciones.
+	 * @param claves las claves en orden estrictamente creciente.
+	 * @param elementos el elemento de cada clave.
+	 * @return el árbol con todas las entradas.
+	 * @throws IllegalArgumentException si las claves no son estrictamente crecientes
+	 * o los arreglos no tienen el mismo largo.
+	 */
+	public static <K extends Comparable, T> AVLTree<K, T> fromSorted(K[] claves, T[] elementos){
+		return fromSorted(claves, elementos, null);
+	}
 
-					} else { //Tiene 1 hijo
+	/**
+	 * Construye un árbol a partir de arreglos paralelos de claves ordenadas
+	 * con un comparador y elementos, en tiempo lineal y sin rotaciones.
+	 * @param claves las claves en orden estrictamente creciente.
+	 * @param elementos el elemento de cada clave.
+	 * @param comparador el comparador de claves, null para usar el orden natural.
+	 * @return el árbol con todas las entradas.
+	 * @throws IllegalArgumentException si las claves no son estrictamente crecientes
+	 * o los arreglos no tienen el mismo largo.
+	 */
+	public static <K extends Comparable, T> AVLTree<K, T> fromSorted(K[] claves, T[] elementos, Comparator<? super K> comparador){
+		if(claves.length != elementos.length)
+			throw new IllegalArgumentException("Hay " + claves.length + " claves y " + elementos.length + " elementos");
 
-						if(actual.izquierdo != null){		// zigzag
+		AVLTree<K, T> arbol = new AVLTree<>(comparador);
+		for(int i = 1; i < claves.length; i++)
+			if(arbol.comparador.compare(claves[i - 1], claves[i]) >= 0)
+				throw new IllegalArgumentException("Las claves no son estrictamente crecientes en la posición " + i);
 
-							rotarDerecha(actual);
-							rotarIzquierda(actual.padre.padre);
-							rebalancea(actual.padre);
-							return;
+		arbol.raiz = arbol.construye(claves, elementos, 0, claves.length - 1, null);
+		return arbol;
+	}
 
-						} else {	//linea recta
+	/**
+	 * Construye un árbol a partir de entradas en cualquier orden. Las ordena
+	 * por clave y, si una clave se repite, se queda con la última entrada.
+	 * Cuesta O(n log n) por el ordenamiento, la construcción es lineal.
+	 * @param entradas las entradas en cualquier orden.
+	 * @param comparador el comparador de claves, null para usar el orden natural.
+	 * @return el árbol con todas las entradas.
+	 */
+	@SuppressWarnings("unchecked")
+	public static <K extends Comparable, T> AVLTree<K, T> fromUnsorted(Iterator<? extends Map.Entry<? extends K, ? extends T>> entradas, Comparator<? super K> comparador){
+		ArrayList<Map.Entry<? extends K, ? extends T>> lista = new ArrayList<>();
+		while(entradas.hasNext())
+			lista.add(entradas.next());
+
+		AVLTree<K, T> arbol = new AVLTree<>(comparador);
+		Comparator<? super K> cmp = arbol.comparador;
+		// El ordenamiento es estable, así la última entrada de cada clave queda al final de su grupo
+		lista.sort((a, b) -> cmp.compare(a.getKey(), b.getKey()));
+
+		int n = 0;
+		K[] claves = (K[]) new Comparable[lista.size()];
+		T[] elementos = (T[]) new Object[lista.size()];
+		for(int i = 0; i < lista.size(); i++){
+			K clave = lista.get(i).getKey();
+			if(n > 0 && cmp.compare(claves[n - 1], clave) == 0)
+				n--;	// Clave repetida, gana la última
+			claves[n] = clave;
+			elementos[n] = lista.get(i).getValue();
+			n++;
+		}
 
-							rotarIzquierda(actual.padre);
-							rebalancea(actual);
-							return;
-						}
-					}
+		arbol.raiz = arbol.construye(claves, elementos, 0, n - 1, null);
+		return arbol;
+	}
 
-				}
+	/**
+	 * Construye recursivamente un subarbol perfectamente balanceado con las
+	 * entradas de inicio a fin, tomando la de en medio como raiz.
+	 * @param claves las claves ordenadas.
+	 * @param elementos los elementos de cada clave.
+	 * @param inicio el primer índice del subarbol.
+	 * @param fin el último índice del subarbol.
+	 * @param padre el padre de la raiz del subarbol.
+	 * @return la raiz del subarbol, null si inicio &gt; fin.
+	 */
+	private AVLNode<K, T> construye(K[] claves, T[] elementos, int inicio, int fin, AVLNode<K, T> padre){
+		if(inicio > fin)
+			return null;
 
+		int medio = (inicio + fin) >>> 1;
+		AVLNode<K, T> nodo = new AVLNode<>(elementos[medio], claves[medio], padre);
+		nodo.izquierdo = construye(claves, elementos, inicio, medio - 1, nodo);
+		nodo.derecho = construye(claves, elementos, medio + 1, fin, nodo);
+		nodo.actualizaAltura();
+		return nodo;
+	}
 
-			} else { 	//NO HAY DESBALANCEO
-				rebalancea(actual.padre);
-				return;
-			}
+	/** Número mágico al inicio de los archivos de save ("AVL1"). */
+	private static final int MAGICO = 0x41564C31;
 
+	/** Versión del formato de save. */
+	private static final int VERSION_FORMATO = 1;
 
-		//Caso 2: Actual no tiene hermano		
-		} else {
+	/** Bytes del encabezado: mágico, versión, número de nodos y anchos de clave y elemento. */
+	private static final int ENCABEZADO = 4 + 4 + 8 + 4 + 4;
 
-			int alturaActual = actual.getAltura();
-			int restriccion = Math.abs(-1-alturaActual);
+	/** Bits del byte de forma de cada nodo. */
+	private static final byte CON_IZQUIERDO = 1, CON_DERECHO = 2, ELEMENTO_NULL = 4;
 
-			if(restriccion>=2){  //HAY DESBALANCEO
+	/**
+	 * Guarda el árbol en un archivo binario compacto: un encabezado y luego
+	 * los nodos en preorden, cada uno con un byte de forma (qué hijos tiene)
+	 * seguido de su clave y su elemento codificados con ancho fijo. Las alturas
+	 * no se guardan porque se deducen de la forma. Los elementos pueden ser null.
+	 * @param archivo el archivo destino, se reemplaza si existe.
+	 * @param codecClave el codec de las claves.
+	 * @param codecElemento el codec de los elementos.
+	 * @throws IOException si falla la escritura.
+	 */
+	public void save(Path archivo, CodecFijo<? super K> codecClave, CodecFijo<? super T> codecElemento) throws IOException{
+		// La forma se guarda tal cual, así que tiene que ser AVL
+		drainRebalance();
+		try(FileChannel canal = FileChannel.open(archivo, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)){
+			ByteBuffer encabezado = ByteBuffer.allocate(ENCABEZADO);
+			encabezado.putInt(MAGICO).putInt(VERSION_FORMATO).putLong(size());
+			encabezado.putInt(codecClave.ancho()).putInt(codecElemento.ancho()).flip();
+			while(encabezado.hasRemaining())
+				canal.write(encabezado);
+
+			if(raiz != null){
+				Salida salida = new Salida(canal, codecClave, codecElemento);
+				salida.escribe(raiz);
+				salida.vacia();
+			}
+		}
+	}
 
-				if(p.izquierdo == actual){ //Ver si actual es hijo izquierdo.
+	/**
+	 * Escribe nodos en preorden a un canal a través de un buffer.
+	 */
+	private class Salida{
 
-					//Comparar alturas con sus hijos para ver si es desbalanceo en zigzag
-					if(actual.izquierdo != null && actual.derecho != null){ //Tiene 2 hijos
-						
-						int alturaHD = actual.derecho.getAltura();
-						if(alturaActual-1 == alturaHD){	// zigzag
+		private final FileChannel canal;
 
-							rotarIzquierda(actual);
-							rotarDerecha(actual.padre.padre);
-							rebalancea(actual.padre);
-							return;
+		private final CodecFijo<? super K> codecClave;
 
-						} else{	//linea recta
+		private final CodecFijo<? super T> codecElemento;
 
-							rotarDerecha(actual.padre);
-							rebalancea(actual);
-							return;
-						}
+		private final int ancho;
 
-					} else { //Tiene 1 hijo
+		private final ByteBuffer buffer = ByteBuffer.allocateDirect(1 << 20);
 
-						if(actual.derecho != null){		// zigzag
+		Salida(FileChannel canal, CodecFijo<? super K> codecClave, CodecFijo<? super T> codecElemento){
+			this.canal = canal;
+			this.codecClave = codecClave;
+			this.codecElemento = codecElemento;
+			this.ancho = 1 + codecClave.ancho() + codecElemento.ancho();
+		}
 
-							rotarIzquierda(actual);
-							rotarDerecha(actual.padre.padre);
-							rebalancea(actual.padre);
-							return;
+		void escribe(AVLNode<K, T> nodo) throws IOException{
+			if(buffer.remaining() < ancho)
+				vacia();
+
+			int posicion = buffer.position();
+			byte forma = 0;
+			if(nodo.izquierdo != null)
+				forma |= CON_IZQUIERDO;
+			if(nodo.derecho != null)
+				forma |= CON_DERECHO;
+			if(nodo.elemento == null){
+				forma |= ELEMENTO_NULL;
+				// Rellenamos con ceros para que el archivo no dependa de lo que había en el buffer
+				for(int i = 1 + codecClave.ancho(); i < ancho; i++)
+					buffer.put(posicion + i, (byte) 0);
+			} else {
+				codecElemento.escribe(buffer, posicion + 1 + codecClave.ancho(), nodo.elemento);
+			}
+			buffer.put(posicion, forma);
+			codecClave.escribe(buffer, posicion + 1, nodo.clave);
+			buffer.position(posicion + ancho);
+
+			if(nodo.izquierdo != null)
+				escribe(nodo.izquierdo);
+			if(nodo.derecho != null)
+				escribe(nodo.derecho);
+		}
 
-						} else {	//linea recta
+		void vacia() throws IOException{
+			buffer.flip();
+			while(buffer.hasRemaining())
+				canal.write(buffer);
+			buffer.clear();
+		}
+	}
 
-							rotarDerecha(actual.padre);
-							rebalancea(actual);
-							return;
-						}
+	/**
+	 * Carga un árbol guardado con save, ordenado por el orden natural de sus
+	 * claves.
+	 * @param archivo el archivo a leer.
+	 * @param codecClave el codec de las claves.
+	 * @param codecElemento el codec de los elementos.
+	 * @return el árbol cargado.
+	 * @throws IOException si falla la lectura o el archivo no tiene el formato esperado.
+	 */
+	public static <K extends Comparable, T> AVLTree<K, T> load(Path archivo, CodecFijo<? extends K> codecClave, CodecFijo<? extends T> codecElemento) throws IOException{
+		return load(archivo, codecClave, codecElemento, null);
+	}
 
-					}
+	/**
+	 * Carga un árbol guardado con save en O(n), mapeando el archivo a memoria.
+	 * Reproduce exactamente la forma y las alturas del árbol guardado sin
+	 * comparar claves ni rotar. El comparador debe ser el mismo con el que se
+	 * ordenaba el árbol guardado. Los archivos de más de 2GB se mapean por
+	 * ventanas.
+	 * @param archivo el archivo a leer.
+	 * @param codecClave el codec de las claves.
+	 * @param codecElemento el codec de los elementos.
+	 * @param comparador el comparador de claves, null para usar el orden natural.
+	 * @return el árbol cargado.
+	 * @throws IOException si falla la lectura o el archivo no tiene el formato esperado.
+	 */
+	public static <K extends Comparable, T> AVLTree<K, T> load(Path archivo, CodecFijo<? extends K> codecClave, CodecFijo<? extends T> codecElemento, Comparator<? super K> comparador) throws IOException{
+		try(FileChannel canal = FileChannel.open(archivo, StandardOpenOption.READ)){
+			ByteBuffer encabezado = ByteBuffer.allocate(ENCABEZADO);
+			while(encabezado.hasRemaining())
+				if(canal.read(encabezado) < 0)
+					throw new IOException("El archivo es demasiado corto para ser un árbol guardado: " + archivo);
+			encabezado.flip();
+
+			if(encabezado.getInt() != MAGICO)
+				throw new IOException("El archivo no es un árbol guardado: " + archivo);
+			int version = encabezado.getInt();
+			if(version != VERSION_FORMATO)
+				throw new IOException("Versión de formato no soportada: " + version);
+			long n = encabezado.getLong();
+			int anchoClave = encabezado.getInt();
+			int anchoElemento = encabezado.getInt();
+			if(anchoClave != codecClave.ancho() || anchoElemento != codecElemento.ancho())
+				throw new IOException("Los codecs no coinciden con el archivo: se guardó con anchos " + anchoClave + " y " + anchoElemento);
+			int ancho = 1 + anchoClave + anchoElemento;
+			if(n < 0 || n > Integer.MAX_VALUE || canal.size() != ENCABEZADO + n * ancho)
+				throw new IOException("El archivo está truncado o dañado: " + archivo);
+
+			AVLTree<K, T> arbol = new AVLTree<>(comparador);
+			if(n > 0){
+				AVLTree<K, T>.Entrada entrada = arbol.new Entrada(canal, codecClave, codecElemento, n);
+				arbol.raiz = entrada.lee(null);
+				if(!entrada.terminada())
+					throw new IOException("La forma del árbol no coincide con el número de nodos");
+			}
+			return arbol;
+		}
+	}
 
-				} else { //Actual es hijo DERECHO.
+	/**
+	 * Lee nodos en preorden de un archivo mapeado a memoria, por ventanas
+	 * de un número entero de registros.
+	 */
+	private class Entrada{
 
-					//Comparar alturas con sus hijos para ver si es desbalanceo en zigzag
-					if(actual.izquierdo != null && actual.derecho != null){ //Tiene 2 hijos
-						
-						int alturaHI = actual.izquierdo.getAltura();
-						if(alturaActual-1 == alturaHI){ //zigzag
+		private final FileChannel canal;
 
-							rotarDerecha(actual);
-							rotarIzquierda(actual.padre.padre);
-							rebalancea(actual.padre);
-							return;
+		private final CodecFijo<? extends K> codecClave;
 
-						} else{ //linea recta
+		private final CodecFijo<? extends T> codecElemento;
 
-							rotarIzquierda(actual.padre);
-							rebalancea(actual);
-							return;
-						}
+		private final int ancho;
 
-					} else { //Tiene 1 hijo
+		private final long registrosPorVentana;
 
-						if(actual.izquierdo != null){		// zigzag
+		private long restantes;
 
-							rotarDerecha(actual);
-							rotarIzquierda(actual.padre.padre);
-							rebalancea(actual.padre);
-							return;
+		private long inicioVentana = ENCABEZADO;
 
-						} else {	//linea recta
+		private MappedByteBuffer ventana;
 
-							rotarIzquierda(actual.padre);
-							rebalancea(actual);
-							return;
-						}
-					}
+		private int posicion;
 
-				}
+		Entrada(FileChannel canal, CodecFijo<? extends K> codecClave, CodecFijo<? extends T> codecElemento, long n){
+			this.canal = canal;
+			this.codecClave = codecClave;
+			this.codecElemento = codecElemento;
+			this.ancho = 1 + codecClave.ancho() + codecElemento.ancho();
+			this.registrosPorVentana = Integer.MAX_VALUE / ancho;
+			this.restantes = n;
+		}
 
-			} else { 	//NO HAY DESBALANCEO
-				rebalancea(actual.padre);
-				return;
+		AVLNode<K, T> lee(AVLNode<K, T> padre) throws IOException{
+			if(ventana == null || posicion == ventana.limit()){
+				if(restantes == 0)
+					throw new IOException("La forma del árbol no coincide con el número de nodos");
+				long registros = Math.min(restantes, registrosPorVentana);
+				if(ventana != null)
+					inicioVentana += ventana.limit();
+				ventana = canal.map(FileChannel.MapMode.READ_ONLY, inicioVentana, registros * ancho);
+				restantes -= registros;
+				posicion = 0;
 			}
+
+			int registro = posicion;
+			posicion += ancho;
+			byte forma = ventana.get(registro);
+			T elemento = (forma & ELEMENTO_NULL) != 0 ? null : codecElemento.lee(ventana, registro + 1 + codecClave.ancho());
+			AVLNode<K, T> nodo = new AVLNode<>(elemento, codecClave.lee(ventana, registro + 1), padre);
+
+			if((forma & CON_IZQUIERDO) != 0)
+				nodo.izquierdo = lee(nodo);
+			if((forma & CON_DERECHO) != 0)
+				nodo.derecho = lee(nodo);
+			nodo.actualizaAltura();
+			return nodo;
 		}
 
+		boolean terminada(){
+			return restantes == 0 && posicion == ventana.limit();
+		}
 	}
 
+	/**
+	 * Parte el árbol en k en O(log n): este árbol se queda con las claves
+	 * menores que k y las mayores o iguales se regresan en un árbol nuevo.
+	 * @param k la clave en la que se parte, no tiene que estar en el árbol.
+	 * @return el árbol con las claves mayores o iguales que k.
+	 */
+	public AVLTree<K, T> split(K k){
+		drainRebalance();
+		Particion p = parte(raiz, k, false);
+		AVLTree<K, T> mayores = new AVLTree<>(orden);
+		mayores.holgura = holgura;
+		olvidaAccesos();
+		raiz = sinPadre(p.menores);
+		mayores.raiz = sinPadre(p.mayores);
+		return mayores;
+	}
 
-	public void rotarIzquierda(AVLNode actual){
-
-		if(actual==null)
+	/**
+	 * Pega al final de este árbol todas las entradas de otro en O(log n).
+	 * Todas las claves de otro deben ser mayores o iguales que las de este
+	 * árbol. otro queda vacío.
+	 * @param otro el árbol con las claves mayores.
+	 * @throws IllegalArgumentException si las claves se traslapan o los
+	 * árboles usan comparadores distintos.
+	 */
+	public void join(AVLTree<K, T> otro){
+		compatible(otro);
+		if(otro == this || otro.raiz == null)
 			return;
-		
-		if(actual==raiz){
-
-			//nueva raiz
-			raiz = actual.derecho;
+		drainRebalance();
+		otro.drainRebalance();
+		if(raiz != null && comparador.compare(findMax(raiz).clave, findMin(otro.raiz).clave) > 0)
+			throw new IllegalArgumentException("Las claves del árbol a unir no son mayores que las de este árbol");
+
+		raiz = sinPadre(uneSinMedio(raiz, otro.raiz));
+		otro.raiz = null;
+		olvidaAccesos();
+		otro.olvidaAccesos();
+	}
 
-			//auxiliar para guardar antigua raiz			
-			AVLNode aux = raiz.padre;
-			aux.derecho = null;
-			raiz.padre = null;
-			
-			if(raiz.izquierdo == null){	//no tiene hijo izquierdo
-				raiz.izquierdo = aux;
-				aux.padre = raiz;
-				return;
-			} else {	//tiene hijo izquierdo
-				AVLNode auxIzq = raiz.izquierdo; //Guarda el hijo izquierdo aparte
-
-				//auxIzq.padre=null;
-				//raiz.izquierdo = null;
-
-				raiz.izquierdo = aux;	//escribe la antigua raiz como hijo izquierdo
-				aux.padre = raiz;
-
-				aux.derecho = auxIzq;
-				auxIzq.padre = aux;	//Coloca al antiguo hijo izquierdo como hijo derecho de la antigua raiz.
-				return;
-			}			
-		} else {
+	/**
+	 * Deja en este árbol la unión con otro. Si una clave está en ambos se
+	 * queda el elemento de este árbol. Los nodos de otro se reusan, por lo
+	 * que otro queda vacío. Cuesta O(m log(n/m + 1)) con m el tamaño del árbol
+	 * menor, y las mitades se procesan en paralelo en el ForkJoinPool común.
+	 * Supone que ninguno de los árboles tiene claves repetidas.
+	 * @param otro el árbol a unir.
+	 * @throws IllegalArgumentException si los árboles usan comparadores distintos.
+	 */
+	public void union(AVLTree<K, T> otro){
+		opera(Conjunto.UNION, otro);
+	}
 
-			AVLNode p = actual.padre;
+	/**
+	 * Deja en este árbol solo las claves que también están en otro, con los
+	 * elementos de este árbol. otro queda vacío. Mismo costo que union.
+	 * @param otro el árbol con el que se intersecta.
+	 * @throws IllegalArgumentException si los árboles usan comparadores distintos.
+	 */
+	public void intersection(AVLTree<K, T> otro){
+		opera(Conjunto.INTERSECCION, otro);
+	}
 
-			if(p.izquierdo == actual){  //Actual es hijo izquierdo
+	/**
+	 * Quita de este árbol las claves que están en otro. otro queda vacío.
+	 * Mismo costo que union.
+	 * @param otro el árbol con las claves a quitar.
+	 * @throws IllegalArgumentException si los árboles usan comparadores distintos.
+	 */
+	public void difference(AVLTree<K, T> otro){
+		opera(Conjunto.DIFERENCIA, otro);
+	}
 
-				if(actual.derecho.izquierdo == null){
+	/** Operaciones de conjuntos basadas en une y parte. */
+	private enum Conjunto{ UNION, INTERSECCION, DIFERENCIA }
 
-					p.izquierdo = null;
-					AVLNode aux = actual;
-					aux.padre = null;
+	/**
+	 * Tamaño del subárbol menor a partir del cual se crean tareas paralelas.
+	 * El trabajo depende sobre todo del árbol menor, así que con un árbol chico
+	 * contra uno enorme no vale la pena repartir.
+	 */
+	private static final int UMBRAL_PARALELO = 2048;
+
+	private void opera(Conjunto operacion, AVLTree<K, T> otro){
+		compatible(otro);
+		if(otro == this){
+			if(operacion == Conjunto.DIFERENCIA){
+				raiz = null;
+				olvidaAccesos();
+			}
+			return;
+		}
+		drainRebalance();
+		otro.drainRebalance();
+		raiz = sinPadre(ForkJoinPool.commonPool().invoke(new TareaConjunto(operacion, raiz, otro.raiz)));
+		otro.raiz = null;
+		olvidaAccesos();
+		otro.olvidaAccesos();
+	}
 
-					AVLNode nuevo = aux.derecho;
-					p.izquierdo = nuevo;
-					nuevo.padre = p;
+	private void compatible(AVLTree<K, T> otro){
+		if(!orden.equals(otro.orden))
+			throw new IllegalArgumentException("Los árboles usan comparadores distintos");
+	}
 
-					aux.derecho = null;
-					nuevo.izquierdo = aux;
-					return;
+	/**
+	 * Operación de conjuntos sobre dos subárboles: parte a con la raiz de b,
+	 * opera recursivamente las mitades (en paralelo si son grandes) y las une.
+	 */
+	private class TareaConjunto extends RecursiveTask<AVLNode<K, T>>{
 
-				} else {
+		private static final long serialVersionUID = 1L;
 
-					p.izquierdo = null;
-					AVLNode aux = actual;
-					aux.padre = null;
+		private final Conjunto operacion;
 
-					AVLNode nuevo = aux.derecho;
-					p.izquierdo = nuevo;
-					nuevo.padre = p;
+		private final AVLNode<K, T> a;
 
-					AVLNode nuevoI = nuevo.izquierdo;
+		private final AVLNode<K, T> b;
 
+		TareaConjunto(Conjunto operacion, AVLNode<K, T> a, AVLNode<K, T> b){
+			this.operacion = operacion;
+			this.a = a;
+			this.b = b;
+		}
 
-					aux.derecho = nuevoI;
-					nuevoI.padre = aux;
-					nuevo.izquierdo = aux;	
+		@Override
+		protected AVLNode<K, T> compute(){
+			return opera(operacion, a, b);
+		}
 
-					return;
+		private AVLNode<K, T> opera(Conjunto operacion, AVLNode<K, T> a, AVLNode<K, T> b){
+			if(a == null)
+				return operacion == Conjunto.UNION ? b : null;
+			if(b == null)
+				return operacion == Conjunto.INTERSECCION ? null : a;
+
+			boolean paralelo = Math.min(a.tamanio, b.tamanio) > UMBRAL_PARALELO;
+			AVLNode<K, T> bIzquierdo = b.izquierdo;
+			AVLNode<K, T> bDerecho = b.derecho;
+			Particion p = parte(a, b.clave, true);
+
+			AVLNode<K, T> izq, der;
+			if(paralelo){
+				TareaConjunto tarea = new TareaConjunto(operacion, p.menores, bIzquierdo);
+				tarea.fork();
+				der = opera(operacion, p.mayores, bDerecho);
+				izq = tarea.join();
+			} else {
+				izq = opera(operacion, p.menores, bIzquierdo);
+				der = opera(operacion, p.mayores, bDerecho);
+			}
 
-				}
+			switch(operacion){
+				case UNION:
+					return une(izq, p.igual != null ? p.igual : b, der);
+				case INTERSECCION:
+					return p.igual != null ? une(izq, p.igual, der) : uneSinMedio(izq, der);
+				default:
+					return uneSinMedio(izq, der);
+			}
+		}
+	}
 
-			} else {					//Actual es hijo derecho
+	/** Resultado de partir un subárbol. */
+	private class Particion{
 
-				if(actual.derecho.izquierdo == null){
+		/** Subárbol con las claves menores. */
+		AVLNode<K, T> menores;
 
-					p.derecho = null; //**
-					AVLNode aux = actual;
-					aux.padre = null;
+		/** Nodo con la clave buscada, null si no se separó. */
+		AVLNode<K, T> igual;
 
-					AVLNode nuevo = aux.derecho;
-					p.derecho = nuevo; //**
-					nuevo.padre = p;
+		/** Subárbol con las claves mayores. */
+		AVLNode<K, T> mayores;
+	}
 
-					aux.derecho = null;
-					nuevo.izquierdo = aux;
-					return;
+	/**
+	 * Parte un subárbol en las claves menores y mayores que k, en O(log n).
+	 * @param nodo la raiz del subárbol.
+	 * @param k la clave en la que se parte.
+	 * @param separaIgual si el nodo con clave k se deja aparte; si no, va con
+	 * los mayores.
+	 * @return la partición, sus subárboles pueden tener un padre viejo.
+	 */
+	private Particion parte(AVLNode<K, T> nodo, K k, boolean separaIgual){
+		if(nodo == null)
+			return new Particion();
+
+		AVLNode<K, T> izq = nodo.izquierdo;
+		AVLNode<K, T> der = nodo.derecho;
+		int cmp = comparador.compare(k, nodo.clave);
+		if(cmp == 0 && separaIgual){
+			Particion p = new Particion();
+			p.menores = izq;
+			p.igual = nodo;
+			p.mayores = der;
+			return p;
+		}
+		if(cmp <= 0){
+			Particion p = parte(izq, k, separaIgual);
+			p.mayores = une(p.mayores, nodo, der);
+			return p;
+		}
+		Particion p = parte(der, k, separaIgual);
+		p.menores = une(izq, nodo, p.menores);
+		return p;
+	}
 
-				} else {
+	/**
+	 * Une dos subárboles AVL y un nodo intermedio en O(|h(izq) - h(der)|).
+	 * Las claves de izq deben ser menores o iguales que la de medio y las de
+	 * der mayores o iguales.
+	 * @param izq el subárbol con las claves menores.
+	 * @param medio el nodo que va entre ambos.
+	 * @param der el subárbol con las claves mayores.
+	 * @return la raiz del subárbol unido.
+	 */
+	private AVLNode<K, T> une(AVLNode<K, T> izq, AVLNode<K, T> medio, AVLNode<K, T> der){
+		if(altura(izq) > altura(der) + 1)
+			return uneDerecha(izq, medio, der);
+		if(altura(der) > altura(izq) + 1)
+			return uneIzquierda(izq, medio, der);
+		return enlaza(izq, medio, der);
+	}
 
-					p.derecho = null; //**
-					AVLNode aux = actual;
-					aux.padre = null;
+	/**
+	 * izq es más alto: baja por su espina derecha hasta una altura parecida
+	 * a la de der, cuelga ahí el nodo y rebalancea al regresar.
+	 */
+	private AVLNode<K, T> uneDerecha(AVLNode<K, T> izq, AVLNode<K, T> medio, AVLNode<K, T> der){
+		AVLNode<K, T> l = izq.izquierdo;
+		AVLNode<K, T> c = izq.derecho;
+		if(altura(c) <= altura(der) + 1){
+			AVLNode<K, T> t = enlaza(c, medio, der);
+			if(altura(t) <= altura(l) + 1)
+				return enlaza(l, izq, t);
+			return giraIzquierda(enlaza(l, izq, giraDerecha(t)));
+		}
+		AVLNode<K, T> t = uneDerecha(c, medio, der);
+		AVLNode<K, T> unido = enlaza(l, izq, t);
+		return altura(t) <= altura(l) + 1 ? unido : giraIzquierda(unido);
+	}
 
-					AVLNode nuevo = aux.derecho;
-					p.derecho = nuevo; //**
-					nuevo.padre = p;
+	/**
+	 * der es más alto: simétrico a uneDerecha por la espina izquierda de der.
+	 */
+	private AVLNode<K, T> uneIzquierda(AVLNode<K, T> izq, AVLNode<K, T> medio, AVLNode<K, T> der){
+		AVLNode<K, T> r = der.derecho;
+		AVLNode<K, T> c = der.izquierdo;
+		if(altura(c) <= altura(izq) + 1){
+			AVLNode<K, T> t = enlaza(izq, medio, c);
+			if(altura(t) <= altura(r) + 1)
+				return enlaza(t, der, r);
+			return giraDerecha(enlaza(giraIzquierda(t), der, r));
+		}
+		AVLNode<K, T> t = uneIzquierda(izq, medio, c);
+		AVLNode<K, T> unido = enlaza(t, der, r);
+		return altura(t) <= altura(r) + 1 ? unido : giraDerecha(unido);
+	}
 
-					AVLNode nuevoI = nuevo.izquierdo;
+	/**
+	 * Une dos subárboles sin nodo intermedio, usando el máximo de izq.
+	 */
+	private AVLNode<K, T> uneSinMedio(AVLNode<K, T> izq, AVLNode<K, T> der){
+		if(izq == null)
+			return der;
+		if(der == null)
+			return izq;
+		Particion p = quitaMaximo(izq);
+		return une(p.menores, p.igual, der);
+	}
 
+	/**
+	 * Separa el nodo máximo de un subárbol no vacío.
+	 * @return la partición con el resto en menores y el máximo en igual.
+	 */
+	private Particion quitaMaximo(AVLNode<K, T> nodo){
+		if(nodo.derecho == null){
+			Particion p = new Particion();
+			p.menores = nodo.izquierdo;
+			p.igual = nodo;
+			return p;
+		}
+		Particion p = quitaMaximo(nodo.derecho);
+		p.menores = une(nodo.izquierdo, nodo, p.menores);
+		return p;
+	}
 
-					aux.derecho = nuevoI;
-					nuevoI.padre = aux;
-					nuevo.izquierdo = aux;	
+	/**
+	 * Cuelga izq y der de medio y actualiza su altura y tamaño.
+	 * @return medio, sin padre.
+	 */
+	private AVLNode<K, T> enlaza(AVLNode<K, T> izq, AVLNode<K, T> medio, AVLNode<K, T> der){
+		medio.izquierdo = izq;
+		if(izq != null)
+			izq.padre = medio;
+		medio.derecho = der;
+		if(der != null)
+			der.padre = medio;
+		medio.padre = null;
+		medio.actualizaAltura();
+		return medio;
+	}
 
-					return;
+	/** Rota a la izquierda un subárbol suelto y regresa su nueva raiz. */
+	private AVLNode<K, T> giraIzquierda(AVLNode<K, T> nodo){
+		AVLNode<K, T> nuevo = nodo.derecho;
+		return enlaza(enlaza(nodo.izquierdo, nodo, nuevo.izquierdo), nuevo, nuevo.derecho);
+	}
 
-				}				
+	/** Rota a la derecha un subárbol suelto y regresa su nueva raiz. */
+	private AVLNode<K, T> giraDerecha(AVLNode<K, T> nodo){
+		AVLNode<K, T> nuevo = nodo.izquierdo;
+		return enlaza(nuevo.izquierdo, nuevo, enlaza(nuevo.derecho, nodo, nodo.derecho));
+	}
 
-			}
-		} 
+	private AVLNode<K, T> sinPadre(AVLNode<K, T> nodo){
+		if(nodo != null)
+			nodo.padre = null;
+		return nodo;
 	}
 
-	public void rotarDerecha(AVLNode actual){
-		if(actual==null)
+	/**
+	 * Metodo que revalancea un arbol AVL
+	 * Sube desde actual hasta la raiz actualizando la altura guardada de cada
+	 * ancestro en O(1) a partir de la de sus hijos. En cuanto la altura de un
+	 * ancestro no cambia ya no hay nada que rotar más arriba, y solo falta
+	 * actualizar los tamaños de los subárboles hasta la raiz.
+	 * Con rebalanceo relajado no rota, ver enableRelaxedBalance.
+	 * @param actual el nodo que a partir de el se rebalanceara el arbol.
+	 * */
+	public void rebalancea (AVLNode<K, T> actual){
+		if(holgura > 0){
+			rebalanceaRelajado(actual);
 			return;
-		
-		if(actual==raiz ){
-			//nueva raiz
-			raiz = actual.izquierdo;
-
-			//auxiliar para guardar antigua raiz			
-			AVLNode aux = raiz.padre;
-			aux.izquierdo = null;
-			raiz.padre = null;
-			
-			if(raiz.derecho == null){	//no tiene hijo derecho
-				raiz.derecho = aux;
-				aux.padre = raiz;
-				return;
-			} else {	//tiene hijo derecho
-				AVLNode auxDer = raiz.derecho; //Guarda el hijo derecho aparte
-
-				//auxDer.padre=null;
-				//raiz.derecho = null;
-
-				raiz.derecho = aux;	//escribe la antigua raiz como hijo derecho
-				aux.padre = raiz;
-
-				aux.izquierdo = auxDer;
-				auxDer.padre = aux;	//Coloca al antiguo hijo derecho como hijo izquierdo de la antigua raiz.
-				return;
-			}			
-		} else {
-
-			AVLNode p = actual.padre;
-
-			if(p.derecho == actual){  //Actual es hijo derecho
-
-				if(actual.izquierdo.derecho==null){
-
-					p.derecho = null; //**
-					AVLNode aux = actual;
-					aux.padre = null;
-
-					AVLNode nuevo = aux.izquierdo;
-					p.derecho = nuevo;	//**
-					nuevo.padre = p;
-
-					aux.izquierdo = null;
-					nuevo.derecho = aux;
-					return;
-				} else {
-
-					p.derecho = null; //**
-					AVLNode aux = actual;
-					aux.padre = null;
+		}
+		boolean primero = true;
+		int visitados = 0;
+
+		while(actual != null){
+			int alturaAnterior = actual.altura;
+			actual.actualizaAltura();
+			visitados++;
+
+			int balance = altura(actual.izquierdo) - altura(actual.derecho);
+
+			if(balance > 1){ //HAY DESBALANCEO, pesa el izquierdo
+				AVLNode<K, T> h = actual.izquierdo;
+				boolean zigzag = altura(h.izquierdo) < altura(h.derecho);
+				if(zigzag)
+					rotarIzquierda(h);
+				rotarDerecha(actual);
+				if(metricas != null)
+					metricas.rotacion(zigzag);
+				actual = actual.padre;	//la nueva raiz del subarbol
+			} else if(balance < -1){ //HAY DESBALANCEO, pesa el derecho
+				AVLNode<K, T> h = actual.derecho;
+				boolean zigzag = altura(h.derecho) < altura(h.izquierdo);
+				if(zigzag)
+					rotarDerecha(h);
+				rotarIzquierda(actual);
+				if(metricas != null)
+					metricas.rotacion(zigzag);
+				actual = actual.padre;	//la nueva raiz del subarbol
+			} else if(!primero && actual.altura == alturaAnterior){
+				//NO HAY DESBALANCEO y la altura no cambio: arriba solo cambian los tamaños
+				for(actual = actual.padre; actual != null; actual = actual.padre){
+					actual.actualizaTamanio();
+					visitados++;
+				}
+				break;
+			}
 
-					AVLNode nuevo = aux.izquierdo;
-					p.derecho = nuevo; //**
-					nuevo.padre = p;
+			primero = false;
+			actual = actual.padre;
+		}
+		if(metricas != null)
+			metricas.rebalanceo(visitados);
+	}
 
-					AVLNode nuevoI = nuevo.derecho;
+	/**
+	 * Rebalanceo relajado: actualiza alturas y tamaños hasta la raiz sin
+	 * rotar y marca desde el primer nodo desbalanceado hacia arriba. Como en
+	 * rebalancea, en cuanto una altura no cambia y ya no hay que marcar (o el
+	 * nodo ya estaba marcado, y con él sus ancestros) solo quedan los
+	 * tamaños. Mientras haya marcas cuenta cada escritura y revisa la cota de
+	 * la altura.
+	 * @param actual el nodo desde el que se sube.
+	 */
+	private void rebalanceaRelajado(AVLNode<K, T> actual){
+		boolean primero = true, marca = false;
+		int visitados = 0;
+		for(; actual != null; actual = actual.padre){
+			int alturaAnterior = actual.altura;
+			actual.actualizaAltura();
+			visitados++;
+			if(!marca){
+				int balance = altura(actual.izquierdo) - altura(actual.derecho);
+				marca = balance > 1 || balance < -1;
+			}
+			boolean marcado = actual.pendiente;
+			if(marca)
+				actual.pendiente = true;
+			if(!primero && actual.altura == alturaAnterior && (!marca || marcado)){
+				for(actual = actual.padre; actual != null; actual = actual.padre){
+					actual.actualizaTamanio();
+					visitados++;
+				}
+				break;
+			}
+			primero = false;
+		}
+		if(metricas != null)
+			metricas.rebalanceo(visitados);
+		if(raiz != null && raiz.pendiente){
+			pendientes++;
+			if(raiz.altura > alturaMaximaAVL(raiz.tamanio) + holgura)
+				drainRebalance();
+		}
+	}
 
-					aux.izquierdo = nuevoI;
-					nuevoI.padre = aux;
-					nuevo.derecho = aux;	
-					return;
+	/**
+	 * Regresa la altura del AVL más alto con n nodos.
+	 * @param n el número de nodos, al menos 1.
+	 * @return la altura máxima.
+	 */
+	private static int alturaMaximaAVL(int n){
+		int i = Arrays.binarySearch(MINIMOS, n);
+		return i >= 0 ? i : -i - 2;
+	}
 
-				}	
+	/**
+	 * Regresa la altura guardada de un nodo, -1 si el nodo es null.
+	 * @param nodo el nodo a consultar.
+	 * @return la altura del nodo.
+	 */
+	private int altura(AVLNode<K, T> nodo){
+		return nodo == null ? -1 : nodo.altura;
+	}
 
-			} else {		//Actual es hijo izquierdo
+	/**
+	 * Rota a la izquierda sobre actual: su hijo derecho toma su lugar y actual
+	 * pasa a ser el hijo izquierdo de este. Actualiza las alturas de ambos.
+	 * @param actual el nodo sobre el que se rota.
+	 */
+	public void rotarIzquierda(AVLNode<K, T> actual){
 
-				if(actual.izquierdo.derecho == null){
+		if(actual==null || actual.derecho==null)
+			return;
 
-					p.izquierdo = null;
-					AVLNode aux = actual;
-					aux.padre = null;
+		AVLNode<K, T> p = actual.padre;
+		AVLNode<K, T> nuevo = actual.derecho;
 
-					AVLNode nuevo = aux.izquierdo;
+		//El hijo izquierdo de nuevo pasa a ser hijo derecho de actual
+		actual.derecho = nuevo.izquierdo;
+		if(nuevo.izquierdo != null)
+			nuevo.izquierdo.padre = actual;
 
-					p.izquierdo = nuevo;
-					nuevo.padre = p;
+		//nuevo toma el lugar de actual debajo de p
+		nuevo.padre = p;
+		if(p == null)
+			raiz = nuevo;
+		else if(p.izquierdo == actual)
+			p.izquierdo = nuevo;
+		else
+			p.derecho = nuevo;
 
-					aux.izquierdo = null;
-					nuevo.derecho = aux;
-					return;
+		nuevo.izquierdo = actual;
+		actual.padre = nuevo;
 
-				} else {
+		//Primero actual, que ahora es hijo de nuevo
+		actual.actualizaAltura();
+		nuevo.actualizaAltura();
+	}
 
-					p.izquierdo = null;
-					AVLNode aux = actual;
-					aux.padre = null;
+	/**
+	 * Rota a la derecha sobre actual: su hijo izquierdo toma su lugar y actual
+	 * pasa a ser el hijo derecho de este. Actualiza las alturas de ambos.
+	 * @param actual el nodo sobre el que se rota.
+	 */
+	public void rotarDerecha(AVLNode<K, T> actual){
 
-					AVLNode nuevo = aux.izquierdo;
+		if(actual==null || actual.izquierdo==null)
+			return;
 
-					p.izquierdo = nuevo;
-					nuevo.padre = p;
+		AVLNode<K, T> p = actual.padre;
+		AVLNode<K, T> nuevo = actual.izquierdo;
 
-					AVLNode nuevoI = nuevo.derecho;
+		//El hijo derecho de nuevo pasa a ser hijo izquierdo de actual
+		actual.izquierdo = nuevo.derecho;
+		if(nuevo.derecho != null)
+			nuevo.derecho.padre = actual;
 
+		//nuevo toma el lugar de actual debajo de p
+		nuevo.padre = p;
+		if(p == null)
+			raiz = nuevo;
+		else if(p.derecho == actual)
+			p.derecho = nuevo;
+		else
+			p.izquierdo = nuevo;
 
-					aux.izquierdo = nuevoI;
-					nuevoI.padre = aux;
-					nuevo.derecho = aux;	
-					return;
-				}				
+		nuevo.derecho = actual;
+		actual.padre = nuevo;
 
-			}
-		}
+		//Primero actual, que ahora es hijo de nuevo
+		actual.actualizaAltura();
+		nuevo.actualizaAltura();
 	}
 
 	public static void main(String[] args) {
@@ -796,10 +2567,11 @@ public class AVLTree<K extends Comparable, T> implements TDABinarySearchTree<K,
 		    		System.out.println(verde+"Inserta la clave a buscar:"+blanco);
 		    		clave = sc.nextInt();
 
-		    		if(tree.retrieve(clave)==null)
+		    		String encontrado = tree.retrieve(clave);
+		    		if(encontrado==null)
 						System.out.println("El elemento con esa clave no existe en el arbol");
 					else
-						System.out.println("El elemento con esa clave es: "+tree.retrieve(clave));
+						System.out.println("El elemento con esa clave es: "+encontrado);
 
 					try{
             			Thread.sleep(3000);
@@ -822,9 +2594,11 @@ public class AVLTree<K extends Comparable, T> implements TDABinarySearchTree<K,
 		    		System.out.println(verde+"Inserta la cadena a guardar:"+blanco);
 		    		cadena = sc.nextLine()+"";
 
-		    		tree.insert(cadena, clave);
+		    		String anterior = tree.put(clave, cadena);
 
 		    		System.out.println("La cadena "+cadena+" se a guardado con la clave "+clave);
+		    		if(anterior!=null)
+		    			System.out.println("Reemplazó a la cadena "+anterior);
 
 					try{
             			Thread.sleep(3000);
@@ -843,12 +2617,10 @@ public class AVLTree<K extends Comparable, T> implements TDABinarySearchTree<K,
 		    		System.out.println(verde+"Inserta la clave del elemento a eliminar:"+blanco);
 		    		clave = sc.nextInt();
 
-		    		if(tree.retrieve(clave)==null)
+		    		if(tree.delete(clave)==null)
 						System.out.println("El elemento con esa clave no existe en el arbol");
-					else{
-						tree.delete(clave);
+					else
 						System.out.println("El elemento con la clave "+clave+" se ha eliminado");
-					}
 
 					try{
             			Thread.sleep(3000);
@@ -0,0 +1,191 @@
+package fciencias.edatos.practica06;
+
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.atomic.LongAdder;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+/**
+* Métricas de estructura de un AVLTree, activadas con enableMetrics().
+* Los contadores son LongAdder, así que también sirven cuando las operaciones
+* de conjuntos comparan claves desde varios hilos. La altura y el tamaño no
+* se cuentan, se leen del árbol al consultarlas; como el árbol no es seguro
+* entre hilos, una lectura desde JMX durante una escritura puede ver un valor
+* un momento atrasado.
+* @author Pintor Muñoz Pedro Joshue.
+* @since Estructuras de Datos 2022-1.
+*/
+public final class AVLTreeMetrics implements AVLTreeMetricsMBean{
+
+	/**
+	 * Copia inmutable de las métricas en un momento.
+	 */
+	public static final class Snapshot{
+
+		/** Comparaciones de claves. */
+		public final long comparisons;
+
+		/** Desbalanceos arreglados con una rotación simple. */
+		public final long singleRotations;
+
+		/** Desbalanceos arreglados con una rotación doble. */
+		public final long doubleRotations;
+
+		/** Insert y delete que rebalancearon. */
+		public final long updates;
+
+		/** Ancestros visitados por el rebalanceo. */
+		public final long rebalanceVisits;
+
+		/** Altura del árbol, -1 si es vacío. */
+		public final int height;
+
+		/** Número de nodos del árbol. */
+		public final int size;
+
+		Snapshot(long comparisons, long singleRotations, long doubleRotations, long updates, long rebalanceVisits, int height, int size){
+			this.comparisons = comparisons;
+			this.singleRotations = singleRotations;
+			this.doubleRotations = doubleRotations;
+			this.updates = updates;
+			this.rebalanceVisits = rebalanceVisits;
+			this.height = height;
+			this.size = size;
+		}
+
+		/**
+		 * Regresa el promedio de ancestros visitados por actualización.
+		 * @return los ancestros por actualización, 0 si no ha habido ninguna.
+		 */
+		public double meanRebalanceDepth(){
+			return updates == 0 ? 0 : (double) rebalanceVisits / updates;
+		}
+
+		@Override
+		public String toString(){
+			return String.format("comparaciones=%d rotaciones simples=%d dobles=%d actualizaciones=%d ancestros por actualizacion=%.2f altura=%d nodos=%d",
+				comparisons, singleRotations, doubleRotations, updates, meanRebalanceDepth(), height, size);
+		}
+	}
+
+	/** El árbol medido. */
+	private final AVLTree<?, ?> arbol;
+
+	final LongAdder comparaciones = new LongAdder();
+
+	private final LongAdder rotacionesSimples = new LongAdder();
+
+	private final LongAdder rotacionesDobles = new LongAdder();
+
+	private final LongAdder actualizaciones = new LongAdder();
+
+	private final LongAdder visitados = new LongAdder();
+
+	/** Nombre con el que está registrado en JMX, null si no lo está. */
+	private ObjectName nombre;
+
+	AVLTreeMetrics(AVLTree<?, ?> arbol){
+		this.arbol = arbol;
+	}
+
+	/**
+	 * Registra un rebalanceo.
+	 * @param ancestros los ancestros que visitó.
+	 */
+	void rebalanceo(int ancestros){
+		actualizaciones.increment();
+		visitados.add(ancestros);
+	}
+
+	/**
+	 * Registra un desbalanceo arreglado.
+	 * @param doble si necesitó rotación doble.
+	 */
+	void rotacion(boolean doble){
+		(doble ? rotacionesDobles : rotacionesSimples).increment();
+	}
+
+	@Override
+	public long getComparisons(){
+		return comparaciones.sum();
+	}
+
+	@Override
+	public long getSingleRotations(){
+		return rotacionesSimples.sum();
+	}
+
+	@Override
+	public long getDoubleRotations(){
+		return rotacionesDobles.sum();
+	}
+
+	@Override
+	public long getUpdates(){
+		return actualizaciones.sum();
+	}
+
+	@Override
+	public long getRebalanceVisits(){
+		return visitados.sum();
+	}
+
+	@Override
+	public double getMeanRebalanceDepth(){
+		return snapshot().meanRebalanceDepth();
+	}
+
+	@Override
+	public int getHeight(){
+		return arbol.altura();
+	}
+
+	@Override
+	public int getSize(){
+		return arbol.size();
+	}
+
+	@Override
+	public void reset(){
+		comparaciones.reset();
+		rotacionesSimples.reset();
+		rotacionesDobles.reset();
+		actualizaciones.reset();
+		visitados.reset();
+	}
+
+	/**
+	 * Regresa una copia de las métricas actuales.
+	 * @return la copia.
+	 */
+	public Snapshot snapshot(){
+		return new Snapshot(getComparisons(), getSingleRotations(), getDoubleRotations(), getUpdates(), getRebalanceVisits(), getHeight(), getSize());
+	}
+
+	/**
+	 * Registra las métricas en el servidor de MBeans de la plataforma con el
+	 * nombre fciencias.edatos.practica06:type=AVLTree,name=nombre.
+	 * @param nombre el nombre del árbol.
+	 * @throws JMException si el nombre no es válido o ya está registrado.
+	 */
+	public synchronized void register(String nombre) throws JMException{
+		unregister();
+		ObjectName objeto = new ObjectName("fciencias.edatos.practica06:type=AVLTree,name=" + ObjectName.quote(nombre));
+		ManagementFactory.getPlatformMBeanServer().registerMBean(this, objeto);
+		this.nombre = objeto;
+	}
+
+	/**
+	 * Quita las métricas del servidor de MBeans si estaban registradas.
+	 * @throws JMException si falla el servidor.
+	 */
+	public synchronized void unregister() throws JMException{
+		if(nombre == null)
+			return;
+		MBeanServer servidor = ManagementFactory.getPlatformMBeanServer();
+		if(servidor.isRegistered(nombre))
+			servidor.unregisterMBean(nombre);
+		nombre = null;
+	}
+}
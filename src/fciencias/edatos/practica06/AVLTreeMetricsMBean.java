@@ -0,0 +1,63 @@
+package fciencias.edatos.practica06;
+
+/**
+* Interfaz de JMX de las métricas de un AVLTree. Los contadores son
+* acumulados desde que se activaron las métricas o desde el último reset.
+* @author Pintor Muñoz Pedro Joshue.
+* @since Estructuras de Datos 2022-1.
+*/
+public interface AVLTreeMetricsMBean{
+
+	/**
+	 * Regresa cuántas veces se compararon dos claves.
+	 * @return el número de comparaciones.
+	 */
+	long getComparisons();
+
+	/**
+	 * Regresa cuántos desbalanceos se arreglaron con una rotación simple.
+	 * @return el número de rotaciones simples.
+	 */
+	long getSingleRotations();
+
+	/**
+	 * Regresa cuántos desbalanceos se arreglaron con una rotación doble.
+	 * @return el número de rotaciones dobles.
+	 */
+	long getDoubleRotations();
+
+	/**
+	 * Regresa cuántos insert y delete rebalancearon el árbol.
+	 * @return el número de actualizaciones.
+	 */
+	long getUpdates();
+
+	/**
+	 * Regresa cuántos ancestros visitó el rebalanceo en total.
+	 * @return el número de ancestros visitados.
+	 */
+	long getRebalanceVisits();
+
+	/**
+	 * Regresa el promedio de ancestros visitados por actualización.
+	 * @return los ancestros por actualización, 0 si no ha habido ninguna.
+	 */
+	double getMeanRebalanceDepth();
+
+	/**
+	 * Regresa la altura actual del árbol.
+	 * @return la altura, -1 si el árbol es vacío.
+	 */
+	int getHeight();
+
+	/**
+	 * Regresa el número actual de nodos del árbol.
+	 * @return el número de nodos.
+	 */
+	int getSize();
+
+	/**
+	 * Pone los contadores en cero.
+	 */
+	void reset();
+}
@@ -0,0 +1,127 @@
+package fciencias.edatos.practica06;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+* Codifica valores de ancho fijo directamente en un ByteBuffer.
+* Lo usa OffHeapAVLTree para guardar los elementos dentro de cada nodo.
+* @author Pintor Muñoz Pedro Joshue.
+* @since Estructuras de Datos 2022-1.
+*/
+public interface CodecFijo<T>{
+
+	/** Codec de Long en 8 bytes. */
+	public static final CodecFijo<Long> LONG = new CodecFijo<Long>(){
+		@Override
+		public int ancho(){
+			return Long.BYTES;
+		}
+
+		@Override
+		public void escribe(ByteBuffer buffer, int posicion, Long valor){
+			buffer.putLong(posicion, valor);
+		}
+
+		@Override
+		public Long lee(ByteBuffer buffer, int posicion){
+			return buffer.getLong(posicion);
+		}
+	};
+
+	/** Codec de Integer en 4 bytes. */
+	public static final CodecFijo<Integer> INT = new CodecFijo<Integer>(){
+		@Override
+		public int ancho(){
+			return Integer.BYTES;
+		}
+
+		@Override
+		public void escribe(ByteBuffer buffer, int posicion, Integer valor){
+			buffer.putInt(posicion, valor);
+		}
+
+		@Override
+		public Integer lee(ByteBuffer buffer, int posicion){
+			return buffer.getInt(posicion);
+		}
+	};
+
+	/** Codec de Double en 8 bytes. */
+	public static final CodecFijo<Double> DOUBLE = new CodecFijo<Double>(){
+		@Override
+		public int ancho(){
+			return Double.BYTES;
+		}
+
+		@Override
+		public void escribe(ByteBuffer buffer, int posicion, Double valor){
+			buffer.putDouble(posicion, valor);
+		}
+
+		@Override
+		public Double lee(ByteBuffer buffer, int posicion){
+			return buffer.getDouble(posicion);
+		}
+	};
+
+	/**
+	 * Regresa el número de bytes que ocupa cada valor.
+	 * @return el ancho en bytes.
+	 */
+	public int ancho();
+
+	/**
+	 * Escribe un valor a partir de una posición absoluta del buffer.
+	 * @param buffer el buffer destino.
+	 * @param posicion la posición del primer byte.
+	 * @param valor el valor a escribir.
+	 */
+	public void escribe(ByteBuffer buffer, int posicion, T valor);
+
+	/**
+	 * Lee un valor a partir de una posición absoluta del buffer.
+	 * @param buffer el buffer origen.
+	 * @param posicion la posición del primer byte.
+	 * @return el valor leído.
+	 */
+	public T lee(ByteBuffer buffer, int posicion);
+
+	/**
+	 * Crea un codec de cadenas UTF-8 de a lo más maximo bytes. El primer
+	 * byte guarda la longitud, por lo que maximo debe ser menor a 256.
+	 * Las cadenas null no se permiten.
+	 * @param maximo el número máximo de bytes de la cadena codificada.
+	 * @return el codec de cadenas.
+	 * @throws IllegalArgumentException si maximo no está entre 0 y 255.
+	 */
+	public static CodecFijo<String> cadena(final int maximo){
+		if(maximo < 0 || maximo > 255)
+			throw new IllegalArgumentException("El ancho máximo debe estar entre 0 y 255: " + maximo);
+
+		return new CodecFijo<String>(){
+			@Override
+			public int ancho(){
+				return 1 + maximo;
+			}
+
+			@Override
+			public void escribe(ByteBuffer buffer, int posicion, String valor){
+				byte[] bytes = valor.getBytes(StandardCharsets.UTF_8);
+				if(bytes.length > maximo)
+					throw new IllegalArgumentException("La cadena ocupa " + bytes.length + " bytes, el máximo es " + maximo);
+				buffer.put(posicion, (byte) bytes.length);
+				for(int i = 0; i < bytes.length; i++)
+					buffer.put(posicion + 1 + i, bytes[i]);
+			}
+
+			@Override
+			public String lee(ByteBuffer buffer, int posicion){
+				byte[] bytes = new byte[buffer.get(posicion) & 0xFF];
+				for(int i = 0; i < bytes.length; i++)
+					bytes[i] = buffer.get(posicion + 1 + i);
+				return new String(bytes, StandardCharsets.UTF_8);
+			}
+		};
+	}
+}
@@ -0,0 +1,403 @@
+package fciencias.edatos.practica06;
+
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+* Árbol AVL con nodos compactos para árboles muy grandes. Cada nodo solo
+* guarda clave, elemento, los dos hijos y la altura en un byte: sin padre,
+* sin tamaño de subárbol y sin referencia al árbol ocupa 32 bytes con
+* referencias comprimidas, contra 40 de AVLTree.AVLNode. A cambio no tiene
+* rank, select, búsqueda con dedo ni vistas: insert y delete recuerdan el
+* camino de bajada en una pila del árbol y rebalancean subiendo por ella.
+* Como AVLTree.insert, insert reemplaza el elemento si la clave ya está.
+* La pila es del árbol, así que ni las lecturas son seguras entre hilos
+* mientras alguien escribe.
+* @author Pintor Muñoz Pedro Joshue.
+* @since Estructuras de Datos 2022-1.
+*/
+public class CompactAVLTree<K extends Comparable, T> implements TDABinarySearchTree<K, T>, Iterable<T>{
+
+	/**
+	 * Nodo compacto, sin padre ni tamaño.
+	 */
+	static final class Nodo<K, T>{
+
+		K clave;
+
+		T elemento;
+
+		Nodo<K, T> izquierdo;
+
+		Nodo<K, T> derecho;
+
+		/** Altura del nodo, una hoja mide 0. */
+		byte altura;
+
+		Nodo(K clave, T elemento){
+			this.clave = clave;
+			this.elemento = elemento;
+		}
+	}
+
+	/**
+	 * Máximo de nodos en un camino de bajada. Un AVL de altura h tiene al
+	 * menos Fib(h + 3) - 1 nodos, así que con 2^31 nodos el camino es de
+	 * menos de 48.
+	 */
+	private static final int MAXIMO_CAMINO = 64;
+
+	@SuppressWarnings("unchecked")
+	private static final Comparator<Comparable> ORDEN_NATURAL = (a, b) -> a.compareTo(b);
+
+	private Nodo<K, T> raiz;
+
+	/** Número de nodos en el árbol. */
+	private int tamanio;
+
+	/** Comparador con el que se ordenan las claves. */
+	private final Comparator<? super K> comparador;
+
+	/** Camino de la última bajada, camino[0] es la raiz. */
+	private final Nodo<K, T>[] camino;
+
+	/**
+	 * Crea un árbol vacío ordenado por el orden natural de las claves.
+	 */
+	public CompactAVLTree(){
+		this(null);
+	}
+
+	/**
+	 * Crea un árbol vacío ordenado con un comparador.
+	 * @param comparador el comparador de claves, null para usar el orden natural.
+	 */
+	@SuppressWarnings("unchecked")
+	public CompactAVLTree(Comparator<? super K> comparador){
+		this.comparador = comparador != null ? comparador : (Comparator<? super K>) ORDEN_NATURAL;
+		this.camino = (Nodo<K, T>[]) new Nodo[MAXIMO_CAMINO];
+	}
+
+	/**
+	 * Regresa el número de elementos del árbol.
+	 * @return el número de elementos.
+	 */
+	public int size(){
+		return tamanio;
+	}
+
+	/**
+	 * Regresa la altura del árbol.
+	 * @return la altura, -1 si el árbol es vacío.
+	 */
+	public int altura(){
+		return altura(raiz);
+	}
+
+	@Override
+	public T retrieve(K k){
+		Comparator<? super K> cmp = comparador;
+		Nodo<K, T> actual = raiz;
+		while(actual != null){
+			int compare = cmp.compare(k, actual.clave);
+			if(compare == 0)
+				return actual.elemento;
+			actual = compare < 0 ? actual.izquierdo : actual.derecho;
+		}
+		return null;
+	}
+
+	/**
+	 * Inserta un nuevo elemento al árbol, o reemplaza el de la clave si ya
+	 * está.
+	 * @param e el elemento a ingresar.
+	 * @param k la clave del elemento a ingresar.
+	 */
+	@Override
+	public void insert(T e, K k){
+		put(k, e);
+	}
+
+	/**
+	 * Asocia un elemento a una clave bajando una sola vez.
+	 * @param k la clave.
+	 * @param e el elemento.
+	 * @return el elemento que tenía la clave o null si no estaba.
+	 */
+	public T put(K k, T e){
+		Comparator<? super K> cmp = comparador;
+		Nodo<K, T>[] camino = this.camino;
+		int profundidad = 0;
+		Nodo<K, T> actual = raiz;
+		int compare = 0;
+
+		while(actual != null){
+			compare = cmp.compare(k, actual.clave);
+			if(compare == 0){ // Ya está, solo cambia el elemento
+				T anterior = actual.elemento;
+				actual.elemento = e;
+				return anterior;
+			}
+			camino[profundidad++] = actual;
+			actual = compare < 0 ? actual.izquierdo : actual.derecho;
+		}
+
+		Nodo<K, T> nuevo = new Nodo<>(k, e);
+		tamanio++;
+		if(profundidad == 0){ // Arbol vacío
+			raiz = nuevo;
+			return null;
+		}
+		Nodo<K, T> padre = camino[profundidad - 1];
+		if(compare < 0)
+			padre.izquierdo = nuevo;
+		else
+			padre.derecho = nuevo;
+		rebalancea(profundidad);
+		return null;
+	}
+
+	@Override
+	public T delete(K k){
+		Comparator<? super K> cmp = comparador;
+		Nodo<K, T>[] camino = this.camino;
+		int profundidad = 0;
+		Nodo<K, T> v = raiz;
+
+		while(v != null){
+			int compare = cmp.compare(k, v.clave);
+			if(compare == 0)
+				break;
+			camino[profundidad++] = v;
+			v = compare < 0 ? v.izquierdo : v.derecho;
+		}
+		if(v == null) // La clave no está
+			return null;
+
+		// Posición de v en el camino, ahí queda el nodo que lo sustituye
+		int posicion = profundidad;
+		Nodo<K, T> sustituto;
+		if(v.izquierdo == null || v.derecho == null){ // A lo más un hijo
+			sustituto = v.izquierdo != null ? v.izquierdo : v.derecho;
+		} else { // Dos hijos, lo sustituye su predecesor
+			profundidad++;
+			sustituto = v.izquierdo;
+			if(sustituto.derecho != null){
+				while(sustituto.derecho != null){
+					camino[profundidad++] = sustituto;
+					sustituto = sustituto.derecho;
+				}
+				// El predecesor no tiene hijo derecho, su hijo izquierdo sube
+				camino[profundidad - 1].derecho = sustituto.izquierdo;
+				sustituto.izquierdo = v.izquierdo;
+			}
+			sustituto.derecho = v.derecho;
+			sustituto.altura = v.altura;
+			camino[posicion] = sustituto;
+		}
+		engancha(posicion, v, sustituto);
+
+		T eliminado = v.elemento;
+		v.izquierdo = v.derecho = null;
+		tamanio--;
+		rebalancea(profundidad);
+		return eliminado;
+	}
+
+	/**
+	 * Sube por el camino desde camino[profundidad - 1] arreglando alturas y
+	 * rotando donde haga falta. Se detiene en cuanto un subárbol queda con
+	 * la misma altura que tenía, porque arriba ya nada cambia.
+	 * @param profundidad el número de nodos del camino que pudieron cambiar.
+	 */
+	private void rebalancea(int profundidad){
+		Nodo<K, T>[] camino = this.camino;
+		for(int i = profundidad - 1; i >= 0; i--){
+			Nodo<K, T> nodo = camino[i];
+			int alturaAnterior = nodo.altura;
+			Nodo<K, T> subarbol = balancea(nodo);
+			if(subarbol != nodo)
+				engancha(i, nodo, subarbol);
+			if(subarbol.altura == alturaAnterior)
+				break;
+		}
+	}
+
+	/**
+	 * Pone a otro en el lugar de viejo, que está en camino[i]: bajo
+	 * camino[i - 1] o como raiz si i es 0.
+	 * @param i la posición de viejo en el camino.
+	 * @param viejo el nodo que sale.
+	 * @param otro el nodo que entra, puede ser null.
+	 */
+	private void engancha(int i, Nodo<K, T> viejo, Nodo<K, T> otro){
+		if(i == 0){
+			raiz = otro;
+			return;
+		}
+		Nodo<K, T> padre = camino[i - 1];
+		if(padre.izquierdo == viejo)
+			padre.izquierdo = otro;
+		else
+			padre.derecho = otro;
+	}
+
+	/**
+	 * Actualiza la altura de un nodo y lo rota si quedó desbalanceado.
+	 * @param nodo el nodo.
+	 * @return la nueva raiz de su subárbol.
+	 */
+	private Nodo<K, T> balancea(Nodo<K, T> nodo){
+		int balance = altura(nodo.izquierdo) - altura(nodo.derecho);
+		if(balance > 1){ // Pesa el izquierdo
+			if(altura(nodo.izquierdo.izquierdo) < altura(nodo.izquierdo.derecho))
+				nodo.izquierdo = giraIzquierda(nodo.izquierdo);
+			return giraDerecha(nodo);
+		}
+		if(balance < -1){ // Pesa el derecho
+			if(altura(nodo.derecho.derecho) < altura(nodo.derecho.izquierdo))
+				nodo.derecho = giraDerecha(nodo.derecho);
+			return giraIzquierda(nodo);
+		}
+		actualiza(nodo);
+		return nodo;
+	}
+
+	private Nodo<K, T> giraIzquierda(Nodo<K, T> nodo){
+		Nodo<K, T> nuevo = nodo.derecho;
+		nodo.derecho = nuevo.izquierdo;
+		nuevo.izquierdo = nodo;
+		actualiza(nodo);
+		actualiza(nuevo);
+		return nuevo;
+	}
+
+	private Nodo<K, T> giraDerecha(Nodo<K, T> nodo){
+		Nodo<K, T> nuevo = nodo.izquierdo;
+		nodo.izquierdo = nuevo.derecho;
+		nuevo.derecho = nodo;
+		actualiza(nodo);
+		actualiza(nuevo);
+		return nuevo;
+	}
+
+	private void actualiza(Nodo<K, T> nodo){
+		int izq = altura(nodo.izquierdo), der = altura(nodo.derecho);
+		nodo.altura = (byte) (1 + (izq > der ? izq : der));
+	}
+
+	private static int altura(Nodo<?, ?> nodo){
+		return nodo == null ? -1 : nodo.altura;
+	}
+
+	@Override
+	public T findMin(){
+		Nodo<K, T> actual = raiz;
+		if(actual == null)
+			return null;
+		while(actual.izquierdo != null)
+			actual = actual.izquierdo;
+		return actual.elemento;
+	}
+
+	@Override
+	public T findMax(){
+		Nodo<K, T> actual = raiz;
+		if(actual == null)
+			return null;
+		while(actual.derecho != null)
+			actual = actual.derecho;
+		return actual.elemento;
+	}
+
+	@Override
+	public void preorden(){
+		Nodo<?, ?>[] pila = new Nodo<?, ?>[altura(raiz) + 2];
+		int tope = 0;
+		if(raiz != null)
+			pila[tope++] = raiz;
+		while(tope > 0){
+			Nodo<?, ?> nodo = pila[--tope];
+			System.out.println(nodo.elemento);
+			// El derecho va abajo para salir después del izquierdo
+			if(nodo.derecho != null)
+				pila[tope++] = nodo.derecho;
+			if(nodo.izquierdo != null)
+				pila[tope++] = nodo.izquierdo;
+		}
+	}
+
+	@Override
+	public void inorden(){
+		for(T elemento : this)
+			System.out.println(elemento);
+	}
+
+	@Override
+	public void postorden(){
+		Nodo<?, ?>[] pila = new Nodo<?, ?>[altura(raiz) + 1];
+		int tope = 0;
+		Nodo<?, ?> actual = raiz;
+		Nodo<?, ?> anterior = null;
+		while(actual != null || tope > 0){
+			while(actual != null){
+				pila[tope++] = actual;
+				actual = actual.izquierdo;
+			}
+			Nodo<?, ?> nodo = pila[tope - 1];
+			// Si tiene derecho sin visitar, primero va ese subarbol
+			if(nodo.derecho != null && nodo.derecho != anterior){
+				actual = nodo.derecho;
+			} else {
+				System.out.println(nodo.elemento);
+				anterior = nodo;
+				tope--;
+			}
+		}
+	}
+
+	@Override
+	public boolean isEmpty(){
+		return raiz == null;
+	}
+
+	/**
+	 * Regresa un iterador de los elementos en inorden. Guarda en una pila el
+	 * camino a la izquierda que falta por visitar.
+	 * @return el iterador.
+	 */
+	@Override
+	public Iterator<T> iterator(){
+		return new Iterator<T>(){
+
+			@SuppressWarnings("unchecked")
+			private final Nodo<K, T>[] pila = (Nodo<K, T>[]) new Nodo[altura(raiz) + 1];
+
+			private int tope;
+
+			{
+				apila(raiz);
+			}
+
+			private void apila(Nodo<K, T> nodo){
+				for(; nodo != null; nodo = nodo.izquierdo)
+					pila[tope++] = nodo;
+			}
+
+			@Override
+			public boolean hasNext(){
+				return tope > 0;
+			}
+
+			@Override
+			public T next(){
+				if(tope == 0)
+					throw new NoSuchElementException();
+				Nodo<K, T> nodo = pila[--tope];
+				apila(nodo.derecho);
+				return nodo.elemento;
+			}
+		};
+	}
+}
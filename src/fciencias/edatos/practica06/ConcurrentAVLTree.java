@@ -0,0 +1,918 @@
+package fciencias.edatos.practica06;
+
+import java.util.Comparator;
+import java.util.Objects;
+
+/**
+* Implementación concurrente de árbol AVL con lecturas optimistas.
+* Sigue el diseño de Bronson, Casper, Chafi y Olukotun, "A Practical Concurrent
+* Binary Search Tree" (PPoPP 2010): cada nodo tiene una versión que cambia
+* cuando una rotación lo encoge, y las búsquedas bajan mano sobre mano
+* validando la versión del padre después de leer al hijo, sin tomar ningún
+* candado. Los escritores bloquean solo los nodos que modifican (el nodo y su
+* padre, y en una rotación los hijos que se mueven).
+* Eliminar un nodo con dos hijos lo deja como nodo de enrutamiento (sin
+* elemento) que se desengancha después, cuando le queda un hijo o ninguno;
+* por eso el balance es relajado mientras haya escrituras en curso y estricto
+* cuando el árbol queda quieto.
+* Todas las operaciones son linealizables. insert reemplaza el elemento si la
+* clave ya existe y los elementos no pueden ser null. Los recorridos son
+* débilmente consistentes: no fallan con escrituras concurrentes pero pueden
+* o no reflejarlas.
+* @author Pintor Muñoz Pedro Joshue.
+* @since Estructuras de Datos 2022-1.
+*/
+public class ConcurrentAVLTree<K extends Comparable, T> implements TDABinarySearchTree<K, T>{
+
+	/** Bit de versión de un nodo que ya salió del árbol. */
+	private static final long DESENGANCHADO = 0x1L;
+
+	/** Bit de versión de un nodo que se está encogiendo en una rotación. */
+	private static final long ENCOGIENDO = 0x2L;
+
+	/** Incremento de la versión al terminar de encoger un nodo. */
+	private static final long INCREMENTO = 0x4L;
+
+	/** Vueltas de espera activa antes de bloquearse en el candado del nodo. */
+	private static final int VUELTAS = 100;
+
+	/** Resultado que indica que hay que reintentar desde el padre. */
+	private static final Object REINTENTA = new Object();
+
+	/** Condiciones de un nodo, ver condicion(). */
+	private static final int DESENGANCHE = -1, REBALANCEO = -2, NADA = -3;
+
+	/** Orden natural de las claves, usado cuando no se da comparador. */
+	@SuppressWarnings({"rawtypes", "unchecked"})
+	private static final Comparator<Comparable> ORDEN_NATURAL = (a, b) -> a.compareTo(b);
+
+	/**
+	 * Nodo del árbol concurrente. Los campos que leen las búsquedas sin
+	 * candado son volatile.
+	 */
+	private static final class Nodo<K, T>{
+
+		/** Clave del nodo, null solo en el nodo que sostiene a la raiz. */
+		final K clave;
+
+		/** Altura del nodo, una hoja mide 1. */
+		volatile int altura;
+
+		/** Elemento almacenado, null si es nodo de enrutamiento. */
+		volatile T elemento;
+
+		/** Padre del nodo. */
+		volatile Nodo<K, T> padre;
+
+		/** Versión del nodo, ver DESENGANCHADO, ENCOGIENDO e INCREMENTO. */
+		volatile long version;
+
+		/** Hijo izquierdo. */
+		volatile Nodo<K, T> izquierdo;
+
+		/** Hijo derecho. */
+		volatile Nodo<K, T> derecho;
+
+		Nodo(K clave, int altura, T elemento, Nodo<K, T> padre){
+			this.clave = clave;
+			this.altura = altura;
+			this.elemento = elemento;
+			this.padre = padre;
+		}
+
+		Nodo<K, T> hijo(boolean izq){
+			return izq ? izquierdo : derecho;
+		}
+
+		void ponHijo(boolean izq, Nodo<K, T> hijo){
+			if(izq)
+				izquierdo = hijo;
+			else
+				derecho = hijo;
+		}
+
+		/**
+		 * Espera a que termine la rotación que está encogiendo al nodo. El
+		 * rotador tiene el candado del nodo, así que si la espera activa no
+		 * basta nos bloqueamos en él.
+		 */
+		void esperaCambio(){
+			long v = version;
+			if((v & ENCOGIENDO) != 0){
+				int i = 0;
+				while(version == v && i < VUELTAS)
+					i++;
+				if(i == VUELTAS){
+					synchronized(this){}
+				}
+			}
+		}
+	}
+
+	/** Nodo sin clave cuyo hijo derecho es la raiz. */
+	private final Nodo<K, T> sostenRaiz = new Nodo<>(null, 1, null, null);
+
+	/** Comparador con el que se ordenan las claves. */
+	private final Comparator<? super K> comparador;
+
+	/**
+	 * Crea un árbol vacío ordenado por el orden natural de las claves.
+	 */
+	public ConcurrentAVLTree(){
+		this(null);
+	}
+
+	/**
+	 * Crea un árbol vacío ordenado con un comparador.
+	 * @param comparador el comparador de claves, null para usar el orden natural.
+	 */
+	@SuppressWarnings("unchecked")
+	public ConcurrentAVLTree(Comparator<? super K> comparador){
+		this.comparador = comparador != null ? comparador : (Comparator<? super K>) ORDEN_NATURAL;
+	}
+
+	private static boolean encogiendoODesenganchado(long v){
+		return (v & (ENCOGIENDO | DESENGANCHADO)) != 0;
+	}
+
+	private static boolean desenganchado(long v){
+		return (v & DESENGANCHADO) != 0;
+	}
+
+	private static int altura(Nodo<?, ?> nodo){
+		return nodo == null ? 0 : nodo.altura;
+	}
+
+	/* Búsqueda */
+
+	@Override
+	@SuppressWarnings("unchecked")
+	public T retrieve(K k){
+		while(true){
+			Nodo<K, T> raiz = sostenRaiz.derecho;
+			if(raiz == null)
+				return null;
+			int cmp = comparador.compare(k, raiz.clave);
+			if(cmp == 0)
+				return raiz.elemento;
+			long version = raiz.version;
+			if(encogiendoODesenganchado(version)){
+				raiz.esperaCambio();
+			} else if(raiz == sostenRaiz.derecho){
+				Object resultado = intentaBuscar(k, raiz, cmp < 0, version);
+				if(resultado != REINTENTA)
+					return (T) resultado;
+			}
+		}
+	}
+
+	/**
+	 * Busca k debajo de nodo, en la dirección ya decidida. Regresa REINTENTA
+	 * si una rotación cambió a nodo desde que se leyó su versión.
+	 * @param k la clave a buscar.
+	 * @param nodo el nodo actual.
+	 * @param izq si k va a la izquierda de nodo.
+	 * @param version la versión de nodo al llegar a él.
+	 * @return el elemento, null si no existe o REINTENTA.
+	 */
+	private Object intentaBuscar(K k, Nodo<K, T> nodo, boolean izq, long version){
+		while(true){
+			Nodo<K, T> hijo = nodo.hijo(izq);
+			if(hijo == null){
+				if(nodo.version != version)
+					return REINTENTA;
+				return null;
+			}
+
+			int cmp = comparador.compare(k, hijo.clave);
+			if(cmp == 0)
+				return hijo.elemento;
+
+			long versionHijo = hijo.version;
+			if(encogiendoODesenganchado(versionHijo)){
+				hijo.esperaCambio();
+				if(nodo.version != version)
+					return REINTENTA;
+			} else if(hijo != nodo.hijo(izq)){
+				if(nodo.version != version)
+					return REINTENTA;
+			} else {
+				// El hijo sigue siendo nuestro, ya no dependemos de nodo
+				if(nodo.version != version)
+					return REINTENTA;
+				Object resultado = intentaBuscar(k, hijo, cmp < 0, versionHijo);
+				if(resultado != REINTENTA)
+					return resultado;
+			}
+		}
+	}
+
+	@Override
+	public T findMin(){
+		return extremo(true);
+	}
+
+	@Override
+	public T findMax(){
+		return extremo(false);
+	}
+
+	@Override
+	public boolean isEmpty(){
+		return extremo(true) == null;
+	}
+
+	/**
+	 * Busca el elemento de la clave menor o mayor.
+	 * @param izq true para el mínimo, false para el máximo.
+	 * @return el elemento, null si el árbol es vacío.
+	 */
+	@SuppressWarnings("unchecked")
+	private T extremo(boolean izq){
+		while(true){
+			Nodo<K, T> raiz = sostenRaiz.derecho;
+			if(raiz == null)
+				return null;
+			long version = raiz.version;
+			if(encogiendoODesenganchado(version)){
+				raiz.esperaCambio();
+			} else if(raiz == sostenRaiz.derecho){
+				Object resultado = intentaExtremo(izq, raiz, version);
+				if(resultado != REINTENTA)
+					return (T) resultado;
+			}
+		}
+	}
+
+	/**
+	 * Baja siempre hacia el mismo lado desde nodo. Si el último nodo es de
+	 * enrutamiento, el extremo está en su otro subárbol.
+	 * @param izq la dirección en la que se baja.
+	 * @param nodo el nodo actual.
+	 * @param version la versión de nodo al llegar a él.
+	 * @return el elemento extremo, null si no hay o REINTENTA.
+	 */
+	private Object intentaExtremo(boolean izq, Nodo<K, T> nodo, long version){
+		while(true){
+			Nodo<K, T> hijo = nodo.hijo(izq);
+			if(hijo == null){
+				// Hay que leer el elemento antes de validar la versión
+				T elemento = nodo.elemento;
+				if(nodo.version != version)
+					return REINTENTA;
+				if(elemento != null)
+					return elemento;
+				hijo = nodo.hijo(!izq);
+				if(hijo == null){
+					// Nodo de enrutamiento solo, el árbol está vacío o a punto de cambiar
+					if(nodo.version != version)
+						return REINTENTA;
+					return nodo == sostenRaiz.derecho ? null : REINTENTA;
+				}
+			}
+
+			long versionHijo = hijo.version;
+			if(encogiendoODesenganchado(versionHijo)){
+				hijo.esperaCambio();
+				if(nodo.version != version)
+					return REINTENTA;
+			} else if(hijo != nodo.izquierdo && hijo != nodo.derecho){
+				if(nodo.version != version)
+					return REINTENTA;
+			} else {
+				if(nodo.version != version)
+					return REINTENTA;
+				Object resultado = intentaExtremo(izq, hijo, versionHijo);
+				if(resultado != REINTENTA)
+					return resultado;
+			}
+		}
+	}
+
+	/* Actualización */
+
+	@Override
+	public void insert(T e, K k){
+		Objects.requireNonNull(e, "ConcurrentAVLTree no admite elementos null");
+		actualiza(k, e);
+	}
+
+	@Override
+	public T delete(K k){
+		return actualiza(k, null);
+	}
+
+	/**
+	 * Pone el elemento de la clave k, o lo quita si nuevo es null.
+	 * @param k la clave.
+	 * @param nuevo el elemento nuevo, null para eliminar.
+	 * @return el elemento anterior, null si no había.
+	 */
+	@SuppressWarnings("unchecked")
+	private T actualiza(K k, T nuevo){
+		while(true){
+			Nodo<K, T> raiz = sostenRaiz.derecho;
+			if(raiz == null){
+				if(nuevo == null || insertaEnVacio(k, nuevo))
+					return null;
+			} else {
+				long version = raiz.version;
+				if(encogiendoODesenganchado(version)){
+					raiz.esperaCambio();
+				} else if(raiz == sostenRaiz.derecho){
+					Object resultado = intentaActualizar(k, nuevo, sostenRaiz, raiz, version);
+					if(resultado != REINTENTA)
+						return (T) resultado;
+				}
+			}
+		}
+	}
+
+	/**
+	 * Inserta la raiz si el árbol sigue vacío.
+	 * @param k la clave.
+	 * @param nuevo el elemento.
+	 * @return true si se insertó.
+	 */
+	private boolean insertaEnVacio(K k, T nuevo){
+		synchronized(sostenRaiz){
+			if(sostenRaiz.derecho != null)
+				return false;
+			sostenRaiz.derecho = new Nodo<>(k, 1, nuevo, sostenRaiz);
+			sostenRaiz.altura = 2;
+			return true;
+		}
+	}
+
+	/**
+	 * Baja hacia k desde nodo y lo actualiza o inserta al llegar.
+	 * @param k la clave.
+	 * @param nuevo el elemento nuevo, null para eliminar.
+	 * @param padre el padre de nodo.
+	 * @param nodo el nodo actual.
+	 * @param version la versión de nodo al llegar a él.
+	 * @return el elemento anterior, null o REINTENTA.
+	 */
+	private Object intentaActualizar(K k, T nuevo, Nodo<K, T> padre, Nodo<K, T> nodo, long version){
+		int cmp = comparador.compare(k, nodo.clave);
+		if(cmp == 0)
+			return actualizaNodo(nuevo, padre, nodo);
+
+		boolean izq = cmp < 0;
+		while(true){
+			Nodo<K, T> hijo = nodo.hijo(izq);
+			if(nodo.version != version)
+				return REINTENTA;
+
+			if(hijo == null){
+				// La clave no está
+				if(nuevo == null)
+					return null;
+
+				boolean insertado;
+				Nodo<K, T> danado = null;
+				synchronized(nodo){
+					// Con el candado de nodo ninguna rotación futura lo mueve
+					if(nodo.version != version)
+						return REINTENTA;
+					// Si otro hilo insertó aquí primero, volvemos a intentar
+					insertado = nodo.hijo(izq) == null;
+					if(insertado){
+						nodo.ponHijo(izq, new Nodo<>(k, 1, nuevo, nodo));
+						danado = arreglaAltura(nodo);
+					}
+				}
+				if(insertado){
+					arreglaAlturaYRebalancea(danado);
+					return null;
+				}
+			} else {
+				long versionHijo = hijo.version;
+				if(encogiendoODesenganchado(versionHijo)){
+					hijo.esperaCambio();
+				} else if(hijo != nodo.hijo(izq)){
+					// Cambió el hijo, volvemos a leerlo
+				} else {
+					if(nodo.version != version)
+						return REINTENTA;
+					Object resultado = intentaActualizar(k, nuevo, nodo, hijo, versionHijo);
+					if(resultado != REINTENTA)
+						return resultado;
+				}
+			}
+		}
+	}
+
+	/**
+	 * Actualiza el nodo que tiene la clave buscada.
+	 * @param nuevo el elemento nuevo, null para eliminar.
+	 * @param padre el padre de nodo.
+	 * @param nodo el nodo con la clave.
+	 * @return el elemento anterior, null o REINTENTA.
+	 */
+	private Object actualizaNodo(T nuevo, Nodo<K, T> padre, Nodo<K, T> nodo){
+		if(nuevo == null && nodo.elemento == null)
+			return null;	// Ya estaba eliminado
+
+		if(nuevo == null && (nodo.izquierdo == null || nodo.derecho == null)){
+			// Se puede desenganchar, hace falta el candado del padre
+			T anterior;
+			Nodo<K, T> danado;
+			synchronized(padre){
+				if(desenganchado(padre.version) || nodo.padre != padre)
+					return REINTENTA;
+				synchronized(nodo){
+					anterior = nodo.elemento;
+					if(anterior == null)
+						return null;
+					if(!intentaDesenganchar(padre, nodo))
+						return REINTENTA;
+				}
+				danado = arreglaAltura(padre);
+			}
+			arreglaAlturaYRebalancea(danado);
+			return anterior;
+		}
+
+		synchronized(nodo){
+			if(desenganchado(nodo.version))
+				return REINTENTA;
+			T anterior = nodo.elemento;
+			// Si ahora se puede desenganchar, mejor reintentamos por ese camino
+			if(nuevo == null && (nodo.izquierdo == null || nodo.derecho == null))
+				return REINTENTA;
+			// Con dos hijos, eliminar lo deja como nodo de enrutamiento
+			nodo.elemento = nuevo;
+			return anterior;
+		}
+	}
+
+	/**
+	 * Quita a nodo, que tiene a lo más un hijo, de debajo de padre. Requiere
+	 * los candados de ambos. No ajusta alturas.
+	 * @param padre el padre de nodo.
+	 * @param nodo el nodo a quitar.
+	 * @return false si nodo ya no es hijo de padre o ya tiene dos hijos.
+	 */
+	private boolean intentaDesenganchar(Nodo<K, T> padre, Nodo<K, T> nodo){
+		Nodo<K, T> padreIzq = padre.izquierdo;
+		Nodo<K, T> padreDer = padre.derecho;
+		if(padreIzq != nodo && padreDer != nodo)
+			return false;
+
+		Nodo<K, T> izq = nodo.izquierdo;
+		Nodo<K, T> der = nodo.derecho;
+		if(izq != null && der != null)
+			return false;
+
+		Nodo<K, T> hijo = izq != null ? izq : der;
+		if(padreIzq == nodo)
+			padre.izquierdo = hijo;
+		else
+			padre.derecho = hijo;
+		if(hijo != null)
+			hijo.padre = padre;
+
+		nodo.version = DESENGANCHADO;
+		nodo.elemento = null;
+		return true;
+	}
+
+	/* Rebalanceo */
+
+	/**
+	 * Diagnostica un nodo sin candados, el resultado es solo una pista.
+	 * @param nodo el nodo a revisar.
+	 * @return DESENGANCHE, REBALANCEO, NADA o la altura correcta del nodo.
+	 */
+	private int condicion(Nodo<K, T> nodo){
+		Nodo<K, T> izq = nodo.izquierdo;
+		Nodo<K, T> der = nodo.derecho;
+		if((izq == null || der == null) && nodo.elemento == null)
+			return DESENGANCHE;
+
+		int alturaNodo = nodo.altura;
+		int alturaIzq = altura(izq);
+		int alturaDer = altura(der);
+		int alturaNueva = 1 + Math.max(alturaIzq, alturaDer);
+		int balance = alturaIzq - alturaDer;
+
+		if(balance < -1 || balance > 1)
+			return REBALANCEO;
+		return alturaNodo != alturaNueva ? alturaNueva : NADA;
+	}
+
+	/**
+	 * Repara alturas, balance y nodos de enrutamiento desde nodo hacia la
+	 * raiz, tomando en cada paso solo los candados necesarios. Un paso puede
+	 * dejar dañado a un nodo más abajo que otro que aún debe rotar (cuando la
+	 * rotación doble se parte en dos), así que no nos detenemos en el primer
+	 * nodo sano sino que subimos, sin candados, hasta la raiz.
+	 * @param nodo el nodo dañado, puede ser null.
+	 */
+	private void arreglaAlturaYRebalancea(Nodo<K, T> nodo){
+		while(nodo != null && nodo.padre != null){
+			if(desenganchado(nodo.version))
+				return;
+
+			int condicion = condicion(nodo);
+			Nodo<K, T> siguiente;
+			if(condicion == NADA){
+				siguiente = null;
+			} else if(condicion != DESENGANCHE && condicion != REBALANCEO){
+				synchronized(nodo){
+					siguiente = arreglaAltura(nodo);
+				}
+			} else {
+				Nodo<K, T> padre = nodo.padre;
+				// Si el padre cambió se reintenta con el nuevo
+				siguiente = nodo;
+				synchronized(padre){
+					if(!desenganchado(padre.version) && nodo.padre == padre){
+						synchronized(nodo){
+							siguiente = rebalancea(padre, nodo);
+						}
+					}
+				}
+			}
+			// Sin más daño seguimos subiendo desde nodo, que pudo haber bajado
+			nodo = siguiente != null ? siguiente : nodo.padre;
+		}
+	}
+
+	/**
+	 * Corrige la altura de un nodo con candado.
+	 * @param nodo el nodo dañado.
+	 * @return el siguiente nodo dañado del que somos responsables, o null.
+	 */
+	private Nodo<K, T> arreglaAltura(Nodo<K, T> nodo){
+		int c = condicion(nodo);
+		switch(c){
+			case REBALANCEO:
+			case DESENGANCHE:
+				return nodo;	// No se puede con este candado
+			case NADA:
+				return null;
+			default:
+				nodo.altura = c;
+				return nodo.padre;	// Dañamos al padre
+		}
+	}
+
+	/**
+	 * Rebalancea a nodo, con candado suyo y de su padre.
+	 * @param padre el padre de nodo.
+	 * @param nodo el nodo a rebalancear.
+	 * @return el siguiente nodo dañado, o null.
+	 */
+	private Nodo<K, T> rebalancea(Nodo<K, T> padre, Nodo<K, T> nodo){
+		Nodo<K, T> izq = nodo.izquierdo;
+		Nodo<K, T> der = nodo.derecho;
+
+		if((izq == null || der == null) && nodo.elemento == null){
+			if(intentaDesenganchar(padre, nodo))
+				return arreglaAltura(padre);
+			return nodo;
+		}
+
+		int alturaNodo = nodo.altura;
+		int alturaIzq = altura(izq);
+		int alturaDer = altura(der);
+		int alturaNueva = 1 + Math.max(alturaIzq, alturaDer);
+		int balance = alturaIzq - alturaDer;
+
+		if(balance > 1)
+			return rebalanceaDerecha(padre, nodo, izq, alturaDer);
+		if(balance < -1)
+			return rebalanceaIzquierda(padre, nodo, der, alturaIzq);
+		if(alturaNueva != alturaNodo){
+			nodo.altura = alturaNueva;
+			return arreglaAltura(padre);
+		}
+		return null;
+	}
+
+	/**
+	 * El subárbol izquierdo de nodo pesa de más: rota a la derecha, antes
+	 * rotando a la izquierda al hijo si hace falta.
+	 */
+	private Nodo<K, T> rebalanceaDerecha(Nodo<K, T> padre, Nodo<K, T> nodo, Nodo<K, T> izq, int alturaDer){
+		synchronized(izq){
+			int alturaIzq = izq.altura;
+			if(alturaIzq - alturaDer <= 1)
+				return nodo;	// Reintentar
+
+			Nodo<K, T> izqDer = izq.derecho;
+			int alturaIzqIzq = altura(izq.izquierdo);
+			int alturaIzqDer = altura(izqDer);
+			if(alturaIzqIzq >= alturaIzqDer)
+				return rotaDerecha(padre, nodo, izq, alturaDer, alturaIzqIzq, izqDer, alturaIzqDer);
+
+			synchronized(izqDer){
+				// La altura leída pudo cambiar, quizá basta una rotación simple
+				alturaIzqDer = izqDer.altura;
+				if(alturaIzqIzq >= alturaIzqDer)
+					return rotaDerecha(padre, nodo, izq, alturaDer, alturaIzqIzq, izqDer, alturaIzqDer);
+
+				int alturaIzqDerIzq = altura(izqDer.izquierdo);
+				int b = alturaIzqIzq - alturaIzqDerIzq;
+				if(b >= -1 && b <= 1 && !((alturaIzqIzq == 0 || alturaIzqDerIzq == 0) && izq.elemento == null))
+					return rotaDerechaSobreIzquierda(padre, nodo, izq, alturaDer, alturaIzqIzq, izqDer, alturaIzqDerIzq);
+
+				// La rotación doble dejaría a izq dañado. Si izq está balanceado
+				// hacemos solo su mitad, nodo queda para una rotación simple
+				if(alturaIzqDer - alturaIzqIzq <= 1)
+					return rotaIzquierda(nodo, izq, alturaIzqIzq, izqDer, izqDer.izquierdo, alturaIzqDerIzq, altura(izqDer.derecho));
+			}
+			// Primero arreglamos al hijo, nodo se rebalancea después
+			return rebalanceaIzquierda(nodo, izq, izqDer, alturaIzqIzq);
+		}
+	}
+
+	/**
+	 * El subárbol derecho de nodo pesa de más: rota a la izquierda, antes
+	 * rotando a la derecha al hijo si hace falta.
+	 */
+	private Nodo<K, T> rebalanceaIzquierda(Nodo<K, T> padre, Nodo<K, T> nodo, Nodo<K, T> der, int alturaIzq){
+		synchronized(der){
+			int alturaDer = der.altura;
+			if(alturaIzq - alturaDer >= -1)
+				return nodo;	// Reintentar
+
+			Nodo<K, T> derIzq = der.izquierdo;
+			int alturaDerDer = altura(der.derecho);
+			int alturaDerIzq = altura(derIzq);
+			if(alturaDerDer >= alturaDerIzq)
+				return rotaIzquierda(padre, nodo, alturaIzq, der, derIzq, alturaDerIzq, alturaDerDer);
+
+			synchronized(derIzq){
+				alturaDerIzq = derIzq.altura;
+				if(alturaDerDer >= alturaDerIzq)
+					return rotaIzquierda(padre, nodo, alturaIzq, der, derIzq, alturaDerIzq, alturaDerDer);
+
+				int alturaDerIzqDer = altura(derIzq.derecho);
+				int b = alturaDerDer - alturaDerIzqDer;
+				if(b >= -1 && b <= 1 && !((alturaDerDer == 0 || alturaDerIzqDer == 0) && der.elemento == null))
+					return rotaIzquierdaSobreDerecha(padre, nodo, alturaIzq, der, derIzq, alturaDerDer, alturaDerIzqDer);
+
+				if(alturaDerIzq - alturaDerDer <= 1)
+					return rotaDerecha(nodo, der, derIzq, alturaDerDer, altura(derIzq.izquierdo), derIzq.derecho, alturaDerIzqDer);
+			}
+			return rebalanceaDerecha(nodo, der, derIzq, alturaDerDer);
+		}
+	}
+
+	/**
+	 * Rotación simple a la derecha de nodo, con candados de padre, nodo e izq.
+	 * Los enlaces se cambian en un orden que no confunde a las búsquedas
+	 * concurrentes, salvo a las que pasan por nodo, que ven su versión encogerse.
+	 */
+	private Nodo<K, T> rotaDerecha(Nodo<K, T> padre, Nodo<K, T> nodo, Nodo<K, T> izq, int alturaDer, int alturaIzqIzq, Nodo<K, T> izqDer, int alturaIzqDer){
+		long version = nodo.version;
+		Nodo<K, T> padreIzq = padre.izquierdo;
+
+		nodo.version = version | ENCOGIENDO;
+
+		nodo.izquierdo = izqDer;
+		if(izqDer != null)
+			izqDer.padre = nodo;
+		izq.derecho = nodo;
+		nodo.padre = izq;
+		if(padreIzq == nodo)
+			padre.izquierdo = izq;
+		else
+			padre.derecho = izq;
+		izq.padre = padre;
+
+		int alturaNodo = 1 + Math.max(alturaIzqDer, alturaDer);
+		nodo.altura = alturaNodo;
+		izq.altura = 1 + Math.max(alturaIzqIzq, alturaNodo);
+
+		nodo.version = version + INCREMENTO;
+
+		// Arreglamos lo que podamos con los candados que tenemos
+		int balanceNodo = alturaIzqDer - alturaDer;
+		if(balanceNodo < -1 || balanceNodo > 1)
+			return nodo;
+		if((izqDer == null || alturaDer == 0) && nodo.elemento == null)
+			return nodo;
+		int balanceIzq = alturaIzqIzq - alturaNodo;
+		if(balanceIzq < -1 || balanceIzq > 1)
+			return izq;
+		if(alturaIzqIzq == 0 && izq.elemento == null)
+			return izq;
+		return arreglaAltura(padre);
+	}
+
+	/**
+	 * Rotación simple a la izquierda de nodo, con candados de padre, nodo y der.
+	 */
+	private Nodo<K, T> rotaIzquierda(Nodo<K, T> padre, Nodo<K, T> nodo, int alturaIzq, Nodo<K, T> der, Nodo<K, T> derIzq, int alturaDerIzq, int alturaDerDer){
+		long version = nodo.version;
+		Nodo<K, T> padreIzq = padre.izquierdo;
+
+		nodo.version = version | ENCOGIENDO;
+
+		nodo.derecho = derIzq;
+		if(derIzq != null)
+			derIzq.padre = nodo;
+		der.izquierdo = nodo;
+		nodo.padre = der;
+		if(padreIzq == nodo)
+			padre.izquierdo = der;
+		else
+			padre.derecho = der;
+		der.padre = padre;
+
+		int alturaNodo = 1 + Math.max(alturaIzq, alturaDerIzq);
+		nodo.altura = alturaNodo;
+		der.altura = 1 + Math.max(alturaNodo, alturaDerDer);
+
+		nodo.version = version + INCREMENTO;
+
+		int balanceNodo = alturaDerIzq - alturaIzq;
+		if(balanceNodo < -1 || balanceNodo > 1)
+			return nodo;
+		if((derIzq == null || alturaIzq == 0) && nodo.elemento == null)
+			return nodo;
+		int balanceDer = alturaDerDer - alturaNodo;
+		if(balanceDer < -1 || balanceDer > 1)
+			return der;
+		if(alturaDerDer == 0 && der.elemento == null)
+			return der;
+		return arreglaAltura(padre);
+	}
+
+	/**
+	 * Rotación doble: izq a la izquierda y nodo a la derecha, con candados de
+	 * padre, nodo, izq e izqDer.
+	 */
+	private Nodo<K, T> rotaDerechaSobreIzquierda(Nodo<K, T> padre, Nodo<K, T> nodo, Nodo<K, T> izq, int alturaDer, int alturaIzqIzq, Nodo<K, T> izqDer, int alturaIzqDerIzq){
+		long version = nodo.version;
+		long versionIzq = izq.version;
+		Nodo<K, T> padreIzq = padre.izquierdo;
+		Nodo<K, T> izqDerIzq = izqDer.izquierdo;
+		Nodo<K, T> izqDerDer = izqDer.derecho;
+		int alturaIzqDerDer = altura(izqDerDer);
+
+		nodo.version = version | ENCOGIENDO;
+		izq.version = versionIzq | ENCOGIENDO;
+
+		nodo.izquierdo = izqDerDer;
+		if(izqDerDer != null)
+			izqDerDer.padre = nodo;
+		izq.derecho = izqDerIzq;
+		if(izqDerIzq != null)
+			izqDerIzq.padre = izq;
+		izqDer.izquierdo = izq;
+		izq.padre = izqDer;
+		izqDer.derecho = nodo;
+		nodo.padre = izqDer;
+		if(padreIzq == nodo)
+			padre.izquierdo = izqDer;
+		else
+			padre.derecho = izqDer;
+		izqDer.padre = padre;
+
+		int alturaNodo = 1 + Math.max(alturaIzqDerDer, alturaDer);
+		nodo.altura = alturaNodo;
+		int alturaIzqNueva = 1 + Math.max(alturaIzqIzq, alturaIzqDerIzq);
+		izq.altura = alturaIzqNueva;
+		izqDer.altura = 1 + Math.max(alturaIzqNueva, alturaNodo);
+
+		nodo.version = version + INCREMENTO;
+		izq.version = versionIzq + INCREMENTO;
+
+		int balanceNodo = alturaIzqDerDer - alturaDer;
+		if(balanceNodo < -1 || balanceNodo > 1)
+			return nodo;
+		if((izqDerDer == null || alturaDer == 0) && nodo.elemento == null)
+			return nodo;
+		int balanceIzqDer = alturaIzqNueva - alturaNodo;
+		if(balanceIzqDer < -1 || balanceIzqDer > 1)
+			return izqDer;
+		return arreglaAltura(padre);
+	}
+
+	/**
+	 * Rotación doble: der a la derecha y nodo a la izquierda, con candados de
+	 * padre, nodo, der y derIzq.
+	 */
+	private Nodo<K, T> rotaIzquierdaSobreDerecha(Nodo<K, T> padre, Nodo<K, T> nodo, int alturaIzq, Nodo<K, T> der, Nodo<K, T> derIzq, int alturaDerDer, int alturaDerIzqDer){
+		long version = nodo.version;
+		long versionDer = der.version;
+		Nodo<K, T> padreIzq = padre.izquierdo;
+		Nodo<K, T> derIzqIzq = derIzq.izquierdo;
+		Nodo<K, T> derIzqDer = derIzq.derecho;
+		int alturaDerIzqIzq = altura(derIzqIzq);
+
+		nodo.version = version | ENCOGIENDO;
+		der.version = versionDer | ENCOGIENDO;
+
+		nodo.derecho = derIzqIzq;
+		if(derIzqIzq != null)
+			derIzqIzq.padre = nodo;
+		der.izquierdo = derIzqDer;
+		if(derIzqDer != null)
+			derIzqDer.padre = der;
+		derIzq.derecho = der;
+		der.padre = derIzq;
+		derIzq.izquierdo = nodo;
+		nodo.padre = derIzq;
+		if(padreIzq == nodo)
+			padre.izquierdo = derIzq;
+		else
+			padre.derecho = derIzq;
+		derIzq.padre = padre;
+
+		int alturaNodo = 1 + Math.max(alturaIzq, alturaDerIzqIzq);
+		nodo.altura = alturaNodo;
+		int alturaDerNueva = 1 + Math.max(alturaDerIzqDer, alturaDerDer);
+		der.altura = alturaDerNueva;
+		derIzq.altura = 1 + Math.max(alturaNodo, alturaDerNueva);
+
+		nodo.version = version + INCREMENTO;
+		der.version = versionDer + INCREMENTO;
+
+		int balanceNodo = alturaDerIzqIzq - alturaIzq;
+		if(balanceNodo < -1 || balanceNodo > 1)
+			return nodo;
+		if((derIzqIzq == null || alturaIzq == 0) && nodo.elemento == null)
+			return nodo;
+		int balanceDerIzq = alturaDerNueva - alturaNodo;
+		if(balanceDerIzq < -1 || balanceDerIzq > 1)
+			return derIzq;
+		return arreglaAltura(padre);
+	}
+
+	/* Recorridos y consultas débilmente consistentes */
+
+	/**
+	 * Regresa la altura del árbol contando los nodos de enrutamiento, -1 si
+	 * es vacío. Es una lectura sin candado.
+	 * @return la altura de la raiz.
+	 */
+	public int altura(){
+		return altura(sostenRaiz.derecho) - 1;
+	}
+
+	/**
+	 * Cuenta los elementos recorriendo el árbol, en O(n). Con escrituras
+	 * concurrentes el resultado es aproximado.
+	 * @return el número de elementos.
+	 */
+	public int size(){
+		return cuenta(sostenRaiz.derecho);
+	}
+
+	private int cuenta(Nodo<K, T> nodo){
+		if(nodo == null)
+			return 0;
+		return (nodo.elemento != null ? 1 : 0) + cuenta(nodo.izquierdo) + cuenta(nodo.derecho);
+	}
+
+	@Override
+	public void preorden(){
+		preorden(sostenRaiz.derecho);
+	}
+
+	private void preorden(Nodo<K, T> nodo){
+		if(nodo == null)
+			return;
+		T elemento = nodo.elemento;
+		if(elemento != null)
+			System.out.println(elemento);
+		preorden(nodo.izquierdo);
+		preorden(nodo.derecho);
+	}
+
+	@Override
+	public void inorden(){
+		inorden(sostenRaiz.derecho);
+	}
+
+	private void inorden(Nodo<K, T> nodo){
+		if(nodo == null)
+			return;
+		inorden(nodo.izquierdo);
+		T elemento = nodo.elemento;
+		if(elemento != null)
+			System.out.println(elemento);
+		inorden(nodo.derecho);
+	}
+
+	@Override
+	public void postorden(){
+		postorden(sostenRaiz.derecho);
+	}
+
+	private void postorden(Nodo<K, T> nodo){
+		if(nodo == null)
+			return;
+		postorden(nodo.izquierdo);
+		postorden(nodo.derecho);
+		T elemento = nodo.elemento;
+		if(elemento != null)
+			System.out.println(elemento);
+	}
+}
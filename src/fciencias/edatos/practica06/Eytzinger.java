@@ -0,0 +1,90 @@
+package fciencias.edatos.practica06;
+
+/**
+* Navegación en un árbol binario completo guardado en un arreglo con el
+* orden de Eytzinger (el de un heap): la raiz está en 1 y los hijos de i en
+* 2i y 2i+1. Las claves quedan por niveles, así que los primeros niveles de
+* todas las búsquedas comparten las mismas líneas de caché. El índice 0 no
+* se usa y sirve como nulo.
+* @author Pintor Muñoz Pedro Joshue.
+* @since Estructuras de Datos 2022-1.
+*/
+final class Eytzinger{
+
+	private Eytzinger(){}
+
+	/**
+	 * Convierte el índice en que terminó un descenso (ya fuera del árbol) en
+	 * el último nodo donde se bajó a la izquierda. Si el descenso bajó a la
+	 * derecha cuando la clave del nodo era menor que la buscada, ese nodo es
+	 * el primero que no es menor.
+	 * @param i el índice mayor que n donde terminó el descenso.
+	 * @return el índice del nodo, 0 si siempre se bajó a la derecha.
+	 */
+	static int ultimoIzquierdo(int i){
+		// Quitamos los pasos a la derecha del final y el último a la izquierda
+		return i >>> (Integer.numberOfTrailingZeros(~i) + 1);
+	}
+
+	/**
+	 * Regresa el nodo con la menor clave.
+	 * @param n el número de nodos.
+	 * @return el índice del nodo, 0 si n es 0.
+	 */
+	static int primero(int n){
+		if(n == 0)
+			return 0;
+		int i = 1;
+		while(2 * i <= n)
+			i = 2 * i;
+		return i;
+	}
+
+	/**
+	 * Regresa el nodo con la mayor clave.
+	 * @param n el número de nodos.
+	 * @return el índice del nodo, 0 si n es 0.
+	 */
+	static int ultimo(int n){
+		if(n == 0)
+			return 0;
+		int i = 1;
+		while(2 * i + 1 <= n)
+			i = 2 * i + 1;
+		return i;
+	}
+
+	/**
+	 * Regresa el sucesor en inorden.
+	 * @param i el índice de un nodo.
+	 * @param n el número de nodos.
+	 * @return el índice del sucesor, 0 si i es el último.
+	 */
+	static int siguiente(int i, int n){
+		if(2 * i + 1 <= n){
+			i = 2 * i + 1;
+			while(2 * i <= n)
+				i = 2 * i;
+			return i;
+		}
+		// Subimos mientras seamos hijo derecho y una vez más
+		return i >>> (Integer.numberOfTrailingZeros(~i) + 1);
+	}
+
+	/**
+	 * Regresa el predecesor en inorden.
+	 * @param i el índice de un nodo.
+	 * @param n el número de nodos.
+	 * @return el índice del predecesor, 0 si i es el primero.
+	 */
+	static int anterior(int i, int n){
+		if(2 * i <= n){
+			i = 2 * i;
+			while(2 * i + 1 <= n)
+				i = 2 * i + 1;
+			return i;
+		}
+		// Subimos mientras seamos hijo izquierdo y una vez más
+		return i >>> (Integer.numberOfTrailingZeros(i) + 1);
+	}
+}
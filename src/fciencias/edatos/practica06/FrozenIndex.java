@@ -0,0 +1,162 @@
+package fciencias.edatos.practica06;
+
+import java.util.Comparator;
+import java.util.function.BiConsumer;
+
+/**
+* Índice inmutable de solo lectura construido con AVLTree.freeze().
+* Las claves y los elementos se guardan en arreglos con el orden de
+* Eytzinger: la búsqueda recorre posiciones 1, 2 o 3, 4 a 7, ... de un
+* arreglo contiguo en lugar de saltar entre nodos repartidos por el heap.
+* Baja siempre hasta salir del árbol sin detenerse al encontrar la clave, y
+* el lado al que baja se suma como 0 o 1 en lugar de decidirse con un if,
+* así el procesador no tiene saltos que adivinar más que el del ciclo. Al
+* terminar, el índice final dice cuál fue el primer nodo no menor que la
+* clave.
+* AVLTree tiene a lo más un nodo por clave, así que el índice tampoco tiene
+* claves repetidas. Como no cambia, se puede leer desde cualquier número de
+* hilos sin sincronizar.
+* @author Pintor Muñoz Pedro Joshue.
+* @since Estructuras de Datos 2022-1.
+*/
+public final class FrozenIndex<K extends Comparable, T>{
+
+	/** Claves en orden de Eytzinger, la casilla 0 no se usa. */
+	private final Object[] claves;
+
+	/** Elementos en la misma posición que su clave. */
+	private final Object[] elementos;
+
+	/** Número de entradas. */
+	private final int n;
+
+	/** Comparador con el que se ordenan las claves. */
+	private final Comparator<? super K> comparador;
+
+	/**
+	 * Crea el índice con arreglos ya llenos en orden de Eytzinger.
+	 * @param claves las claves, de tamaño n+1.
+	 * @param elementos los elementos, de tamaño n+1.
+	 * @param comparador el comparador de las claves.
+	 */
+	FrozenIndex(Object[] claves, Object[] elementos, Comparator<? super K> comparador){
+		this.claves = claves;
+		this.elementos = elementos;
+		this.n = claves.length - 1;
+		this.comparador = comparador;
+	}
+
+	/**
+	 * Regresa el número de entradas del índice.
+	 * @return el número de entradas.
+	 */
+	public int size(){
+		return n;
+	}
+
+	/**
+	 * Indica si el índice no tiene entradas.
+	 * @return true si el índice es vacío.
+	 */
+	public boolean isEmpty(){
+		return n == 0;
+	}
+
+	/**
+	 * Recupera el elemento con clave k.
+	 * @param k la clave a buscar.
+	 * @return el elemento con clave k o null si no existe.
+	 */
+	@SuppressWarnings("unchecked")
+	public T retrieve(K k){
+		int i = primeroNoMenor(k);
+		return i != 0 && comparador.compare((K) claves[i], k) == 0 ? (T) elementos[i] : null;
+	}
+
+	/**
+	 * Recupera el elemento con la mayor clave menor o igual que k.
+	 * @param k la clave de referencia.
+	 * @return el elemento o null si todas las claves son mayores que k.
+	 */
+	@SuppressWarnings("unchecked")
+	public T floor(K k){
+		return (T) elementos[ultimoNoMayor(k)];
+	}
+
+	/**
+	 * Recupera el elemento con la menor clave mayor o igual que k.
+	 * @param k la clave de referencia.
+	 * @return el elemento o null si todas las claves son menores que k.
+	 */
+	@SuppressWarnings("unchecked")
+	public T ceiling(K k){
+		return (T) elementos[primeroNoMenor(k)];
+	}
+
+	/**
+	 * Regresa la mayor clave menor o igual que k.
+	 * @param k la clave de referencia.
+	 * @return la clave o null si todas las claves son mayores que k.
+	 */
+	@SuppressWarnings("unchecked")
+	public K floorKey(K k){
+		return (K) claves[ultimoNoMayor(k)];
+	}
+
+	/**
+	 * Regresa la menor clave mayor o igual que k.
+	 * @param k la clave de referencia.
+	 * @return la clave o null si todas las claves son menores que k.
+	 */
+	@SuppressWarnings("unchecked")
+	public K ceilingKey(K k){
+		return (K) claves[primeroNoMenor(k)];
+	}
+
+	/**
+	 * Recorre en orden las entradas con clave entre lo y hi, ambas incluidas.
+	 * @param lo el extremo inferior del rango.
+	 * @param hi el extremo superior del rango.
+	 * @param accion lo que se hace con cada clave y su elemento.
+	 * @return el número de entradas recorridas.
+	 */
+	@SuppressWarnings("unchecked")
+	public int forEachInRange(K lo, K hi, BiConsumer<? super K, ? super T> accion){
+		int cuenta = 0;
+		for(int i = primeroNoMenor(lo); i != 0 && comparador.compare((K) claves[i], hi) <= 0; i = Eytzinger.siguiente(i, n)){
+			accion.accept((K) claves[i], (T) elementos[i]);
+			cuenta++;
+		}
+		return cuenta;
+	}
+
+	/**
+	 * Busca el primer nodo cuya clave no es menor que k.
+	 * @param k la clave de referencia.
+	 * @return su índice, 0 si no hay.
+	 */
+	@SuppressWarnings("unchecked")
+	private int primeroNoMenor(K k){
+		Comparator<? super K> cmp = comparador;
+		int i = 1;
+		while(i <= n)
+			i = 2 * i + (cmp.compare((K) claves[i], k) < 0 ? 1 : 0);
+		return Eytzinger.ultimoIzquierdo(i);
+	}
+
+	/**
+	 * Busca el último nodo cuya clave no es mayor que k.
+	 * @param k la clave de referencia.
+	 * @return su índice, 0 si no hay.
+	 */
+	@SuppressWarnings("unchecked")
+	private int ultimoNoMayor(K k){
+		Comparator<? super K> cmp = comparador;
+		int i = 1;
+		while(i <= n)
+			i = 2 * i + (cmp.compare((K) claves[i], k) <= 0 ? 1 : 0);
+		// El primero mayor que k, su anterior es el que buscamos
+		int mayor = Eytzinger.ultimoIzquierdo(i);
+		return mayor == 0 ? Eytzinger.ultimo(n) : Eytzinger.anterior(mayor, n);
+	}
+}
@@ -0,0 +1,161 @@
+package fciencias.edatos.practica06;
+
+/**
+* Índice inmutable de solo lectura con claves int primitivas, construido con
+* IntAVLTree.freeze(). Es FrozenIndex sin objetos para las claves: las
+* claves van en un int[] con el orden de Eytzinger, así que cada nivel de la
+* búsqueda lee un int del arreglo en vez de seguir una referencia a un
+* Integer, y la comparación se compila a una instrucción sin saltos.
+* Como no cambia, se puede leer desde cualquier número de hilos sin
+* sincronizar.
+* @author Pintor Muñoz Pedro Joshue.
+* @since Estructuras de Datos 2022-1.
+*/
+public final class FrozenIntIndex<T>{
+
+	/** Recibe cada clave y su elemento en un recorrido por rango. */
+	@FunctionalInterface
+	public interface Visita<T>{
+
+		/**
+		 * Procesa una entrada.
+		 * @param clave la clave.
+		 * @param elemento su elemento.
+		 */
+		void accept(int clave, T elemento);
+	}
+
+	/** Claves en orden de Eytzinger, la casilla 0 no se usa. */
+	private final int[] claves;
+
+	/** Elementos en la misma posición que su clave. */
+	private final Object[] elementos;
+
+	/** Número de entradas. */
+	private final int n;
+
+	/**
+	 * Crea el índice con arreglos ya llenos en orden de Eytzinger.
+	 * @param claves las claves, de tamaño n+1.
+	 * @param elementos los elementos, de tamaño n+1.
+	 */
+	FrozenIntIndex(int[] claves, Object[] elementos){
+		this.claves = claves;
+		this.elementos = elementos;
+		this.n = claves.length - 1;
+	}
+
+	/**
+	 * Regresa el número de entradas del índice.
+	 * @return el número de entradas.
+	 */
+	public int size(){
+		return n;
+	}
+
+	/**
+	 * Indica si el índice no tiene entradas.
+	 * @return true si el índice es vacío.
+	 */
+	public boolean isEmpty(){
+		return n == 0;
+	}
+
+	/**
+	 * Recupera el elemento con clave k.
+	 * @param k la clave a buscar.
+	 * @return el elemento con clave k o null si no existe.
+	 */
+	@SuppressWarnings("unchecked")
+	public T retrieve(int k){
+		int i = primeroNoMenor(k);
+		return i != 0 && claves[i] == k ? (T) elementos[i] : null;
+	}
+
+	/**
+	 * Recupera el elemento con la mayor clave menor o igual que k.
+	 * @param k la clave de referencia.
+	 * @return el elemento o null si todas las claves son mayores que k.
+	 */
+	@SuppressWarnings("unchecked")
+	public T floor(int k){
+		return (T) elementos[ultimoNoMayor(k)];
+	}
+
+	/**
+	 * Recupera el elemento con la menor clave mayor o igual que k.
+	 * @param k la clave de referencia.
+	 * @return el elemento o null si todas las claves son menores que k.
+	 */
+	@SuppressWarnings("unchecked")
+	public T ceiling(int k){
+		return (T) elementos[primeroNoMenor(k)];
+	}
+
+	/**
+	 * Regresa la mayor clave menor o igual que k.
+	 * @param k la clave de referencia.
+	 * @param otro lo que se regresa si todas las claves son mayores que k.
+	 * @return la clave u otro.
+	 */
+	public int floorKey(int k, int otro){
+		int i = ultimoNoMayor(k);
+		return i == 0 ? otro : claves[i];
+	}
+
+	/**
+	 * Regresa la menor clave mayor o igual que k.
+	 * @param k la clave de referencia.
+	 * @param otro lo que se regresa si todas las claves son menores que k.
+	 * @return la clave u otro.
+	 */
+	public int ceilingKey(int k, int otro){
+		int i = primeroNoMenor(k);
+		return i == 0 ? otro : claves[i];
+	}
+
+	/**
+	 * Recorre en orden las entradas con clave entre lo y hi, ambas incluidas.
+	 * @param lo el extremo inferior del rango.
+	 * @param hi el extremo superior del rango.
+	 * @param accion lo que se hace con cada clave y su elemento.
+	 * @return el número de entradas recorridas.
+	 */
+	@SuppressWarnings("unchecked")
+	public int forEachInRange(int lo, int hi, Visita<? super T> accion){
+		int cuenta = 0;
+		for(int i = primeroNoMenor(lo); i != 0 && claves[i] <= hi; i = Eytzinger.siguiente(i, n)){
+			accion.accept(claves[i], (T) elementos[i]);
+			cuenta++;
+		}
+		return cuenta;
+	}
+
+	/**
+	 * Busca el primer nodo cuya clave no es menor que k.
+	 * @param k la clave de referencia.
+	 * @return su índice, 0 si no hay.
+	 */
+	private int primeroNoMenor(int k){
+		int[] c = claves;
+		int i = 1;
+		while(i <= n)
+			i = 2 * i + (c[i] < k ? 1 : 0);
+		return Eytzinger.ultimoIzquierdo(i);
+	}
+
+	/**
+	 * Busca el último nodo cuya clave no es mayor que k.
+	 * @param k la clave de referencia.
+	 * @return su índice, 0 si no hay.
+	 */
+	private int ultimoNoMayor(int k){
+		int[] c = claves;
+		int i = 1;
+		while(i <= n)
+			i = 2 * i + (c[i] <= k ? 1 : 0);
+		// El primero mayor que k, su anterior es el que buscamos
+		int mayor = Eytzinger.ultimoIzquierdo(i);
+		return mayor == 0 ? Eytzinger.ultimo(n) : Eytzinger.anterior(mayor, n);
+	}
+}
@@ -0,0 +1,471 @@
+package fciencias.edatos.practica06;
+
+import java.util.Arrays;
+
+/**
+* Implementación de árbol AVL con claves int primitivas.
+* Los nodos no son objetos: cada nodo es un índice en arreglos paralelos de
+* claves, alturas, hijos y padre, y los enlaces son índices. Los nodos
+* eliminados se reciclan con una lista de libres, por lo que insertar y
+* buscar no hacen boxing ni crean objetos por nodo. insertInt, retrieveInt y
+* deleteInt reciben la clave como int; los métodos de TDABinarySearchTree
+* reciben un Integer y la desenvuelven.
+* @author Pintor Muñoz Pedro Joshue.
+* @since Estructuras de Datos 2022-1.
+*/
+public class IntAVLTree<T> implements TDABinarySearchTree<Integer, T>{
+
+	/** Índice nulo. La casilla 0 es un centinela con altura -1. */
+	private static final int NIL = 0;
+
+	/** Capacidad inicial de los arreglos. */
+	private static final int CAPACIDAD_INICIAL = 16;
+
+	/** Claves de los nodos. */
+	private int[] claves;
+
+	/** Alturas de los nodos, alturas[NIL] = -1. */
+	private int[] alturas;
+
+	/** Hijo izquierdo de cada nodo. En un nodo libre es el siguiente libre. */
+	private int[] izquierdo;
+
+	/** Hijo derecho de cada nodo. */
+	private int[] derecho;
+
+	/** Padre de cada nodo. */
+	private int[] padre;
+
+	/** Elementos almacenados en los nodos. */
+	private Object[] elementos;
+
+	/** Índice de la raiz. */
+	private int raiz = NIL;
+
+	/** Primer nodo de la lista de libres. */
+	private int libre = NIL;
+
+	/** Siguiente índice nunca usado. */
+	private int siguiente = 1;
+
+	/** Número de nodos en el árbol. */
+	private int tamanio;
+
+	/**
+	 * Crea un árbol vacío.
+	 */
+	public IntAVLTree(){
+		this(CAPACIDAD_INICIAL);
+	}
+
+	/**
+	 * Crea un árbol vacío con espacio reservado para capacidad nodos.
+	 * @param capacidad el número de nodos para el que se reserva espacio.
+	 */
+	public IntAVLTree(int capacidad){
+		int n = Math.max(capacidad, 1) + 1;
+		claves = new int[n];
+		alturas = new int[n];
+		izquierdo = new int[n];
+		derecho = new int[n];
+		padre = new int[n];
+		elementos = new Object[n];
+		alturas[NIL] = -1;
+	}
+
+	/**
+	 * Regresa el número de elementos del árbol.
+	 * @return el número de elementos.
+	 */
+	public int size(){
+		return tamanio;
+	}
+
+	/**
+	 * Regresa el número de nodos para los que hay espacio sin crecer los arreglos.
+	 * @return la capacidad actual.
+	 */
+	public int capacidad(){
+		return claves.length - 1;
+	}
+
+	@Override
+	public T retrieve(Integer k){
+		return retrieveInt(k.intValue());
+	}
+
+	/**
+	 * Recupera el objeto con clave k.
+	 * @param k la clave a buscar.
+	 * @return el elemento con clave k o null si no existe.
+	 */
+	@SuppressWarnings("unchecked")
+	public T retrieveInt(int k){
+		int nodo = busca(k);
+		return nodo == NIL ? null : (T) elementos[nodo];
+	}
+
+	/**
+	 * Obtiene el nodo con una clave específica.
+	 * @param k la clave a buscar.
+	 * @return el índice del nodo con clave k o NIL si no existe.
+	 */
+	private int busca(int k){
+		int actual = raiz;
+		while(actual != NIL){
+			int clave = claves[actual];
+			if(k == clave)
+				return actual;
+			actual = k < clave ? izquierdo[actual] : derecho[actual];
+		}
+		return NIL;
+	}
+
+	@Override
+	public void insert(T e, Integer k){
+		insertInt(e, k.intValue());
+	}
+
+	/**
+	 * Inserta un nuevo elemento al árbol. Si la clave ya está solo se
+	 * reemplaza su elemento, así el árbol tiene a lo más un nodo por clave.
+	 * @param e el elemento a ingresar.
+	 * @param k la clave del elemento a ingresar.
+	 */
+	public void insertInt(T e, int k){
+		if(raiz == NIL){ // Arbol vacío
+			raiz = nuevoNodo(e, k, NIL);
+			return;
+		}
+
+		int actual = raiz;
+		int nuevo;
+		while(true){
+			int clave = claves[actual];
+			if(k == clave){ // La clave ya está, no cambia la forma del árbol
+				elementos[actual] = e;
+				return;
+			}
+			if(k < clave){ // Verificamos sobre el izquierdo
+				if(izquierdo[actual] == NIL){
+					nuevo = nuevoNodo(e, k, actual);
+					izquierdo[actual] = nuevo;
+					break;
+				}
+				actual = izquierdo[actual];
+			} else { // Verificamos sobre la derecha
+				if(derecho[actual] == NIL){
+					nuevo = nuevoNodo(e, k, actual);
+					derecho[actual] = nuevo;
+					break;
+				}
+				actual = derecho[actual];
+			}
+		}
+
+		rebalancea(actual);
+	}
+
+	/**
+	 * Toma un nodo de la lista de libres, o uno nuevo si está vacía, y lo
+	 * inicializa como hoja.
+	 * @param e el elemento del nodo.
+	 * @param k la clave del nodo.
+	 * @param p el padre del nodo.
+	 * @return el índice del nodo.
+	 */
+	private int nuevoNodo(T e, int k, int p){
+		int nodo;
+		if(libre != NIL){
+			nodo = libre;
+			libre = izquierdo[nodo];
+		} else {
+			if(siguiente == claves.length)
+				crece();
+			nodo = siguiente++;
+		}
+		claves[nodo] = k;
+		alturas[nodo] = 0;
+		izquierdo[nodo] = NIL;
+		derecho[nodo] = NIL;
+		padre[nodo] = p;
+		elementos[nodo] = e;
+		tamanio++;
+		return nodo;
+	}
+
+	/**
+	 * Regresa un nodo a la lista de libres.
+	 * @param nodo el nodo a liberar.
+	 */
+	private void liberaNodo(int nodo){
+		elementos[nodo] = null;	// No retener el elemento
+		izquierdo[nodo] = libre;
+		libre = nodo;
+		tamanio--;
+	}
+
+	/**
+	 * Duplica la capacidad de los arreglos.
+	 */
+	private void crece(){
+		int n = claves.length * 2;
+		claves = Arrays.copyOf(claves, n);
+		alturas = Arrays.copyOf(alturas, n);
+		izquierdo = Arrays.copyOf(izquierdo, n);
+		derecho = Arrays.copyOf(derecho, n);
+		padre = Arrays.copyOf(padre, n);
+		elementos = Arrays.copyOf(elementos, n);
+	}
+
+	@Override
+	public T delete(Integer k){
+		return deleteInt(k.intValue());
+	}
+
+	/**
+	 * Elimina el nodo con clave k del árbol.
+	 * @param k la clave perteneciente al nodo a eliminar.
+	 * @return el elemento almacenado en el nodo a eliminar.
+	 * null si el nodo con clave k no existe.
+	 */
+	@SuppressWarnings("unchecked")
+	public T deleteInt(int k){
+		int v = busca(k);
+
+		// El elemento que queremos eliminar no está en el árbol
+		if(v == NIL)
+			return null;
+
+		T eliminado = (T) elementos[v];
+
+		// Con dos hijos copiamos al predecesor y eliminamos su casilla
+		if(izquierdo[v] != NIL && derecho[v] != NIL){
+			int mayor = izquierdo[v];
+			while(derecho[mayor] != NIL)
+				mayor = derecho[mayor];
+			claves[v] = claves[mayor];
+			elementos[v] = elementos[mayor];
+			v = mayor;
+		}
+
+		// v tiene a lo más un hijo, lo enganchamos con su abuelo
+		int hijo = izquierdo[v] != NIL ? izquierdo[v] : derecho[v];
+		int p = padre[v];
+		reemplaza(p, v, hijo);
+		liberaNodo(v);
+
+		rebalancea(p);
+		return eliminado;
+	}
+
+	/**
+	 * Pone a nuevo en el lugar que ocupaba viejo debajo de p.
+	 * @param p el padre de viejo, NIL si viejo es la raiz.
+	 * @param viejo el hijo a reemplazar.
+	 * @param nuevo el nodo que toma su lugar, puede ser NIL.
+	 */
+	private void reemplaza(int p, int viejo, int nuevo){
+		if(p == NIL)
+			raiz = nuevo;
+		else if(izquierdo[p] == viejo)
+			izquierdo[p] = nuevo;
+		else
+			derecho[p] = nuevo;
+		if(nuevo != NIL)
+			padre[nuevo] = p;
+	}
+
+	@Override
+	@SuppressWarnings("unchecked")
+	public T findMin(){
+		if(raiz == NIL)
+			return null;
+		int actual = raiz;
+		while(izquierdo[actual] != NIL)
+			actual = izquierdo[actual];
+		return (T) elementos[actual];
+	}
+
+	@Override
+	@SuppressWarnings("unchecked")
+	public T findMax(){
+		if(raiz == NIL)
+			return null;
+		int actual = raiz;
+		while(derecho[actual] != NIL)
+			actual = derecho[actual];
+		return (T) elementos[actual];
+	}
+
+	/**
+	 * Copia el árbol a un índice inmutable con el orden de Eytzinger y claves
+	 * en un int[]. El índice no ve los cambios posteriores del árbol; para
+	 * actualizarlo se vuelve a congelar.
+	 * @return el índice con todas las entradas del árbol.
+	 */
+	public FrozenIntIndex<T> freeze(){
+		int[] copiaClaves = new int[tamanio + 1];
+		Object[] copiaElementos = new Object[tamanio + 1];
+		// El inorden del árbol llena las posiciones del arreglo en su propio inorden
+		int posicion = Eytzinger.primero(tamanio);
+		int[] pila = new int[alturas[raiz] + 2];
+		int tope = 0;
+		int actual = raiz;
+		while(actual != NIL || tope > 0){
+			while(actual != NIL){
+				pila[tope++] = actual;
+				actual = izquierdo[actual];
+			}
+			actual = pila[--tope];
+			copiaClaves[posicion] = claves[actual];
+			copiaElementos[posicion] = elementos[actual];
+			posicion = Eytzinger.siguiente(posicion, tamanio);
+			actual = derecho[actual];
+		}
+		return new FrozenIntIndex<>(copiaClaves, copiaElementos);
+	}
+
+	@Override
+	public void preorden(){
+		int[] pila = new int[alturas[raiz] + 2];
+		int tope = 0;
+		if(raiz != NIL)
+			pila[tope++] = raiz;
+		while(tope > 0){
+			int nodo = pila[--tope];
+			System.out.println(elementos[nodo]);
+			// El derecho va abajo para salir después del izquierdo
+			if(derecho[nodo] != NIL)
+				pila[tope++] = derecho[nodo];
+			if(izquierdo[nodo] != NIL)
+				pila[tope++] = izquierdo[nodo];
+		}
+	}
+
+	@Override
+	public void inorden(){
+		int[] pila = new int[alturas[raiz] + 2];
+		int tope = 0;
+		int actual = raiz;
+		while(actual != NIL || tope > 0){
+			// Bajamos por la izquierda guardando el camino
+			while(actual != NIL){
+				pila[tope++] = actual;
+				actual = izquierdo[actual];
+			}
+			actual = pila[--tope];
+			System.out.println(elementos[actual]);
+			actual = derecho[actual];
+		}
+	}
+
+	@Override
+	public void postorden(){
+		int[] pila = new int[alturas[raiz] + 2];
+		int tope = 0;
+		int actual = raiz;
+		int anterior = NIL;
+		while(actual != NIL || tope > 0){
+			while(actual != NIL){
+				pila[tope++] = actual;
+				actual = izquierdo[actual];
+			}
+			int nodo = pila[tope - 1];
+			// Si tiene derecho sin visitar, primero va ese subarbol
+			if(derecho[nodo] != NIL && derecho[nodo] != anterior){
+				actual = derecho[nodo];
+			} else {
+				System.out.println(elementos[nodo]);
+				anterior = nodo;
+				tope--;
+			}
+		}
+	}
+
+	@Override
+	public boolean isEmpty(){
+		return raiz == NIL;
+	}
+
+	/**
+	 * Sube desde actual hasta la raiz actualizando alturas y rotando donde
+	 * haya desbalanceo. Se detiene cuando la altura de un nodo no cambia.
+	 * @param actual el nodo desde donde se rebalancea.
+	 */
+	private void rebalancea(int actual){
+		while(actual != NIL){
+			int alturaAnterior = alturas[actual];
+			int balance = alturas[izquierdo[actual]] - alturas[derecho[actual]];
+
+			if(balance > 1){ // Pesa el izquierdo
+				int h = izquierdo[actual];
+				if(alturas[izquierdo[h]] < alturas[derecho[h]]) // zigzag
+					rotarIzquierda(h);
+				actual = rotarDerecha(actual);
+			} else if(balance < -1){ // Pesa el derecho
+				int h = derecho[actual];
+				if(alturas[derecho[h]] < alturas[izquierdo[h]]) // zigzag
+					rotarDerecha(h);
+				actual = rotarIzquierda(actual);
+			} else {
+				actualizaAltura(actual);
+				if(alturas[actual] == alturaAnterior)
+					return;
+			}
+			actual = padre[actual];
+		}
+	}
+
+	/**
+	 * Actualiza la altura de un nodo a partir de la de sus hijos.
+	 * @param nodo el nodo a actualizar.
+	 */
+	private void actualizaAltura(int nodo){
+		alturas[nodo] = 1 + Math.max(alturas[izquierdo[nodo]], alturas[derecho[nodo]]);
+	}
+
+	/**
+	 * Rota a la izquierda sobre actual.
+	 * @param actual el nodo sobre el que se rota.
+	 * @return la nueva raiz del subarbol.
+	 */
+	private int rotarIzquierda(int actual){
+		int nuevo = derecho[actual];
+		int interno = izquierdo[nuevo];
+
+		derecho[actual] = interno;
+		if(interno != NIL)
+			padre[interno] = actual;
+
+		reemplaza(padre[actual], actual, nuevo);
+		izquierdo[nuevo] = actual;
+		padre[actual] = nuevo;
+
+		actualizaAltura(actual);
+		actualizaAltura(nuevo);
+		return nuevo;
+	}
+
+	/**
+	 * Rota a la derecha sobre actual.
+	 * @param actual el nodo sobre el que se rota.
+	 * @return la nueva raiz del subarbol.
+	 */
+	private int rotarDerecha(int actual){
+		int nuevo = izquierdo[actual];
+		int interno = derecho[nuevo];
+
+		izquierdo[actual] = interno;
+		if(interno != NIL)
+			padre[interno] = actual;
+
+		reemplaza(padre[actual], actual, nuevo);
+		derecho[nuevo] = actual;
+		padre[actual] = nuevo;
+
+		actualizaAltura(actual);
+		actualizaAltura(nuevo);
+		return nuevo;
+	}
+}
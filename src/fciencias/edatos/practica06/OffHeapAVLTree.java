@@ -0,0 +1,553 @@
+package fciencias.edatos.practica06;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Arrays;
+import java.util.Objects;
+
+/**
+* Implementación de árbol AVL con los nodos fuera del heap.
+* Las claves son long y los elementos se codifican con un CodecFijo dentro
+* del nodo, así que el recolector de basura no ve ningún nodo sin importar
+* el tamaño del árbol. Los nodos viven en páginas de ByteBuffer directos y
+* se enlazan por índice; los eliminados se reciclan con una lista de libres.
+* insertLong, retrieveLong y deleteLong reciben la clave como long; los
+* métodos de TDABinarySearchTree reciben un Long y lo desenvuelven.
+* La memoria se libera explícitamente con close(), después de lo cual
+* cualquier operación lanza IllegalStateException.
+* Este árbol no es seguro para hilos.
+* @author Pintor Muñoz Pedro Joshue.
+* @since Estructuras de Datos 2022-1.
+*/
+public class OffHeapAVLTree<T> implements TDABinarySearchTree<Long, T>, AutoCloseable{
+
+	/** Índice nulo. El nodo 0 es un centinela con altura -1. */
+	private static final int NIL = 0;
+
+	/** Bits del índice que seleccionan el nodo dentro de una página. */
+	private static final int BITS_PAGINA = 16;
+
+	/** Nodos por página. */
+	private static final int NODOS_POR_PAGINA = 1 << BITS_PAGINA;
+
+	/** Máscara del índice dentro de la página. */
+	private static final int MASCARA_PAGINA = NODOS_POR_PAGINA - 1;
+
+	/** Desplazamientos de cada campo dentro del nodo. */
+	private static final int CLAVE = 0, IZQUIERDO = 8, DERECHO = 12, PADRE = 16, ALTURA = 20, ELEMENTO = 24;
+
+	/** Codec de los elementos. */
+	private final CodecFijo<T> codec;
+
+	/** Bytes por nodo, múltiplo de 8 para que las claves queden alineadas. */
+	private final int ancho;
+
+	/** Páginas de nodos. */
+	private ByteBuffer[] paginas = new ByteBuffer[4];
+
+	/** Número de páginas reservadas. */
+	private int numPaginas;
+
+	/** Índice de la raiz. */
+	private int raiz = NIL;
+
+	/** Primer nodo de la lista de libres. */
+	private int libre = NIL;
+
+	/** Siguiente índice nunca usado. */
+	private int siguiente = 1;
+
+	/** Número de nodos en el árbol. */
+	private int tamanio;
+
+	/** Si ya se liberó la memoria. */
+	private boolean cerrado;
+
+	/**
+	 * Crea un árbol vacío.
+	 * @param codec el codec de los elementos.
+	 */
+	public OffHeapAVLTree(CodecFijo<T> codec){
+		this.codec = codec;
+		this.ancho = (ELEMENTO + codec.ancho() + 7) & ~7;
+		nuevaPagina();
+		putInt(NIL, ALTURA, -1);
+	}
+
+	/**
+	 * Regresa el número de elementos del árbol.
+	 * @return el número de elementos.
+	 */
+	public int size(){
+		abierto();
+		return tamanio;
+	}
+
+	/**
+	 * Regresa los bytes fuera del heap reservados por el árbol.
+	 * @return los bytes reservados.
+	 */
+	public long bytesReservados(){
+		return (long) numPaginas * NODOS_POR_PAGINA * ancho;
+	}
+
+	/* Acceso a los campos de un nodo */
+
+	private ByteBuffer pagina(int nodo){
+		return paginas[nodo >>> BITS_PAGINA];
+	}
+
+	private int posicion(int nodo, int campo){
+		return (nodo & MASCARA_PAGINA) * ancho + campo;
+	}
+
+	private int getInt(int nodo, int campo){
+		return pagina(nodo).getInt(posicion(nodo, campo));
+	}
+
+	private void putInt(int nodo, int campo, int valor){
+		pagina(nodo).putInt(posicion(nodo, campo), valor);
+	}
+
+	private long clave(int nodo){
+		return pagina(nodo).getLong(posicion(nodo, CLAVE));
+	}
+
+	private int izquierdo(int nodo){
+		return getInt(nodo, IZQUIERDO);
+	}
+
+	private int derecho(int nodo){
+		return getInt(nodo, DERECHO);
+	}
+
+	private int padre(int nodo){
+		return getInt(nodo, PADRE);
+	}
+
+	private int altura(int nodo){
+		return getInt(nodo, ALTURA);
+	}
+
+	private T elemento(int nodo){
+		return codec.lee(pagina(nodo), posicion(nodo, ELEMENTO));
+	}
+
+	/**
+	 * Verifica que la memoria no se haya liberado.
+	 * @throws IllegalStateException si el árbol ya se cerró.
+	 */
+	private void abierto(){
+		if(cerrado)
+			throw new IllegalStateException("El árbol ya se cerró");
+	}
+
+	@Override
+	public T retrieve(Long k){
+		return retrieveLong(k.longValue());
+	}
+
+	/**
+	 * Recupera el objeto con clave k.
+	 * @param k la clave a buscar.
+	 * @return el elemento con clave k o null si no existe.
+	 */
+	public T retrieveLong(long k){
+		abierto();
+		int nodo = busca(k);
+		return nodo == NIL ? null : elemento(nodo);
+	}
+
+	/**
+	 * Verifica si hay un nodo con clave k, sin decodificar su elemento.
+	 * @param k la clave a buscar.
+	 * @return true si la clave está en el árbol.
+	 */
+	public boolean contains(long k){
+		abierto();
+		return busca(k) != NIL;
+	}
+
+	/**
+	 * Obtiene el nodo con una clave específica.
+	 * @param k la clave a buscar.
+	 * @return el nodo con clave k o NIL si no existe.
+	 */
+	private int busca(long k){
+		int actual = raiz;
+		while(actual != NIL){
+			long clave = clave(actual);
+			if(k == clave)
+				return actual;
+			actual = k < clave ? izquierdo(actual) : derecho(actual);
+		}
+		return NIL;
+	}
+
+	@Override
+	public void insert(T e, Long k){
+		insertLong(e, k.longValue());
+	}
+
+	/**
+	 * Inserta un nuevo elemento al árbol. Si la clave ya está solo se
+	 * reemplaza su elemento, así el árbol tiene a lo más un nodo por clave.
+	 * @param e el elemento a ingresar, no puede ser null.
+	 * @param k la clave del elemento a ingresar.
+	 */
+	public void insertLong(T e, long k){
+		abierto();
+		Objects.requireNonNull(e, "OffHeapAVLTree no admite elementos null");
+
+		if(raiz == NIL){ // Arbol vacío
+			raiz = nuevoNodo(e, k, NIL);
+			return;
+		}
+
+		int actual = raiz;
+		while(true){
+			long clave = clave(actual);
+			if(k == clave){ // La clave ya está, no cambia la forma del árbol
+				codec.escribe(pagina(actual), posicion(actual, ELEMENTO), e);
+				return;
+			}
+			if(k < clave){ // Verificamos sobre el izquierdo
+				int izq = izquierdo(actual);
+				if(izq == NIL){
+					putInt(actual, IZQUIERDO, nuevoNodo(e, k, actual));
+					break;
+				}
+				actual = izq;
+			} else { // Verificamos sobre la derecha
+				int der = derecho(actual);
+				if(der == NIL){
+					putInt(actual, DERECHO, nuevoNodo(e, k, actual));
+					break;
+				}
+				actual = der;
+			}
+		}
+
+		rebalancea(actual);
+	}
+
+	/**
+	 * Toma un nodo de la lista de libres, o uno nuevo si está vacía, y lo
+	 * inicializa como hoja.
+	 * @param e el elemento del nodo.
+	 * @param k la clave del nodo.
+	 * @param p el padre del nodo.
+	 * @return el índice del nodo.
+	 */
+	private int nuevoNodo(T e, long k, int p){
+		int nodo;
+		if(libre != NIL){
+			nodo = libre;
+			libre = izquierdo(nodo);
+		} else {
+			if(siguiente == numPaginas * NODOS_POR_PAGINA)
+				nuevaPagina();
+			nodo = siguiente++;
+		}
+		ByteBuffer pagina = pagina(nodo);
+		int base = posicion(nodo, 0);
+		pagina.putLong(base + CLAVE, k);
+		pagina.putInt(base + IZQUIERDO, NIL);
+		pagina.putInt(base + DERECHO, NIL);
+		pagina.putInt(base + PADRE, p);
+		pagina.putInt(base + ALTURA, 0);
+		codec.escribe(pagina, base + ELEMENTO, e);
+		tamanio++;
+		return nodo;
+	}
+
+	/**
+	 * Reserva una página más de nodos.
+	 * @throws IllegalStateException si ya no caben más nodos en un índice int.
+	 */
+	private void nuevaPagina(){
+		if(numPaginas == (Integer.MAX_VALUE >>> BITS_PAGINA) + 1)
+			throw new IllegalStateException("El árbol alcanzó el máximo de nodos");
+		if(numPaginas == paginas.length)
+			paginas = Arrays.copyOf(paginas, paginas.length * 2);
+		paginas[numPaginas++] = ByteBuffer.allocateDirect(NODOS_POR_PAGINA * ancho).order(ByteOrder.nativeOrder());
+	}
+
+	@Override
+	public T delete(Long k){
+		return deleteLong(k.longValue());
+	}
+
+	/**
+	 * Elimina el nodo con clave k del árbol.
+	 * @param k la clave perteneciente al nodo a eliminar.
+	 * @return el elemento almacenado en el nodo a eliminar.
+	 * null si el nodo con clave k no existe.
+	 */
+	public T deleteLong(long k){
+		abierto();
+		int v = busca(k);
+
+		// El elemento que queremos eliminar no está en el árbol
+		if(v == NIL)
+			return null;
+
+		T eliminado = elemento(v);
+
+		// Con dos hijos copiamos al predecesor y eliminamos su nodo
+		if(izquierdo(v) != NIL && derecho(v) != NIL){
+			int mayor = izquierdo(v);
+			while(derecho(mayor) != NIL)
+				mayor = derecho(mayor);
+			copiaEntrada(mayor, v);
+			v = mayor;
+		}
+
+		// v tiene a lo más un hijo, lo enganchamos con su abuelo
+		int hijo = izquierdo(v) != NIL ? izquierdo(v) : derecho(v);
+		int p = padre(v);
+		reemplaza(p, v, hijo);
+
+		// El nodo pasa a la lista de libres
+		putInt(v, IZQUIERDO, libre);
+		libre = v;
+		tamanio--;
+
+		rebalancea(p);
+		return eliminado;
+	}
+
+	/**
+	 * Copia la clave y los bytes del elemento de un nodo a otro sin
+	 * decodificar el elemento, así no se crea ningún objeto en el heap.
+	 * @param origen el nodo del que se copia.
+	 * @param destino el nodo al que se copia.
+	 */
+	private void copiaEntrada(int origen, int destino){
+		ByteBuffer pagina = pagina(destino);
+		pagina.putLong(posicion(destino, CLAVE), clave(origen));
+		pagina.put(posicion(destino, ELEMENTO), pagina(origen), posicion(origen, ELEMENTO), codec.ancho());
+	}
+
+	/**
+	 * Pone a nuevo en el lugar que ocupaba viejo debajo de p.
+	 * @param p el padre de viejo, NIL si viejo es la raiz.
+	 * @param viejo el hijo a reemplazar.
+	 * @param nuevo el nodo que toma su lugar, puede ser NIL.
+	 */
+	private void reemplaza(int p, int viejo, int nuevo){
+		if(p == NIL)
+			raiz = nuevo;
+		else if(izquierdo(p) == viejo)
+			putInt(p, IZQUIERDO, nuevo);
+		else
+			putInt(p, DERECHO, nuevo);
+		if(nuevo != NIL)
+			putInt(nuevo, PADRE, p);
+	}
+
+	@Override
+	public T findMin(){
+		abierto();
+		if(raiz == NIL)
+			return null;
+		int actual = raiz;
+		while(izquierdo(actual) != NIL)
+			actual = izquierdo(actual);
+		return elemento(actual);
+	}
+
+	@Override
+	public T findMax(){
+		abierto();
+		if(raiz == NIL)
+			return null;
+		int actual = raiz;
+		while(derecho(actual) != NIL)
+			actual = derecho(actual);
+		return elemento(actual);
+	}
+
+	@Override
+	public void preorden(){
+		abierto();
+		int[] pila = new int[altura(raiz) + 2];
+		int tope = 0;
+		if(raiz != NIL)
+			pila[tope++] = raiz;
+		while(tope > 0){
+			int nodo = pila[--tope];
+			System.out.println(elemento(nodo));
+			// El derecho va abajo para salir después del izquierdo
+			if(derecho(nodo) != NIL)
+				pila[tope++] = derecho(nodo);
+			if(izquierdo(nodo) != NIL)
+				pila[tope++] = izquierdo(nodo);
+		}
+	}
+
+	@Override
+	public void inorden(){
+		abierto();
+		int[] pila = new int[altura(raiz) + 2];
+		int tope = 0;
+		int actual = raiz;
+		while(actual != NIL || tope > 0){
+			// Bajamos por la izquierda guardando el camino
+			while(actual != NIL){
+				pila[tope++] = actual;
+				actual = izquierdo(actual);
+			}
+			actual = pila[--tope];
+			System.out.println(elemento(actual));
+			actual = derecho(actual);
+		}
+	}
+
+	@Override
+	public void postorden(){
+		abierto();
+		int[] pila = new int[altura(raiz) + 2];
+		int tope = 0;
+		int actual = raiz;
+		int anterior = NIL;
+		while(actual != NIL || tope > 0){
+			while(actual != NIL){
+				pila[tope++] = actual;
+				actual = izquierdo(actual);
+			}
+			int nodo = pila[tope - 1];
+			// Si tiene derecho sin visitar, primero va ese subarbol
+			if(derecho(nodo) != NIL && derecho(nodo) != anterior){
+				actual = derecho(nodo);
+			} else {
+				System.out.println(elemento(nodo));
+				anterior = nodo;
+				tope--;
+			}
+		}
+	}
+
+	@Override
+	public boolean isEmpty(){
+		abierto();
+		return raiz == NIL;
+	}
+
+	/**
+	 * Libera la memoria fuera del heap. Es idempotente.
+	 */
+	@Override
+	public void close(){
+		if(cerrado)
+			return;
+		cerrado = true;
+		for(int i = 0; i < numPaginas; i++){
+			libera(paginas[i]);
+			paginas[i] = null;
+		}
+		numPaginas = 0;
+		raiz = NIL;
+		tamanio = 0;
+	}
+
+	/**
+	 * Libera un buffer directo de inmediato si la JVM lo permite; si no,
+	 * su memoria se libera cuando el recolector lo descarte.
+	 * @param buffer el buffer a liberar.
+	 */
+	private static void libera(ByteBuffer buffer){
+		try{
+			Class<?> clase = Class.forName("sun.misc.Unsafe");
+			Field campo = clase.getDeclaredField("theUnsafe");
+			campo.setAccessible(true);
+			Method invokeCleaner = clase.getMethod("invokeCleaner", ByteBuffer.class);
+			invokeCleaner.invoke(campo.get(null), buffer);
+		}catch(ReflectiveOperationException | RuntimeException e){
+			// Sin acceso a Unsafe nos quedamos con la liberación del recolector
+		}
+	}
+
+	/**
+	 * Sube desde actual hasta la raiz actualizando alturas y rotando donde
+	 * haya desbalanceo. Se detiene cuando la altura de un nodo no cambia.
+	 * @param actual el nodo desde donde se rebalancea.
+	 */
+	private void rebalancea(int actual){
+		while(actual != NIL){
+			int alturaAnterior = altura(actual);
+			int balance = altura(izquierdo(actual)) - altura(derecho(actual));
+
+			if(balance > 1){ // Pesa el izquierdo
+				int h = izquierdo(actual);
+				if(altura(izquierdo(h)) < altura(derecho(h))) // zigzag
+					rotarIzquierda(h);
+				actual = rotarDerecha(actual);
+			} else if(balance < -1){ // Pesa el derecho
+				int h = derecho(actual);
+				if(altura(derecho(h)) < altura(izquierdo(h))) // zigzag
+					rotarDerecha(h);
+				actual = rotarIzquierda(actual);
+			} else {
+				actualizaAltura(actual);
+				if(altura(actual) == alturaAnterior)
+					return;
+			}
+			actual = padre(actual);
+		}
+	}
+
+	/**
+	 * Actualiza la altura de un nodo a partir de la de sus hijos.
+	 * @param nodo el nodo a actualizar.
+	 */
+	private void actualizaAltura(int nodo){
+		putInt(nodo, ALTURA, 1 + Math.max(altura(izquierdo(nodo)), altura(derecho(nodo))));
+	}
+
+	/**
+	 * Rota a la izquierda sobre actual.
+	 * @param actual el nodo sobre el que se rota.
+	 * @return la nueva raiz del subarbol.
+	 */
+	private int rotarIzquierda(int actual){
+		int nuevo = derecho(actual);
+		int interno = izquierdo(nuevo);
+
+		putInt(actual, DERECHO, interno);
+		if(interno != NIL)
+			putInt(interno, PADRE, actual);
+
+		reemplaza(padre(actual), actual, nuevo);
+		putInt(nuevo, IZQUIERDO, actual);
+		putInt(actual, PADRE, nuevo);
+
+		actualizaAltura(actual);
+		actualizaAltura(nuevo);
+		return nuevo;
+	}
+
+	/**
+	 * Rota a la derecha sobre actual.
+	 * @param actual el nodo sobre el que se rota.
+	 * @return la nueva raiz del subarbol.
+	 */
+	private int rotarDerecha(int actual){
+		int nuevo = izquierdo(actual);
+		int interno = derecho(nuevo);
+
+		putInt(actual, IZQUIERDO, interno);
+		if(interno != NIL)
+			putInt(interno, PADRE, actual);
+
+		reemplaza(padre(actual), actual, nuevo);
+		putInt(nuevo, DERECHO, actual);
+		putInt(actual, PADRE, nuevo);
+
+		actualizaAltura(actual);
+		actualizaAltura(nuevo);
+		return nuevo;
+	}
+}
@@ -0,0 +1,337 @@
+package fciencias.edatos.practica06;
+
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+* Implementación persistente de árbol AVL por copia de camino.
+* Los nodos son inmutables: insert y delete copian solo los nodos del camino
+* de la raiz al punto modificado (O(log n) nodos nuevos por operación) y
+* comparten todo lo demás con la versión anterior. Por eso snapshot() cuesta
+* O(1): regresa otro árbol que apunta a la raiz actual, y ninguna escritura
+* posterior en cualquiera de los dos afecta al otro.
+* La raiz es volatile y los escritores se sincronizan entre sí, así que las
+* lecturas y los recorridos de cualquier hilo no toman candados y ven siempre
+* una versión completa del árbol.
+* insert reemplaza el elemento si la clave ya existe.
+* @author Pintor Muñoz Pedro Joshue.
+* @since Estructuras de Datos 2022-1.
+*/
+public class PersistentAVLTree<K extends Comparable, T> implements TDABinarySearchTree<K, T>, Iterable<T>{
+
+	/**
+	 * Nodo inmutable del árbol persistente.
+	 */
+	private static final class Nodo<K, T>{
+
+		/** Clave del nodo. */
+		final K clave;
+
+		/** Elemento almacenado en el nodo. */
+		final T elemento;
+
+		/** Hijo izquierdo. */
+		final Nodo<K, T> izquierdo;
+
+		/** Hijo derecho. */
+		final Nodo<K, T> derecho;
+
+		/** Altura del nodo, una hoja mide 0. */
+		final int altura;
+
+		/** Número de nodos del subárbol. */
+		final int tamanio;
+
+		Nodo(K clave, T elemento, Nodo<K, T> izquierdo, Nodo<K, T> derecho){
+			this.clave = clave;
+			this.elemento = elemento;
+			this.izquierdo = izquierdo;
+			this.derecho = derecho;
+			altura = 1 + Math.max(altura(izquierdo), altura(derecho));
+			tamanio = 1 + tamanio(izquierdo) + tamanio(derecho);
+		}
+	}
+
+	/** Orden natural de las claves, usado cuando no se da comparador. */
+	@SuppressWarnings({"rawtypes", "unchecked"})
+	private static final Comparator<Comparable> ORDEN_NATURAL = (a, b) -> a.compareTo(b);
+
+	/** Versión actual del árbol. */
+	private volatile Nodo<K, T> raiz;
+
+	/** Comparador con el que se ordenan las claves. */
+	private final Comparator<? super K> comparador;
+
+	/**
+	 * Crea un árbol vacío ordenado por el orden natural de las claves.
+	 */
+	public PersistentAVLTree(){
+		this(null);
+	}
+
+	/**
+	 * Crea un árbol vacío ordenado con un comparador.
+	 * @param comparador el comparador de claves, null para usar el orden natural.
+	 */
+	@SuppressWarnings("unchecked")
+	public PersistentAVLTree(Comparator<? super K> comparador){
+		this(comparador != null ? comparador : (Comparator<? super K>) ORDEN_NATURAL, null);
+	}
+
+	private PersistentAVLTree(Comparator<? super K> comparador, Nodo<K, T> raiz){
+		this.comparador = comparador;
+		this.raiz = raiz;
+	}
+
+	/**
+	 * Regresa una copia del árbol en O(1). La copia comparte todos los nodos
+	 * con este árbol y después cada uno cambia sin afectar al otro. Se puede
+	 * recorrer desde cualquier hilo sin candados.
+	 * @return la copia del árbol en su versión actual.
+	 */
+	public PersistentAVLTree<K, T> snapshot(){
+		return new PersistentAVLTree<>(comparador, raiz);
+	}
+
+	private static int altura(Nodo<?, ?> nodo){
+		return nodo == null ? -1 : nodo.altura;
+	}
+
+	private static int tamanio(Nodo<?, ?> nodo){
+		return nodo == null ? 0 : nodo.tamanio;
+	}
+
+	@Override
+	public T retrieve(K k){
+		Nodo<K, T> actual = raiz;
+		while(actual != null){
+			int cmp = comparador.compare(k, actual.clave);
+			if(cmp == 0)
+				return actual.elemento;
+			actual = cmp < 0 ? actual.izquierdo : actual.derecho;
+		}
+		return null;
+	}
+
+	@Override
+	public synchronized void insert(T e, K k){
+		raiz = inserta(raiz, e, k);
+	}
+
+	/**
+	 * Regresa la raiz de una copia de nodo con k insertada.
+	 * @param nodo la raiz del subárbol original.
+	 * @param e el elemento.
+	 * @param k la clave.
+	 * @return la raiz del subárbol nuevo.
+	 */
+	private Nodo<K, T> inserta(Nodo<K, T> nodo, T e, K k){
+		if(nodo == null)
+			return new Nodo<>(k, e, null, null);
+
+		int cmp = comparador.compare(k, nodo.clave);
+		if(cmp == 0)
+			return new Nodo<>(k, e, nodo.izquierdo, nodo.derecho);
+		if(cmp < 0)
+			return balancea(nodo.clave, nodo.elemento, inserta(nodo.izquierdo, e, k), nodo.derecho);
+		return balancea(nodo.clave, nodo.elemento, nodo.izquierdo, inserta(nodo.derecho, e, k));
+	}
+
+	@Override
+	public synchronized T delete(K k){
+		T[] eliminado = nuevoArreglo();
+		raiz = elimina(raiz, k, eliminado);
+		return eliminado[0];
+	}
+
+	@SuppressWarnings("unchecked")
+	private T[] nuevoArreglo(){
+		return (T[]) new Object[1];
+	}
+
+	/**
+	 * Regresa la raiz de una copia de nodo sin la clave k.
+	 * @param nodo la raiz del subárbol original.
+	 * @param k la clave a eliminar.
+	 * @param eliminado arreglo donde se deja el elemento eliminado.
+	 * @return la raiz del subárbol nuevo.
+	 */
+	private Nodo<K, T> elimina(Nodo<K, T> nodo, K k, T[] eliminado){
+		if(nodo == null)
+			return null;
+
+		int cmp = comparador.compare(k, nodo.clave);
+		if(cmp < 0){
+			Nodo<K, T> izquierdo = elimina(nodo.izquierdo, k, eliminado);
+			return izquierdo == nodo.izquierdo ? nodo : balancea(nodo.clave, nodo.elemento, izquierdo, nodo.derecho);
+		}
+		if(cmp > 0){
+			Nodo<K, T> derecho = elimina(nodo.derecho, k, eliminado);
+			return derecho == nodo.derecho ? nodo : balancea(nodo.clave, nodo.elemento, nodo.izquierdo, derecho);
+		}
+
+		eliminado[0] = nodo.elemento;
+		if(nodo.izquierdo == null)
+			return nodo.derecho;
+		if(nodo.derecho == null)
+			return nodo.izquierdo;
+
+		// El sucesor toma el lugar del nodo
+		Nodo<K, T> sucesor = nodo.derecho;
+		while(sucesor.izquierdo != null)
+			sucesor = sucesor.izquierdo;
+		return balancea(sucesor.clave, sucesor.elemento, nodo.izquierdo, eliminaMinimo(nodo.derecho));
+	}
+
+	/**
+	 * Regresa la raiz de una copia de nodo sin su clave mínima.
+	 * @param nodo la raiz del subárbol original, no vacío.
+	 * @return la raiz del subárbol nuevo.
+	 */
+	private Nodo<K, T> eliminaMinimo(Nodo<K, T> nodo){
+		if(nodo.izquierdo == null)
+			return nodo.derecho;
+		return balancea(nodo.clave, nodo.elemento, eliminaMinimo(nodo.izquierdo), nodo.derecho);
+	}
+
+	/**
+	 * Crea un nodo con los hijos dados, rotando si quedan desbalanceados por
+	 * a lo más 2. Solo se crean los nodos que cambian.
+	 * @param clave la clave del nodo.
+	 * @param elemento el elemento del nodo.
+	 * @param izq el hijo izquierdo.
+	 * @param der el hijo derecho.
+	 * @return la raiz del subárbol balanceado.
+	 */
+	private Nodo<K, T> balancea(K clave, T elemento, Nodo<K, T> izq, Nodo<K, T> der){
+		int balance = altura(izq) - altura(der);
+		if(balance > 1){
+			if(altura(izq.izquierdo) >= altura(izq.derecho))
+				return new Nodo<>(izq.clave, izq.elemento, izq.izquierdo, new Nodo<>(clave, elemento, izq.derecho, der));
+			Nodo<K, T> medio = izq.derecho;
+			return new Nodo<>(medio.clave, medio.elemento,
+				new Nodo<>(izq.clave, izq.elemento, izq.izquierdo, medio.izquierdo),
+				new Nodo<>(clave, elemento, medio.derecho, der));
+		}
+		if(balance < -1){
+			if(altura(der.derecho) >= altura(der.izquierdo))
+				return new Nodo<>(der.clave, der.elemento, new Nodo<>(clave, elemento, izq, der.izquierdo), der.derecho);
+			Nodo<K, T> medio = der.izquierdo;
+			return new Nodo<>(medio.clave, medio.elemento,
+				new Nodo<>(clave, elemento, izq, medio.izquierdo),
+				new Nodo<>(der.clave, der.elemento, medio.derecho, der.derecho));
+		}
+		return new Nodo<>(clave, elemento, izq, der);
+	}
+
+	@Override
+	public T findMin(){
+		Nodo<K, T> actual = raiz;
+		if(actual == null)
+			return null;
+		while(actual.izquierdo != null)
+			actual = actual.izquierdo;
+		return actual.elemento;
+	}
+
+	@Override
+	public T findMax(){
+		Nodo<K, T> actual = raiz;
+		if(actual == null)
+			return null;
+		while(actual.derecho != null)
+			actual = actual.derecho;
+		return actual.elemento;
+	}
+
+	@Override
+	public boolean isEmpty(){
+		return raiz == null;
+	}
+
+	/**
+	 * Regresa el número de elementos en O(1).
+	 * @return el número de elementos.
+	 */
+	public int size(){
+		return tamanio(raiz);
+	}
+
+	@Override
+	public void preorden(){
+		preorden(raiz);
+	}
+
+	private void preorden(Nodo<K, T> nodo){
+		if(nodo == null)
+			return;
+		System.out.println(nodo.elemento);
+		preorden(nodo.izquierdo);
+		preorden(nodo.derecho);
+	}
+
+	@Override
+	public void inorden(){
+		inorden(raiz);
+	}
+
+	private void inorden(Nodo<K, T> nodo){
+		if(nodo == null)
+			return;
+		inorden(nodo.izquierdo);
+		System.out.println(nodo.elemento);
+		inorden(nodo.derecho);
+	}
+
+	@Override
+	public void postorden(){
+		postorden(raiz);
+	}
+
+	private void postorden(Nodo<K, T> nodo){
+		if(nodo == null)
+			return;
+		postorden(nodo.izquierdo);
+		postorden(nodo.derecho);
+		System.out.println(nodo.elemento);
+	}
+
+	/**
+	 * Regresa un iterador inorden sobre la versión del árbol que existe al
+	 * llamarlo. Las escrituras posteriores no lo afectan.
+	 * @return el iterador de los elementos en orden de clave.
+	 */
+	@Override
+	public Iterator<T> iterator(){
+		final Nodo<K, T> inicio = raiz;
+		return new Iterator<T>(){
+
+			/** Pila de nodos cuyo subárbol derecho falta visitar. */
+			@SuppressWarnings("unchecked")
+			private final Nodo<K, T>[] pila = (Nodo<K, T>[]) new Nodo[altura(inicio) + 2];
+
+			private int tope = baja(inicio, 0);
+
+			private int baja(Nodo<K, T> nodo, int tope){
+				for(; nodo != null; nodo = nodo.izquierdo)
+					pila[tope++] = nodo;
+				return tope;
+			}
+
+			@Override
+			public boolean hasNext(){
+				return tope > 0;
+			}
+
+			@Override
+			public T next(){
+				if(tope == 0)
+					throw new NoSuchElementException();
+				Nodo<K, T> nodo = pila[--tope];
+				tope = baja(nodo.derecho, tope);
+				return nodo.elemento;
+			}
+		};
+	}
+}
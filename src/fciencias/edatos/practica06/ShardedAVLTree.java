@@ -0,0 +1,634 @@
+package fciencias.edatos.practica06;
+
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.NoSuchElementException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+
+/**
+* Árbol AVL partido por rangos de claves para que escrituras a claves
+* distintas no compitan por la misma raiz. Cada fragmento cubre un rango
+* [inicio, fin) y tiene su propio AVLTree y su propio candado de lectura y
+* escritura; un directorio ordenado de fragmentos, que se reemplaza completo
+* cada vez que cambia, dice a cuál va cada clave.
+* Cada VENTANA escrituras un fragmento revisa su estado: si creció más del
+* máximo, o si más de una octava parte de sus escrituras tuvo que esperar el
+* candado, se parte en la clave mediana con split; si quedó chico y nadie lo
+* esperó, se une con su vecino con join. Ambas cuestan O(log n) y se hacen
+* con los candados de los fragmentos involucrados, así que las operaciones
+* sobre los demás siguen corriendo.
+* Todas las operaciones sobre una clave son linealizables e insert reemplaza
+* el elemento si la clave ya existe, como AVLTree.insert. Los recorridos,
+* size y los iteradores van de fragmento en fragmento por clave, así que
+* nunca repiten ni saltan un rango aunque los fragmentos se partan o se unan
+* a la mitad, pero son débilmente consistentes: no son una foto del árbol.
+* @author Pintor Muñoz Pedro Joshue.
+* @since Estructuras de Datos 2022-1.
+*/
+public class ShardedAVLTree<K extends Comparable, T> implements TDABinarySearchTree<K, T>, Iterable<T>{
+
+	/** Escrituras entre cada revisión de un fragmento. */
+	private static final int VENTANA = 1024;
+
+	/** Tamaño mínimo de un fragmento para partirlo solo porque está caliente. */
+	private static final int MINIMO_CALIENTE = 4096;
+
+	/** Máximo de entradas por fragmento por omisión. */
+	private static final int MAXIMO_FRAGMENTO = 1 << 16;
+
+	/** Entradas que copia un iterador cada vez que toma un candado. */
+	private static final int LOTE = 256;
+
+	/** Resultados de la revisión de un fragmento. */
+	private static final int NADA = 0, PARTIR = 1, FUSIONAR = 2;
+
+	/**
+	 * Un rango de claves con su árbol y su candado. El rango no cambia: al
+	 * partir o unir fragmentos se crean fragmentos nuevos y los viejos se
+	 * retiran.
+	 */
+	private static final class Fragmento<K extends Comparable, T>{
+
+		/** Clave menor del rango, incluida; null si no tiene cota inferior. */
+		final K inicio;
+
+		/** Clave mayor del rango, excluida; null si no tiene cota superior. */
+		final K fin;
+
+		final AVLTree<K, T> arbol;
+
+		/** Vista del árbol para los iteradores, sin copiar nada. */
+		final NavigableMap<K, T> vista;
+
+		final ReentrantReadWriteLock candado = new ReentrantReadWriteLock();
+
+		/*
+		 * Los campos siguientes se leen y escriben con el candado tomado.
+		 */
+
+		/** Si ya se partió o se unió y hay que volver a buscar en el directorio. */
+		boolean retirado;
+
+		/** Escrituras y esperas por el candado en la ventana actual. */
+		int escrituras, esperas;
+
+		/** Si nadie esperó el candado en la última ventana completa. */
+		boolean frio = true;
+
+		Fragmento(K inicio, K fin, AVLTree<K, T> arbol){
+			this.inicio = inicio;
+			this.fin = fin;
+			this.arbol = arbol;
+			this.vista = arbol.asNavigableMap();
+		}
+
+		/**
+		 * Cuenta una escritura y, al cerrar la ventana, decide si hay que
+		 * partir o unir el fragmento.
+		 * @param maximo el máximo de entradas por fragmento.
+		 * @return NADA, PARTIR o FUSIONAR.
+		 */
+		int cuenta(int maximo){
+			if(++escrituras < VENTANA)
+				return NADA;
+			boolean caliente = esperas > VENTANA / 8;
+			frio = esperas == 0;
+			escrituras = esperas = 0;
+			int n = arbol.size();
+			if(n > maximo || caliente && n >= MINIMO_CALIENTE)
+				return PARTIR;
+			if(frio && n < maximo / 4)
+				return FUSIONAR;
+			return NADA;
+		}
+	}
+
+	/** Comparador con el que se ordenan las claves. */
+	private final Comparator<? super K> comparador;
+
+	/** Máximo de entradas de un fragmento antes de partirlo. */
+	private final int maximo;
+
+	/**
+	 * Fragmentos ordenados por rango, el primero sin cota inferior y el último
+	 * sin cota superior. Nunca se modifica: se reemplaza con el monitor del
+	 * árbol tomado.
+	 */
+	private volatile Fragmento<K, T>[] directorio;
+
+	/** Hilo que rebalancea los fragmentos en modo relajado, null si no hay. */
+	private ScheduledExecutorService mantenimiento;
+
+	/**
+	 * Crea un árbol vacío ordenado por el orden natural de las claves.
+	 */
+	public ShardedAVLTree(){
+		this(null);
+	}
+
+	/**
+	 * Crea un árbol vacío ordenado con un comparador.
+	 * @param comparador el comparador de claves, null para usar el orden natural.
+	 */
+	public ShardedAVLTree(Comparator<? super K> comparador){
+		this(comparador, MAXIMO_FRAGMENTO);
+	}
+
+	/**
+	 * Crea un árbol vacío con un máximo de entradas por fragmento.
+	 * @param comparador el comparador de claves, null para usar el orden natural.
+	 * @param maximo cuántas entradas puede tener un fragmento antes de partirlo.
+	 * @throws IllegalArgumentException si maximo es menor que 4.
+	 */
+	public ShardedAVLTree(Comparator<? super K> comparador, int maximo){
+		if(maximo < 4)
+			throw new IllegalArgumentException("El máximo por fragmento debe ser al menos 4: " + maximo);
+		AVLTree<K, T> arbol = new AVLTree<>(comparador);
+		this.comparador = arbol.comparador();
+		this.maximo = maximo;
+		this.directorio = nuevoDirectorio(1);
+		this.directorio[0] = new Fragmento<>(null, null, arbol);
+	}
+
+	/**
+	 * Regresa el número de fragmentos en este momento.
+	 * @return cuántos rangos tiene el directorio.
+	 */
+	public int shards(){
+		return directorio.length;
+	}
+
+	/**
+	 * Pone todos los fragmentos en rebalanceo relajado (ver
+	 * AVLTree.enableRelaxedBalance) y arranca un hilo de mantenimiento que
+	 * cada periodo hace las rotaciones pendientes de los fragmentos cuyo
+	 * candado esté libre; los ocupados se saltan hasta la siguiente vuelta.
+	 * Así las escrituras no rotan salvo cuando un fragmento pasa su cota de
+	 * altura antes de que llegue el hilo. Los fragmentos nuevos heredan el
+	 * modo del árbol del que salen.
+	 * @param holgura cuántos niveles puede pasar cada fragmento la altura de
+	 * un AVL, entre 1 y 64.
+	 * @param periodo el tiempo entre vueltas del hilo de mantenimiento.
+	 * @param unidad la unidad del periodo.
+	 * @throws IllegalArgumentException si holgura está fuera de rango o el
+	 * periodo no es positivo.
+	 */
+	public synchronized void enableRelaxedBalance(int holgura, long periodo, TimeUnit unidad){
+		if(periodo <= 0)
+			throw new IllegalArgumentException("El periodo debe ser positivo: " + periodo);
+		detieneMantenimiento();
+		for(Fragmento<K, T> f : directorio){
+			f.candado.writeLock().lock();
+			try{
+				f.arbol.enableRelaxedBalance(holgura);
+			}finally{
+				f.candado.writeLock().unlock();
+			}
+		}
+		mantenimiento = Executors.newSingleThreadScheduledExecutor(tarea -> {
+			Thread hilo = new Thread(tarea, "ShardedAVLTree-mantenimiento");
+			hilo.setDaemon(true);
+			return hilo;
+		});
+		mantenimiento.scheduleWithFixedDelay(this::drenaLibres, periodo, periodo, unidad);
+	}
+
+	/**
+	 * Detiene el hilo de mantenimiento, hace las rotaciones pendientes y
+	 * vuelve al rebalanceo inmediato en todos los fragmentos.
+	 */
+	public synchronized void disableRelaxedBalance(){
+		detieneMantenimiento();
+		for(Fragmento<K, T> f : directorio){
+			f.candado.writeLock().lock();
+			try{
+				f.arbol.disableRelaxedBalance();
+			}finally{
+				f.candado.writeLock().unlock();
+			}
+		}
+	}
+
+	private void detieneMantenimiento(){
+		if(mantenimiento == null)
+			return;
+		mantenimiento.shutdown();
+		try{
+			mantenimiento.awaitTermination(1, TimeUnit.MINUTES);
+		}catch(InterruptedException e){
+			Thread.currentThread().interrupt();
+		}
+		mantenimiento = null;
+	}
+
+	/**
+	 * Una vuelta del hilo de mantenimiento: rebalancea los fragmentos con
+	 * escrituras pendientes cuyo candado se puede tomar sin esperar.
+	 */
+	private void drenaLibres(){
+		for(Fragmento<K, T> f : directorio){
+			Lock candado = f.candado.writeLock();
+			if(!candado.tryLock())
+				continue;
+			try{
+				if(!f.retirado)
+					f.arbol.drainRebalance();
+			}finally{
+				candado.unlock();
+			}
+		}
+	}
+
+	/* Directorio */
+
+	/**
+	 * Busca en el directorio el fragmento que cubre k.
+	 * @param fragmentos el directorio.
+	 * @param k la clave, null para el primer fragmento.
+	 * @param antes true para buscar el que cubre las claves justo menores que
+	 * k; con k null, el último fragmento.
+	 * @return la posición del fragmento.
+	 */
+	private int ubica(Fragmento<K, T>[] fragmentos, K k, boolean antes){
+		if(k == null)
+			return antes ? fragmentos.length - 1 : 0;
+		// El primero no tiene inicio, buscamos el último con inicio <= k (o < k)
+		int lo = 0, hi = fragmentos.length - 1;
+		while(lo < hi){
+			int medio = (lo + hi + 1) >>> 1;
+			int cmp = comparador.compare(fragmentos[medio].inicio, k);
+			if(cmp < 0 || cmp == 0 && !antes)
+				lo = medio;
+			else
+				hi = medio - 1;
+		}
+		return lo;
+	}
+
+	/**
+	 * Toma el candado del fragmento que cubre k. Si el fragmento se retiró
+	 * mientras esperábamos, lo suelta y vuelve a buscar en el directorio.
+	 * En escritura cuenta si hubo que esperar el candado.
+	 * @param k la clave.
+	 * @param antes ver ubica.
+	 * @param escritura true para el candado de escritura.
+	 * @return el fragmento con su candado tomado.
+	 */
+	private Fragmento<K, T> bloquea(K k, boolean antes, boolean escritura){
+		while(true){
+			Fragmento<K, T>[] fragmentos = directorio;
+			Fragmento<K, T> f = fragmentos[ubica(fragmentos, k, antes)];
+			Lock candado = escritura ? f.candado.writeLock() : f.candado.readLock();
+			boolean espero = false;
+			if(!candado.tryLock()){
+				candado.lock();
+				espero = true;
+			}
+			if(!f.retirado){
+				if(espero && escritura)
+					f.esperas++;
+				return f;
+			}
+			candado.unlock();
+		}
+	}
+
+	/**
+	 * Suelta el candado de escritura de un fragmento y lo parte o lo une si
+	 * su revisión lo pide.
+	 * @param f el fragmento con el candado de escritura tomado.
+	 */
+	private void libera(Fragmento<K, T> f){
+		int accion = f.cuenta(maximo);
+		f.candado.writeLock().unlock();
+		if(accion == PARTIR)
+			parte(f);
+		else if(accion == FUSIONAR)
+			fusiona(f);
+	}
+
+	/**
+	 * Parte un fragmento en su clave mediana.
+	 * @param f el fragmento, sin candado.
+	 */
+	private synchronized void parte(Fragmento<K, T> f){
+		f.candado.writeLock().lock();
+		try{
+			if(f.retirado || f.arbol.size() < 2)
+				return;
+			K medio = f.arbol.select(f.arbol.size() / 2);
+			AVLTree<K, T> mayores = f.arbol.split(medio);
+			Fragmento<K, T>[] fragmentos = directorio;
+			int i = posicion(fragmentos, f);
+			Fragmento<K, T>[] nuevo = nuevoDirectorio(fragmentos.length + 1);
+			System.arraycopy(fragmentos, 0, nuevo, 0, i);
+			nuevo[i] = new Fragmento<>(f.inicio, medio, f.arbol);
+			nuevo[i + 1] = new Fragmento<>(medio, f.fin, mayores);
+			System.arraycopy(fragmentos, i + 1, nuevo, i + 2, fragmentos.length - i - 1);
+			f.retirado = true;
+			directorio = nuevo;
+		}finally{
+			f.candado.writeLock().unlock();
+		}
+	}
+
+	/**
+	 * Une un fragmento con su vecino derecho, o con el izquierdo si es el
+	 * último, siempre que ambos estén fríos y juntos no pasen de la mitad
+	 * del máximo.
+	 * @param f el fragmento, sin candado.
+	 */
+	private synchronized void fusiona(Fragmento<K, T> f){
+		Fragmento<K, T>[] fragmentos = directorio;
+		if(fragmentos.length == 1)
+			return;
+		int i = posicion(fragmentos, f);
+		if(i < 0)
+			return;
+		if(i == fragmentos.length - 1)
+			i--;
+		// Los candados se toman en el orden de las claves
+		Fragmento<K, T> a = fragmentos[i], b = fragmentos[i + 1];
+		a.candado.writeLock().lock();
+		b.candado.writeLock().lock();
+		try{
+			if(!a.frio || !b.frio || a.arbol.size() + b.arbol.size() > maximo / 2)
+				return;
+			a.arbol.join(b.arbol);
+			Fragmento<K, T>[] nuevo = nuevoDirectorio(fragmentos.length - 1);
+			System.arraycopy(fragmentos, 0, nuevo, 0, i);
+			nuevo[i] = new Fragmento<>(a.inicio, b.fin, a.arbol);
+			System.arraycopy(fragmentos, i + 2, nuevo, i + 1, fragmentos.length - i - 2);
+			a.retirado = true;
+			b.retirado = true;
+			directorio = nuevo;
+		}finally{
+			b.candado.writeLock().unlock();
+			a.candado.writeLock().unlock();
+		}
+	}
+
+	private static <K extends Comparable, T> int posicion(Fragmento<K, T>[] fragmentos, Fragmento<K, T> f){
+		for(int i = 0; i < fragmentos.length; i++)
+			if(fragmentos[i] == f)
+				return i;
+		return -1;
+	}
+
+	@SuppressWarnings("unchecked")
+	private static <K extends Comparable, T> Fragmento<K, T>[] nuevoDirectorio(int largo){
+		return (Fragmento<K, T>[]) new Fragmento[largo];
+	}
+
+	/* Operaciones */
+
+	@Override
+	public T retrieve(K k){
+		Fragmento<K, T> f = bloquea(k, false, false);
+		try{
+			return f.arbol.retrieve(k);
+		}finally{
+			f.candado.readLock().unlock();
+		}
+	}
+
+	@Override
+	public void insert(T e, K k){
+		Fragmento<K, T> f = bloquea(k, false, true);
+		try{
+			f.arbol.put(k, e);
+		}finally{
+			libera(f);
+		}
+	}
+
+	@Override
+	public T delete(K k){
+		Fragmento<K, T> f = bloquea(k, false, true);
+		try{
+			return f.arbol.delete(k);
+		}finally{
+			libera(f);
+		}
+	}
+
+	@Override
+	public T findMin(){
+		Map.Entry<K, T> entrada = extremo(true);
+		return entrada == null ? null : entrada.getValue();
+	}
+
+	@Override
+	public T findMax(){
+		Map.Entry<K, T> entrada = extremo(false);
+		return entrada == null ? null : entrada.getValue();
+	}
+
+	/**
+	 * Busca la entrada de la clave menor o mayor, saltando los fragmentos
+	 * vacíos.
+	 * @param minimo true para la menor, false para la mayor.
+	 * @return la entrada, null si el árbol es vacío.
+	 */
+	private Map.Entry<K, T> extremo(boolean minimo){
+		K cursor = null;
+		while(true){
+			Fragmento<K, T> f = bloquea(cursor, !minimo, false);
+			K siguiente;
+			try{
+				Map.Entry<K, T> entrada = minimo ? f.arbol.firstEntry() : f.arbol.lastEntry();
+				if(entrada != null)
+					return entrada;
+				siguiente = minimo ? f.fin : f.inicio;
+			}finally{
+				f.candado.readLock().unlock();
+			}
+			if(siguiente == null)
+				return null;
+			cursor = siguiente;
+		}
+	}
+
+	@Override
+	public boolean isEmpty(){
+		return size() == 0;
+	}
+
+	/**
+	 * Cuenta las entradas sumando los tamaños de los fragmentos. Con
+	 * escrituras concurrentes el resultado es aproximado.
+	 * @return el número de entradas.
+	 */
+	public int size(){
+		int[] total = {0};
+		porFragmento(f -> total[0] += f.arbol.size());
+		return total[0];
+	}
+
+	/**
+	 * Aplica una acción a cada fragmento en orden de claves, con su candado
+	 * de lectura tomado. Avanza por rango, no por el directorio, así que si
+	 * un fragmento se parte o se une mientras tanto sus claves no se visitan
+	 * dos veces.
+	 * @param accion la acción.
+	 */
+	private void porFragmento(Consumer<Fragmento<K, T>> accion){
+		K cursor = null;
+		while(true){
+			Fragmento<K, T> f = bloquea(cursor, false, false);
+			K fin;
+			try{
+				accion.accept(f);
+				fin = f.fin;
+			}finally{
+				f.candado.readLock().unlock();
+			}
+			if(fin == null)
+				return;
+			cursor = fin;
+		}
+	}
+
+	/**
+	 * Imprime los fragmentos en orden y cada uno en preorden.
+	 */
+	@Override
+	public void preorden(){
+		porFragmento(f -> f.arbol.preorden());
+	}
+
+	@Override
+	public void inorden(){
+		porFragmento(f -> f.arbol.inorden());
+	}
+
+	/**
+	 * Imprime los fragmentos en orden y cada uno en postorden.
+	 */
+	@Override
+	public void postorden(){
+		porFragmento(f -> f.arbol.postorden());
+	}
+
+	/* Iteradores */
+
+	/**
+	 * Regresa un iterador sobre los elementos en orden de claves.
+	 * @return un iterador débilmente consistente.
+	 */
+	@Override
+	public Iterator<T> iterator(){
+		Iterator<Map.Entry<K, T>> entradas = scan(null, null);
+		return new Iterator<T>(){
+			@Override
+			public boolean hasNext(){
+				return entradas.hasNext();
+			}
+
+			@Override
+			public T next(){
+				return entradas.next().getValue();
+			}
+		};
+	}
+
+	/**
+	 * Regresa un iterador sobre las entradas con claves en [desde, hasta) en
+	 * orden, cruzando los límites de los fragmentos. Copia hasta LOTE
+	 * entradas cada vez que toma un candado de lectura y sigue desde la
+	 * última clave que entregó, así que no detiene a los escritores mientras
+	 * se consume y ve las escrituras hechas más adelante del punto en que va.
+	 * @param desde la clave inicial, incluida; null para empezar en la menor.
+	 * @param hasta la clave final, excluida; null para llegar hasta la mayor.
+	 * @return un iterador débilmente consistente de entradas inmutables.
+	 */
+	public Iterator<Map.Entry<K, T>> scan(K desde, K hasta){
+		return new Barrido(desde, hasta);
+	}
+
+	/** Iterador por lotes de scan. */
+	private final class Barrido implements Iterator<Map.Entry<K, T>>{
+
+		private final K hasta;
+
+		/** Clave desde la que sigue el próximo lote, null al inicio sin cota. */
+		private K cursor;
+
+		/** Si el próximo lote incluye al cursor. */
+		private boolean incluyeCursor = true;
+
+		/** Si ya no hay más entradas que cargar. */
+		private boolean agotado;
+
+		private final List<Map.Entry<K, T>> lote = new ArrayList<>(LOTE);
+
+		private int posicion;
+
+		Barrido(K desde, K hasta){
+			this.cursor = desde;
+			this.hasta = hasta;
+		}
+
+		@Override
+		public boolean hasNext(){
+			if(posicion == lote.size() && !agotado)
+				carga();
+			return posicion < lote.size();
+		}
+
+		@Override
+		public Map.Entry<K, T> next(){
+			if(!hasNext())
+				throw new NoSuchElementException();
+			return lote.get(posicion++);
+		}
+
+		/**
+		 * Llena el lote desde el cursor, pasando a los fragmentos siguientes
+		 * mientras falten entradas.
+		 */
+		private void carga(){
+			lote.clear();
+			posicion = 0;
+			while(lote.size() < LOTE && !agotado){
+				Fragmento<K, T> f = bloquea(cursor, false, false);
+				try{
+					NavigableMap<K, T> cola = cursor == null ? f.vista : f.vista.tailMap(cursor, incluyeCursor);
+					for(Map.Entry<K, T> entrada : cola.entrySet()){
+						if(lote.size() == LOTE)
+							break;
+						K clave = entrada.getKey();
+						if(hasta != null && comparador.compare(clave, hasta) >= 0){
+							agotado = true;
+							break;
+						}
+						lote.add(new AbstractMap.SimpleImmutableEntry<>(clave, entrada.getValue()));
+						cursor = clave;
+						incluyeCursor = false;
+					}
+					if(lote.size() < LOTE && !agotado){
+						// Se acabó el fragmento, seguimos en el rango siguiente
+						if(f.fin == null || hasta != null && comparador.compare(f.fin, hasta) >= 0){
+							agotado = true;
+						} else {
+							cursor = f.fin;
+							incluyeCursor = true;
+						}
+					}
+				}finally{
+					f.candado.readLock().unlock();
+				}
+			}
+		}
+	}
+}
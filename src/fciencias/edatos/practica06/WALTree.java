@@ -0,0 +1,452 @@
+package fciencias.edatos.practica06;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.locks.LockSupport;
+import java.util.zip.CRC32;
+
+/**
+* Árbol AVL durable: cada insert y delete se escribe en un registro de
+* escritura anticipada (WAL) antes de regresar, y al abrir el árbol se
+* recupera el último checkpoint y se vuelven a aplicar las operaciones del
+* registro posteriores a él.
+* Para no pagar un fsync por operación se usa group commit: los hilos que
+* esperan a que su operación sea durable se forman, uno de ellos se vuelve
+* líder, opcionalmente espera una ventana para juntar más registros, y
+* escribe y sincroniza de una vez todos los pendientes.
+* checkpoint() guarda el árbol con AVLTree.save y vacía el registro. Cada
+* registro y checkpoint lleva un número de secuencia (LSN), así que una caída
+* entre guardar el checkpoint y vaciar el registro no aplica nada dos veces.
+* Los registros llevan CRC32; al recuperar, un registro incompleto o dañado
+* al final del archivo se descarta.
+* Las lecturas ven las escrituras aplicadas aunque aún no sean durables.
+* Los errores de E/S en insert y delete se lanzan como UncheckedIOException.
+* @author Pintor Muñoz Pedro Joshue.
+* @since Estructuras de Datos 2022-1.
+*/
+public class WALTree<K extends Comparable, T> implements TDABinarySearchTree<K, T>, AutoCloseable{
+
+	/** Tipos de registro. */
+	private static final byte INSERCION = 1, ELIMINACION = 2;
+
+	/** Bytes del LSN y el tipo al inicio de cada registro. */
+	private static final int CABEZA = 8 + 1;
+
+	/** Nombre del archivo del registro. */
+	private static final String REGISTRO = "wal.log";
+
+	/** Prefijo y sufijo de los checkpoints, el LSN va en medio. */
+	private static final String CHECKPOINT = "checkpoint-", BIN = ".bin";
+
+	/** El árbol en memoria. */
+	private final AVLTree<K, T> arbol;
+
+	private final Path directorio;
+
+	private final CodecFijo<K> codecClave;
+
+	private final CodecFijo<T> codecElemento;
+
+	/** Tiempo que el líder espera para juntar registros antes de sincronizar. */
+	private final long ventanaNanos;
+
+	/** Bytes de un registro de inserción y de eliminación, con su CRC. */
+	private final int anchoInsercion, anchoEliminacion;
+
+	private final FileChannel log;
+
+	private final CRC32 crc = new CRC32();
+
+	/* Estado del group commit, protegido por el candado del árbol */
+
+	/** Registros agregados que aún no se escriben. */
+	private ByteBuffer pendientes = ByteBuffer.allocate(1 << 16);
+
+	/** Buffer que el líder está escribiendo, se intercambia con pendientes. */
+	private ByteBuffer enEscritura = ByteBuffer.allocate(1 << 16);
+
+	/** LSN del último registro agregado. */
+	private long ultimoLsn;
+
+	/** LSN del último registro sincronizado. */
+	private long lsnDurable;
+
+	/** Si hay un líder escribiendo. */
+	private boolean escribiendo;
+
+	/** Error de E/S del último líder, el registro ya no es confiable. */
+	private IOException falla;
+
+	private boolean cerrado;
+
+	/**
+	 * Abre o crea un árbol durable en un directorio, recuperando su
+	 * contenido si ya existía. Sin ventana de group commit.
+	 * @param directorio el directorio del registro y los checkpoints.
+	 * @param codecClave el codec de las claves.
+	 * @param codecElemento el codec de los elementos.
+	 * @throws IOException si falla la lectura o escritura del directorio.
+	 */
+	public WALTree(Path directorio, CodecFijo<K> codecClave, CodecFijo<T> codecElemento) throws IOException{
+		this(directorio, codecClave, codecElemento, 0);
+	}
+
+	/**
+	 * Abre o crea un árbol durable en un directorio, recuperando su
+	 * contenido si ya existía.
+	 * @param directorio el directorio del registro y los checkpoints.
+	 * @param codecClave el codec de las claves.
+	 * @param codecElemento el codec de los elementos.
+	 * @param ventanaMicros microsegundos que el líder espera a más registros
+	 * antes de sincronizar, 0 para sincronizar en cuanto se vuelve líder.
+	 * @throws IOException si falla la lectura o escritura del directorio.
+	 */
+	public WALTree(Path directorio, CodecFijo<K> codecClave, CodecFijo<T> codecElemento, long ventanaMicros) throws IOException{
+		this.directorio = directorio;
+		this.codecClave = codecClave;
+		this.codecElemento = codecElemento;
+		this.ventanaNanos = ventanaMicros * 1000;
+		this.anchoEliminacion = CABEZA + codecClave.ancho() + 4;
+		this.anchoInsercion = anchoEliminacion + 1 + codecElemento.ancho();
+
+		Files.createDirectories(directorio);
+		Files.deleteIfExists(directorio.resolve(CHECKPOINT + "tmp"));
+
+		// El checkpoint más reciente
+		long lsnCheckpoint = 0;
+		Path checkpoint = null;
+		try(DirectoryStream<Path> archivos = Files.newDirectoryStream(directorio, CHECKPOINT + "*" + BIN)){
+			for(Path archivo : archivos){
+				long lsn = lsnDe(archivo);
+				if(checkpoint == null || lsn > lsnCheckpoint){
+					checkpoint = archivo;
+					lsnCheckpoint = lsn;
+				}
+			}
+		}
+		arbol = checkpoint == null ? new AVLTree<>() : AVLTree.load(checkpoint, codecClave, codecElemento);
+
+		log = FileChannel.open(directorio.resolve(REGISTRO), StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+		ultimoLsn = reaplica(lsnCheckpoint);
+		lsnDurable = ultimoLsn;
+	}
+
+	private static long lsnDe(Path checkpoint){
+		String nombre = checkpoint.getFileName().toString();
+		return Long.parseLong(nombre.substring(CHECKPOINT.length(), nombre.length() - BIN.length()));
+	}
+
+	/**
+	 * Aplica al árbol los registros del log posteriores al checkpoint y
+	 * corta el log después del último registro válido.
+	 * @param lsnCheckpoint el LSN que ya incluye el checkpoint.
+	 * @return el LSN del último registro válido.
+	 */
+	private long reaplica(long lsnCheckpoint) throws IOException{
+		long ultimo = lsnCheckpoint;
+		long valido = 0;
+		byte[] registro = new byte[anchoInsercion];
+		ByteBuffer buffer = ByteBuffer.wrap(registro);
+		DataInputStream entrada = new DataInputStream(new BufferedInputStream(Channels.newInputStream(log.position(0)), 1 << 16));
+
+		try{
+			while(true){
+				entrada.readFully(registro, 0, CABEZA);
+				byte tipo = registro[8];
+				if(tipo != INSERCION && tipo != ELIMINACION)
+					break;
+				int ancho = tipo == INSERCION ? anchoInsercion : anchoEliminacion;
+				entrada.readFully(registro, CABEZA, ancho - CABEZA);
+				crc.reset();
+				crc.update(registro, 0, ancho - 4);
+				if((int) crc.getValue() != buffer.getInt(ancho - 4))
+					break;
+
+				long lsn = buffer.getLong(0);
+				if(lsn > lsnCheckpoint){
+					K clave = codecClave.lee(buffer, CABEZA);
+					if(tipo == INSERCION){
+						int posicionElemento = CABEZA + codecClave.ancho();
+						T elemento = registro[posicionElemento] != 0 ? null : codecElemento.lee(buffer, posicionElemento + 1);
+						arbol.insert(elemento, clave);
+					} else {
+						arbol.delete(clave);
+					}
+					ultimo = lsn;
+				}
+				valido += ancho;
+			}
+		}catch(EOFException e){
+			// Registro incompleto al final: la operación nunca se confirmó
+		}
+
+		log.truncate(valido);
+		log.position(valido);
+		log.force(true);
+		return ultimo;
+	}
+
+	@Override
+	public void insert(T e, K k){
+		long lsn;
+		synchronized(this){
+			abierto();
+			lsn = agrega(INSERCION, k, e);
+			arbol.insert(e, k);
+		}
+		esperaDurable(lsn);
+	}
+
+	@Override
+	public T delete(K k){
+		long lsn;
+		T eliminado;
+		synchronized(this){
+			abierto();
+			// Por nodo y no por elemento: una clave puede tener elemento null
+			if(arbol.buscaNodo(k) == null)
+				return null;
+			lsn = agrega(ELIMINACION, k, null);
+			eliminado = arbol.delete(k);
+		}
+		esperaDurable(lsn);
+		return eliminado;
+	}
+
+	/**
+	 * Agrega un registro a los pendientes. Requiere el candado del árbol.
+	 * @return el LSN del registro.
+	 */
+	private long agrega(byte tipo, K k, T e){
+		int ancho = tipo == INSERCION ? anchoInsercion : anchoEliminacion;
+		if(pendientes.remaining() < ancho){
+			ByteBuffer mayor = ByteBuffer.allocate(Math.max(2 * pendientes.capacity(), pendientes.position() + ancho));
+			pendientes.flip();
+			mayor.put(pendientes);
+			pendientes = mayor;
+		}
+
+		long lsn = ++ultimoLsn;
+		int inicio = pendientes.position();
+		pendientes.putLong(inicio, lsn);
+		pendientes.put(inicio + 8, tipo);
+		codecClave.escribe(pendientes, inicio + CABEZA, k);
+		if(tipo == INSERCION){
+			int posicionElemento = inicio + CABEZA + codecClave.ancho();
+			if(e == null){
+				pendientes.put(posicionElemento, (byte) 1);
+				for(int i = 1; i <= codecElemento.ancho(); i++)
+					pendientes.put(posicionElemento + i, (byte) 0);
+			} else {
+				pendientes.put(posicionElemento, (byte) 0);
+				codecElemento.escribe(pendientes, posicionElemento + 1, e);
+			}
+		}
+		crc.reset();
+		crc.update(pendientes.array(), inicio, ancho - 4);
+		pendientes.putInt(inicio + ancho - 4, (int) crc.getValue());
+		pendientes.position(inicio + ancho);
+		return lsn;
+	}
+
+	/**
+	 * Regresa cuando el registro lsn ya está sincronizado, volviéndose líder
+	 * del siguiente lote si no hay otro.
+	 * @param lsn el LSN a esperar.
+	 */
+	private void esperaDurable(long lsn){
+		while(true){
+			synchronized(this){
+				while(lsnDurable < lsn && escribiendo && falla == null)
+					espera();
+				if(falla != null)
+					throw new UncheckedIOException(falla);
+				if(lsnDurable >= lsn)
+					return;
+				escribiendo = true;
+			}
+
+			// Somos el líder: juntamos más registros y escribimos el lote fuera del candado
+			if(ventanaNanos > 0)
+				LockSupport.parkNanos(ventanaNanos);
+			ByteBuffer lote;
+			long hasta;
+			synchronized(this){
+				lote = pendientes;
+				pendientes = enEscritura;
+				enEscritura = lote;
+				hasta = ultimoLsn;
+			}
+			try{
+				escribe(lote);
+			}catch(IOException e){
+				synchronized(this){
+					falla = e;
+					escribiendo = false;
+					notifyAll();
+				}
+				throw new UncheckedIOException(e);
+			}
+			synchronized(this){
+				lsnDurable = hasta;
+				escribiendo = false;
+				notifyAll();
+			}
+		}
+	}
+
+	/** Escribe y sincroniza un lote y deja el buffer vacío. */
+	private void escribe(ByteBuffer lote) throws IOException{
+		lote.flip();
+		while(lote.hasRemaining())
+			log.write(lote);
+		log.force(false);
+		lote.clear();
+	}
+
+	/**
+	 * Guarda el árbol en un checkpoint nuevo y vacía el registro. Bloquea a
+	 * los escritores mientras dura.
+	 * @throws IOException si falla la escritura.
+	 */
+	public synchronized void checkpoint() throws IOException{
+		abierto();
+		sincronizaPendientes();
+
+		long lsn = ultimoLsn;
+		Path temporal = directorio.resolve(CHECKPOINT + "tmp");
+		arbol.save(temporal, codecClave, codecElemento);
+		try(FileChannel canal = FileChannel.open(temporal, StandardOpenOption.WRITE)){
+			canal.force(true);
+		}
+		Path nuevo = directorio.resolve(CHECKPOINT + lsn + BIN);
+		Files.move(temporal, nuevo, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+		sincronizaDirectorio();
+
+		// El checkpoint nuevo ya es durable, lo anterior sobra
+		try(DirectoryStream<Path> archivos = Files.newDirectoryStream(directorio, CHECKPOINT + "*" + BIN)){
+			for(Path archivo : archivos)
+				if(lsnDe(archivo) < lsn)
+					Files.delete(archivo);
+		}
+		log.truncate(0);
+		log.force(true);
+	}
+
+	/**
+	 * Espera al líder en curso y sincroniza lo pendiente sin soltar el
+	 * candado. Requiere el candado del árbol.
+	 */
+	private void sincronizaPendientes() throws IOException{
+		while(escribiendo)
+			espera();
+		if(falla != null)
+			throw falla;
+		if(pendientes.position() > 0){
+			escribe(pendientes);
+			lsnDurable = ultimoLsn;
+			notifyAll();
+		}
+	}
+
+	/** Sincroniza la entrada del directorio después de renombrar, si el sistema lo permite. */
+	private void sincronizaDirectorio(){
+		try(FileChannel canal = FileChannel.open(directorio, StandardOpenOption.READ)){
+			canal.force(true);
+		}catch(IOException e){
+			// Algunos sistemas no permiten abrir directorios, el rename ya es atómico
+		}
+	}
+
+	private void espera(){
+		try{
+			wait();
+		}catch(InterruptedException e){
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException("Interrumpido esperando al registro", e);
+		}
+	}
+
+	private void abierto(){
+		if(cerrado)
+			throw new IllegalStateException("El árbol ya se cerró");
+	}
+
+	/**
+	 * Sincroniza lo pendiente y cierra el registro.
+	 * @throws IOException si falla la escritura.
+	 */
+	@Override
+	public synchronized void close() throws IOException{
+		if(cerrado)
+			return;
+		try{
+			sincronizaPendientes();
+		}finally{
+			cerrado = true;
+			log.close();
+		}
+	}
+
+	/**
+	 * Regresa el LSN del último registro sincronizado.
+	 * @return el LSN durable.
+	 */
+	public synchronized long lsnDurable(){
+		return lsnDurable;
+	}
+
+	@Override
+	public synchronized T retrieve(K k){
+		return arbol.retrieve(k);
+	}
+
+	@Override
+	public synchronized T findMin(){
+		return arbol.findMin();
+	}
+
+	@Override
+	public synchronized T findMax(){
+		return arbol.findMax();
+	}
+
+	@Override
+	public synchronized boolean isEmpty(){
+		return arbol.isEmpty();
+	}
+
+	/**
+	 * Regresa el número de elementos.
+	 * @return el número de elementos.
+	 */
+	public synchronized int size(){
+		return arbol.size();
+	}
+
+	@Override
+	public synchronized void preorden(){
+		arbol.preorden();
+	}
+
+	@Override
+	public synchronized void inorden(){
+		arbol.inorden();
+	}
+
+	@Override
+	public synchronized void postorden(){
+		arbol.postorden();
+	}
+}